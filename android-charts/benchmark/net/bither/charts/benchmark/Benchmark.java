@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Times a task on the JVM for the benchmarks in benchmark/, of this project and of
+ * bither-android, which adds this directory to its test sources. Warm up runs come first so
+ * the JIT has compiled the path, the measured runs are reported as min and median, which a GC
+ * pause in one run does not move.
+ * <p/>
+ * The numbers are for comparing one release with the next on the same machine, not for
+ * predicting the time on a phone.
+ */
+public class Benchmark {
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * @return median time of one run in nanoseconds
+     */
+    public static long measure(String name, int warmups, int runs, Task task) throws Exception {
+        for (int i = 0;
+             i < warmups;
+             i++) {
+            task.run();
+        }
+        long[] times = new long[runs];
+        for (int i = 0;
+             i < runs;
+             i++) {
+            long begin = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(times);
+        long median = times[runs / 2];
+        System.out.println(String.format("%-40s min %9.3fms  median %9.3fms  (%d runs)", name,
+                times[0] / 1000000.0, median / 1000000.0, runs));
+        return median;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.entity;
+
+import net.bither.charts.benchmark.Benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * The per candle work of the stick charts over 10k candles, the same candles once as a list of
+ * entities and once in an {@link OHLCChartData}: the value range the charts compute before
+ * drawing, and the y of open, high, low and close every candle is drawn with.
+ * <p/>
+ * The views themselves need a device, the loops here read the candles through the same
+ * {@link OHLCChartData} helpers as the charts.
+ */
+public class ChartDataBenchmark {
+    private static final int CANDLE_COUNT = 10000;
+    private static final long MINUTE = 60 * 1000;
+    private static final int AXIS_TITLES = 5;
+    private static final float HEIGHT = 600;
+    private static final float START_Y = 20;
+
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        final SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm");
+        Random random = new Random(1);
+        final double[][] candles = new double[CANDLE_COUNT][];
+        double close = 400;
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            double open = close;
+            close = open + random.nextGaussian();
+            candles[i] = new double[]{open, Math.max(open, close) + random.nextDouble(),
+                    Math.min(open, close) - random.nextDouble(), close,
+                    random.nextDouble() * 10};
+        }
+
+        final ListChartData<IStickEntity> entities = new ListChartData<IStickEntity>();
+        final OHLCChartData arrays = new OHLCChartData(CANDLE_COUNT);
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            double[] c = candles[i];
+            entities.add(new BitherOHLCEntity(c[0], c[1], c[2], c[3], c[4], format.format(new
+                    Date(i * MINUTE)), i * MINUTE));
+            arrays.add(i * MINUTE, c[0], c[1], c[2], c[3], c[4], null);
+        }
+
+        Benchmark.measure("range, " + CANDLE_COUNT + " entities", 50, 500, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                sink = range(entities)[0];
+            }
+        });
+        Benchmark.measure("range, " + CANDLE_COUNT + " arrays", 50, 500, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                sink = range(arrays)[0];
+            }
+        });
+        Benchmark.measure("draw, " + CANDLE_COUNT + " entities", 50, 500, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                sink = draw(entities);
+            }
+        });
+        Benchmark.measure("draw, " + CANDLE_COUNT + " arrays", 50, 500, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                sink = draw(arrays);
+            }
+        });
+        Benchmark.measure("draw, " + CANDLE_COUNT + " arrays through get(i)", 50, 500, new
+                Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                sink = draw(new ListChartData<IStickEntity>() {
+                    @Override
+                    public int size() {
+                        return arrays.size();
+                    }
+
+                    @Override
+                    public IStickEntity get(int i) {
+                        return arrays.get(i);
+                    }
+                });
+            }
+        });
+        Benchmark.measure("titles, " + CANDLE_COUNT + " formatted on add", 5, 50, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                OHLCChartData data = new OHLCChartData(CANDLE_COUNT);
+                for (int i = 0;
+                     i < CANDLE_COUNT;
+                     i++) {
+                    double[] c = candles[i];
+                    data.add(i * MINUTE, c[0], c[1], c[2], c[3], c[4], format.format(new Date
+                            (i * MINUTE)));
+                }
+                sink = axisTitles(data);
+            }
+        });
+        Benchmark.measure("titles, " + CANDLE_COUNT + " formatted on axis", 5, 50, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                OHLCChartData data = new OHLCChartData(CANDLE_COUNT, new OHLCChartData
+                        .TitleFormatter() {
+                    @Override
+                    public String format(long date) {
+                        return format.format(new Date(date));
+                    }
+                });
+                for (int i = 0;
+                     i < CANDLE_COUNT;
+                     i++) {
+                    double[] c = candles[i];
+                    data.add(i * MINUTE, c[0], c[1], c[2], c[3], c[4], null);
+                }
+                sink = axisTitles(data);
+            }
+        });
+    }
+
+    private static double[] range(IChartData<IStickEntity> data) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0;
+             i < data.size();
+             i++) {
+            min = Math.min(min, OHLCChartData.getLow(data, i));
+            max = Math.max(max, OHLCChartData.getHigh(data, i));
+        }
+        return new double[]{min, max};
+    }
+
+    private static double draw(IChartData<IStickEntity> data) {
+        double[] range = range(data);
+        double sum = 0;
+        for (int i = 0;
+             i < data.size();
+             i++) {
+            sum += OHLCChartData.valueToY(OHLCChartData.getOpen(data, i), range[0], range[1],
+                    HEIGHT, START_Y);
+            sum += OHLCChartData.valueToY(OHLCChartData.getHigh(data, i), range[0], range[1],
+                    HEIGHT, START_Y);
+            sum += OHLCChartData.valueToY(OHLCChartData.getLow(data, i), range[0], range[1],
+                    HEIGHT, START_Y);
+            sum += OHLCChartData.valueToY(OHLCChartData.getClose(data, i), range[0], range[1],
+                    HEIGHT, START_Y);
+        }
+        return sum;
+    }
+
+    private static int axisTitles(OHLCChartData data) {
+        int length = 0;
+        for (int i = 0;
+             i <= AXIS_TITLES;
+             i++) {
+            length += data.getTitle(Math.min(i * data.size() / AXIS_TITLES, data.size() - 1))
+                    .length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+import net.bither.charts.benchmark.Benchmark;
+
+import java.util.Random;
+
+/**
+ * A refresh of a full series, 8192 candles as the series store keeps at most, with MA10 and
+ * MA30 as KLineSeriesStore keeps them: the engine merging the changed running candle against
+ * computing the averages again over the closes, and building the engine when a series store
+ * is opened.
+ */
+public class IndicatorBenchmark {
+    private static final int CANDLE_COUNT = 8192;
+
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+        final double[] closes = new double[CANDLE_COUNT];
+        double close = 400;
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            close += random.nextGaussian();
+            closes[i] = close;
+        }
+        final IndicatorEngine engine = build(closes);
+        final SMAIndicator ma10 = engine.add(new SMAIndicator(10));
+
+        Benchmark.measure("merge running candle, " + CANDLE_COUNT + " candles", 1000, 10000,
+                new Benchmark.Task() {
+                    int step;
+
+                    @Override
+                    public void run() throws Exception {
+                        engine.merge(CANDLE_COUNT - 1, closes[CANDLE_COUNT - 1] + (step++ &
+                                1));
+                        sink = ma10.getLine().get(CANDLE_COUNT - 1);
+                    }
+                });
+        Benchmark.measure("recompute, " + CANDLE_COUNT + " candles", 20, 200, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                sink = recompute(closes);
+            }
+        });
+        Benchmark.measure("build engine, " + CANDLE_COUNT + " candles", 20, 200, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                sink = build(closes).size();
+            }
+        });
+    }
+
+    private static IndicatorEngine build(double[] closes) {
+        IndicatorEngine engine = new IndicatorEngine();
+        engine.add(new SMAIndicator(10));
+        engine.add(new SMAIndicator(30));
+        for (int i = 0;
+             i < closes.length;
+             i++) {
+            engine.merge(i, closes[i]);
+        }
+        return engine;
+    }
+
+    /**
+     * All values from scratch, the moving windows summed up for every candle.
+     */
+    private static double recompute(double[] closes) {
+        double total = 0;
+        for (int days : new int[]{10, 30}) {
+            for (int i = 0;
+                 i < closes.length;
+                 i++) {
+                int from = Math.max(0, i - days + 1);
+                double sum = 0;
+                for (int j = from;
+                     j <= i;
+                     j++) {
+                    sum += closes[j];
+                }
+                total += sum / (i - from + 1);
+            }
+        }
+        return total;
+    }
+}
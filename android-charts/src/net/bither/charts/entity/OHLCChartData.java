@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.entity;
+
+import java.util.List;
+
+/**
+ * Candles kept in parallel primitive arrays instead of one entity object per candle. The charts
+ * read the values by index through {@link #getOpen(int)} and the other getters, which neither
+ * allocates nor goes through the entity interfaces.
+ * <p/>
+ * {@link #get(int)} still works for code that wants entities, but builds a new
+ * {@link BitherOHLCEntity} on every call, changes to it are not written back.
+ * <p/>
+ * Candles added without a title get it from the {@link TitleFormatter} the first time it is
+ * asked for, so only the candles under an axis label pay for formatting their date.
+ */
+public class OHLCChartData implements IChartData<IStickEntity> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public interface TitleFormatter {
+        String format(long date);
+    }
+
+    private long[] dates;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private double[] volumes;
+    private String[] titles;
+    private int size;
+    private TitleFormatter titleFormatter;
+
+    public OHLCChartData() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OHLCChartData(int capacity, TitleFormatter titleFormatter) {
+        this(capacity);
+        this.titleFormatter = titleFormatter;
+    }
+
+    public OHLCChartData(int capacity) {
+        capacity = Math.max(capacity, 1);
+        dates = new long[capacity];
+        opens = new double[capacity];
+        highs = new double[capacity];
+        lows = new double[capacity];
+        closes = new double[capacity];
+        volumes = new double[capacity];
+        titles = new String[capacity];
+    }
+
+    /**
+     * @param entities {@link OHLCEntity} or {@link BitherOHLCEntity} candles
+     */
+    public OHLCChartData(List<IStickEntity> entities) {
+        this(entities.size());
+        for (IStickEntity entity : entities) {
+            add(entity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasData() {
+        return size > 0;
+    }
+
+    public boolean hasNoData() {
+        return size == 0;
+    }
+
+    public IStickEntity get(int i) {
+        return new BitherOHLCEntity(getOpen(i), getHigh(i), getLow(i), getClose(i),
+                getVolume(i), getTitle(i), getDate(i));
+    }
+
+    /**
+     * @param data an {@link OHLCEntity}, the volume is taken from a {@link BitherOHLCEntity}
+     */
+    public void add(IStickEntity data) {
+        OHLCEntity ohlc = (OHLCEntity) data;
+        add(ohlc.getDate(), ohlc.getOpen(), ohlc.getHigh(), ohlc.getLow(), ohlc.getClose(),
+                data instanceof BitherOHLCEntity ? ((BitherOHLCEntity) data).getVolume() : 0,
+                ohlc.getTitle());
+    }
+
+    public void add(long date, double open, double high, double low, double close,
+                    double volume, String title) {
+        if (size == dates.length) {
+            grow();
+        }
+        dates[size] = date;
+        opens[size] = open;
+        highs[size] = high;
+        lows[size] = low;
+        closes[size] = close;
+        volumes[size] = volume;
+        titles[size] = title;
+        size++;
+    }
+
+    public long getDate(int i) {
+        checkIndex(i);
+        return dates[i];
+    }
+
+    public double getOpen(int i) {
+        checkIndex(i);
+        return opens[i];
+    }
+
+    public double getHigh(int i) {
+        checkIndex(i);
+        return highs[i];
+    }
+
+    public double getLow(int i) {
+        checkIndex(i);
+        return lows[i];
+    }
+
+    public double getClose(int i) {
+        checkIndex(i);
+        return closes[i];
+    }
+
+    public double getVolume(int i) {
+        checkIndex(i);
+        return volumes[i];
+    }
+
+    public String getTitle(int i) {
+        checkIndex(i);
+        if (titles[i] == null && titleFormatter != null) {
+            titles[i] = titleFormatter.format(dates[i]);
+        }
+        return titles[i];
+    }
+
+    /**
+     * The getters below read a candle of any stick data, by index from an
+     * {@link OHLCChartData} and through the entity otherwise, for the charts that take both.
+     */
+    public static long getDate(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getDate(i);
+        }
+        return data.get(i).getDate();
+    }
+
+    public static double getOpen(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getOpen(i);
+        }
+        return ((OHLCEntity) data.get(i)).getOpen();
+    }
+
+    public static double getHigh(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getHigh(i);
+        }
+        return data.get(i).getHigh();
+    }
+
+    public static double getLow(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getLow(i);
+        }
+        return data.get(i).getLow();
+    }
+
+    public static double getClose(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getClose(i);
+        }
+        return ((OHLCEntity) data.get(i)).getClose();
+    }
+
+    public static double getVolume(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getVolume(i);
+        }
+        return ((BitherOHLCEntity) data.get(i)).getVolume();
+    }
+
+    public static String getTitle(IChartData<IStickEntity> data, int i) {
+        if (data instanceof OHLCChartData) {
+            return ((OHLCChartData) data).getTitle(i);
+        }
+        return data.get(i).getTitle();
+    }
+
+    /**
+     * Maps a value of the range minValue to maxValue to its y in a data quadrant of the given
+     * height starting at startY, the max value at the top.
+     */
+    public static float valueToY(double value, double minValue, double maxValue, float height,
+                                 float startY) {
+        return (float) ((1f - (value - minValue) / (maxValue - minValue)) * height + startY);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " size " + size);
+        }
+    }
+
+    private void grow() {
+        int capacity = dates.length * 2;
+        long[] dates = new long[capacity];
+        System.arraycopy(this.dates, 0, dates, 0, size);
+        this.dates = dates;
+        opens = copyOf(opens, capacity);
+        highs = copyOf(highs, capacity);
+        lows = copyOf(lows, capacity);
+        closes = copyOf(closes, capacity);
+        volumes = copyOf(volumes, capacity);
+        String[] titles = new String[capacity];
+        System.arraycopy(this.titles, 0, titles, 0, size);
+        this.titles = titles;
+    }
+
+    private double[] copyOf(double[] values, int capacity) {
+        double[] copy = new double[capacity];
+        System.arraycopy(values, 0, copy, 0, size);
+        return copy;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+/**
+ * An indicator over the closes of a candle series. Closes are appended oldest first and every
+ * append adds one value to each output line in constant time, so the lines stay aligned with
+ * the candles. The close of the running candle keeps changing until the next candle starts,
+ * {@link #replaceLast(double)} recomputes the last values for its new close.
+ */
+public abstract class Indicator {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private int size;
+
+    public final void append(double close) {
+        onAppend(close);
+        size++;
+    }
+
+    /**
+     * Replaces the last appended close, the last value of each output line is recomputed from
+     * the state before it was appended.
+     */
+    public final void replaceLast(double close) {
+        if (size == 0) {
+            throw new IllegalStateException("no close to replace");
+        }
+        onReplaceLast(close);
+    }
+
+    /**
+     * @return number of closes appended so far
+     */
+    public int size() {
+        return size;
+    }
+
+    protected abstract void onAppend(double close);
+
+    protected abstract void onReplaceLast(double close);
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.charts.entity.LineEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps indicators in step with a candle series. Candles are merged the way the series gets
+ * them: oldest first, a candle with the date of the last one replaces it, older ones are
+ * ignored. A merge costs one value per indicator output, not the history, and the fill method
+ * only adds the values a chart line does not hold yet.
+ * <p/>
+ * The indicators are linear in the closes, so the engine of a series serves the chart in any
+ * currency, the fill method multiplies the values by the rate.
+ */
+public class IndicatorEngine {
+    private final List<Indicator> indicators = new ArrayList<Indicator>();
+    private final IndicatorLine closes = new IndicatorLine(Indicator.DEFAULT_CAPACITY);
+    private long[] dates = new long[Indicator.DEFAULT_CAPACITY];
+
+    /**
+     * The indicator is caught up with the candles merged so far.
+     */
+    public <T extends Indicator> T add(T indicator) {
+        for (int i = indicator.size();
+             i < closes.size();
+             i++) {
+            indicator.append(closes.get(i));
+        }
+        indicators.add(indicator);
+        return indicator;
+    }
+
+    public void merge(long date, double close) {
+        int size = closes.size();
+        if (size > 0 && date < dates[size - 1]) {
+            return;
+        }
+        if (size > 0 && date == dates[size - 1]) {
+            closes.replaceLast(close);
+            for (Indicator indicator : indicators) {
+                indicator.replaceLast(close);
+            }
+            return;
+        }
+        if (size == dates.length) {
+            long[] grown = new long[dates.length * 2];
+            System.arraycopy(dates, 0, grown, 0, size);
+            dates = grown;
+        }
+        dates[size] = date;
+        closes.add(close);
+        for (Indicator indicator : indicators) {
+            indicator.append(close);
+        }
+    }
+
+    /**
+     * @return number of candles merged so far
+     */
+    public int size() {
+        return closes.size();
+    }
+
+    /**
+     * Fills the line data, created if needed, with the values of the candles from index from
+     * on, times the rate. Values it holds already are kept, except the last one, its candle
+     * may have been replaced since. The line must be filled with the same from every time.
+     */
+    public void fill(LineEntity<DateValueEntity> line, IndicatorLine values, int from,
+                     double rate) {
+        List<DateValueEntity> lineData = line.getLineData();
+        if (lineData == null) {
+            lineData = new ArrayList<DateValueEntity>(Math.max(values.size() - from, 0));
+            line.setLineData(lineData);
+        }
+        int held = lineData.size();
+        if (held > 0) {
+            lineData.get(held - 1).setValue((float) (values.get(from + held - 1) * rate));
+        }
+        for (int i = from + held;
+             i < values.size();
+             i++) {
+            lineData.add(new DateValueEntity((float) (values.get(i) * rate), dates[i]));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+/**
+ * Values of one indicator output, index i belongs to candle i of the series.
+ */
+public class IndicatorLine {
+    private double[] values;
+    private int size;
+
+    IndicatorLine(int capacity) {
+        values = new double[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " size " + size);
+        }
+        return values[i];
+    }
+
+    void add(double value) {
+        if (size == values.length) {
+            double[] grown = new double[values.length * 2];
+            System.arraycopy(values, 0, grown, 0, size);
+            values = grown;
+        }
+        values[size++] = value;
+    }
+
+    void replaceLast(double value) {
+        values[size - 1] = value;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+/**
+ * Ring buffer of the last values with their running sum. The sum is summed up again from the
+ * buffer every time it wraps around, which keeps rounding errors from piling up over long
+ * series at an amortized constant cost per value. It is taken relative to a value of the
+ * window, so prices far from zero keep the precision of their changes.
+ * <p/>
+ * The last value can be replaced, the sum is then summed up again, which costs the length of
+ * the window once per replaced candle.
+ */
+class RollingWindow {
+    private final double[] ring;
+    private int next;
+    private int count;
+    private double shift;
+    private double sum;
+
+    RollingWindow(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("window length " + length);
+        }
+        ring = new double[length];
+    }
+
+    void push(double value) {
+        if (count == 0) {
+            shift = value;
+        }
+        if (count == ring.length) {
+            sum -= ring[next] - shift;
+        } else {
+            count++;
+        }
+        ring[next] = value;
+        sum += value - shift;
+        next++;
+        if (next == ring.length) {
+            next = 0;
+            resum();
+        }
+    }
+
+    void replaceLast(double value) {
+        if (count == 0) {
+            throw new IllegalStateException("no value to replace");
+        }
+        ring[(next + ring.length - 1) % ring.length] = value;
+        resum();
+    }
+
+    /**
+     * @return mean of the values in the window, of all values while it is not full yet
+     */
+    double mean() {
+        return count == 0 ? 0 : shift + sum / count;
+    }
+
+    private void resum() {
+        // the last pushed value, the ring holds count values from 0 until it is full
+        shift = ring[(next + ring.length - 1) % ring.length];
+        sum = 0;
+        for (int i = 0;
+             i < count;
+             i++) {
+            sum += ring[i] - shift;
+        }
+    }
+}
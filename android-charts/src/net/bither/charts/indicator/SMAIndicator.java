@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+/**
+ * Simple moving average of the last days closes. The first days - 1 values average the closes
+ * seen so far.
+ */
+public class SMAIndicator extends Indicator {
+    private final int days;
+    private final RollingWindow window;
+    private final IndicatorLine line = new IndicatorLine(DEFAULT_CAPACITY);
+
+    public SMAIndicator(int days) {
+        this.days = days;
+        window = new RollingWindow(days);
+    }
+
+    @Override
+    protected void onAppend(double close) {
+        window.push(close);
+        line.add(window.mean());
+    }
+
+    @Override
+    protected void onReplaceLast(double close) {
+        window.replaceLast(close);
+        line.replaceLast(window.mean());
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public IndicatorLine getLine() {
+        return line;
+    }
+}
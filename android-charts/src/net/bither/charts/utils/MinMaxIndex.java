@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.utils;
+
+import net.bither.charts.entity.DateValueEntity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Segment tree over a series of low and high values, answering the lowest low and highest high
+ * of any index range in O(log n) so the slip charts don't scan the visible sticks on every drag
+ * or zoom step. Values are appended in O(log n), the tree is rebuilt twice as large when full.
+ * <p/>
+ * The index remembers the series it was filled from. {@link #reset(Object, int)} forgets the
+ * values when it is asked about another series, or the series got shorter, and the charts then
+ * append what is not indexed yet. The last value is indexed again on every sync, the candle of
+ * the running period changes in place, other values changed in place are not noticed.
+ */
+public class MinMaxIndex {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // leaves from capacity on, node i covers nodes 2i and 2i + 1
+    private double[] mins;
+    private double[] maxs;
+    private int capacity;
+    private int size;
+    private Object source;
+
+    public MinMaxIndex() {
+        init(DEFAULT_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(double value) {
+        add(value, value);
+    }
+
+    public void add(double low, double high) {
+        if (size == capacity) {
+            grow();
+        }
+        size++;
+        set(size - 1, low, high);
+    }
+
+    /**
+     * Replaces the values at index in O(log n).
+     */
+    public void set(int index, double low, double high) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + size);
+        }
+        int node = capacity + index;
+        mins[node] = low;
+        maxs[node] = high;
+        for (node >>= 1;
+             node > 0;
+             node >>= 1) {
+            mins[node] = Math.min(mins[2 * node], mins[2 * node + 1]);
+            maxs[node] = Math.max(maxs[2 * node], maxs[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return lowest low in [from, to), Double.MAX_VALUE for an empty range
+     */
+    public double getMin(int from, int to) {
+        checkRange(from, to);
+        double min = Double.MAX_VALUE;
+        for (int l = from + capacity, r = to + capacity;
+             l < r;
+             l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                min = Math.min(min, mins[l++]);
+            }
+            if ((r & 1) == 1) {
+                min = Math.min(min, mins[--r]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return highest high in [from, to), -Double.MAX_VALUE for an empty range
+     */
+    public double getMax(int from, int to) {
+        checkRange(from, to);
+        double max = -Double.MAX_VALUE;
+        for (int l = from + capacity, r = to + capacity;
+             l < r;
+             l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                max = Math.max(max, maxs[l++]);
+            }
+            if ((r & 1) == 1) {
+                max = Math.max(max, maxs[--r]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Empties the index unless it holds at most sourceSize values of this source.
+     */
+    public void reset(Object source, int sourceSize) {
+        if (source != this.source || sourceSize < size) {
+            this.source = source;
+            init(DEFAULT_CAPACITY);
+        }
+    }
+
+    /**
+     * Indexes the values of the line data not indexed yet.
+     */
+    public void syncLine(List<DateValueEntity> lineData) {
+        reset(lineData, lineData.size());
+        if (size > 0) {
+            float last = lineData.get(size - 1).getValue();
+            set(size - 1, last, last);
+        }
+        for (int i = size;
+             i < lineData.size();
+             i++) {
+            add(lineData.get(i).getValue());
+        }
+    }
+
+    /**
+     * @return the synced index of line i, the indexes are created in the list as needed
+     */
+    public static MinMaxIndex ofLine(List<MinMaxIndex> indexes, int i,
+                                     List<DateValueEntity> lineData) {
+        while (indexes.size() <= i) {
+            indexes.add(new MinMaxIndex());
+        }
+        MinMaxIndex index = indexes.get(i);
+        index.syncLine(lineData);
+        return index;
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("range " + from + " to " + to + " size "
+                    + size);
+        }
+    }
+
+    private void init(int capacity) {
+        this.capacity = capacity;
+        size = 0;
+        mins = new double[2 * capacity];
+        maxs = new double[2 * capacity];
+        Arrays.fill(mins, Double.MAX_VALUE);
+        Arrays.fill(maxs, -Double.MAX_VALUE);
+    }
+
+    private void grow() {
+        double[] oldMins = mins;
+        double[] oldMaxs = maxs;
+        int oldCapacity = capacity;
+        int count = size;
+        init(capacity * 2);
+        System.arraycopy(oldMins, oldCapacity, mins, capacity, count);
+        System.arraycopy(oldMaxs, oldCapacity, maxs, capacity, count);
+        size = count;
+        for (int node = capacity - 1;
+             node > 0;
+             node--) {
+            mins[node] = Math.min(mins[2 * node], mins[2 * node + 1]);
+            maxs[node] = Math.max(maxs[2 * node], maxs[2 * node + 1]);
+        }
+    }
+}
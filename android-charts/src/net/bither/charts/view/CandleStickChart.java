@@ -22,8 +22,6 @@
 package net.bither.charts.view;
 
 import net.bither.charts.R;
-import net.bither.charts.entity.IMeasurable;
-import net.bither.charts.entity.OHLCEntity;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -71,47 +69,48 @@ public class CandleStickChart extends StickChart {
     protected void calcDataValueRange() {
         double maxValue = Double.MIN_VALUE;
         double minValue = Double.MAX_VALUE;
-        IMeasurable first;
+        int first;
         if (axisYPosition == AXIS_Y_POSITION_LEFT) {
-            first = this.stickData.get(0);
+            first = 0;
         } else {
-            first = this.stickData.get(this.stickData.size() - 1);
+            first = this.stickData.size() - 1;
         }
-        if (first.getHigh() == 0 && first.getLow() == 0) {
+        if (getStickHigh(first) == 0 && getStickLow(first) == 0) {
 
         } else {
-            maxValue = first.getHigh();
-            minValue = first.getLow();
+            maxValue = getStickHigh(first);
+            minValue = getStickLow(first);
         }
         for (int i = 0;
              i < this.maxSticksNum;
              i++) {
-            OHLCEntity stick;
+            int index;
             if (axisYPosition == AXIS_Y_POSITION_LEFT) {
-                stick = (OHLCEntity) this.stickData.get(i);
+                index = i;
             } else {
-                stick = (OHLCEntity) this.stickData.get(this.stickData.size()
-                        - 1 - i);
+                index = this.stickData.size() - 1 - i;
             }
 
-            if (stick.getOpen() == 0 && stick.getHigh() == 0
-                    && stick.getLow() == 0) {
-                if (stick.getClose() > 0) {
-                    if (stick.getClose() < minValue) {
-                        minValue = stick.getClose();
+            double high = getStickHigh(index);
+            double low = getStickLow(index);
+            if (getStickOpen(index) == 0 && high == 0 && low == 0) {
+                double close = getStickClose(index);
+                if (close > 0) {
+                    if (close < minValue) {
+                        minValue = close;
                     }
 
-                    if (stick.getClose() > maxValue) {
-                        maxValue = stick.getClose();
+                    if (close > maxValue) {
+                        maxValue = close;
                     }
                 }
             } else {
-                if (stick.getLow() < minValue) {
-                    minValue = stick.getLow();
+                if (low < minValue) {
+                    minValue = low;
                 }
 
-                if (stick.getHigh() > maxValue) {
-                    maxValue = stick.getHigh();
+                if (high > maxValue) {
+                    maxValue = high;
                 }
             }
         }
@@ -152,45 +151,8 @@ public class CandleStickChart extends StickChart {
             for (int i = 0;
                  i < stickData.size();
                  i++) {
-                OHLCEntity ohlc = (OHLCEntity) stickData.get(i);
-                float openY = (float) ((1f - (ohlc.getOpen() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float highY = (float) ((1f - (ohlc.getHigh() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float lowY = (float) ((1f - (ohlc.getLow() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float closeY = (float) ((1f - (ohlc.getClose() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-
-                if (ohlc.getOpen() < ohlc.getClose()) {
-                    // stick or line
-                    if (stickWidth >= 2f) {
-                        canvas.drawRect(stickX, closeY, stickX + stickWidth,
-                                openY, mPaintPositive);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintPositive);
-                } else if (ohlc.getOpen() > ohlc.getClose()) {
-                    // stick or line
-                    if (stickWidth >= 2f) {
-                        canvas.drawRect(stickX, openY, stickX + stickWidth,
-                                closeY, mPaintNegative);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintNegative);
-                } else {
-                    // line or point
-                    if (stickWidth >= 2f) {
-                        canvas.drawLine(stickX, closeY, stickX + stickWidth,
-                                openY, mPaintCross);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintCross);
-                }
+                drawCandle(canvas, i, stickX, stickWidth, mPaintPositive,
+                        mPaintNegative, mPaintCross);
 
                 // next x
                 stickX = stickX + stickSpacing + stickWidth;
@@ -200,45 +162,8 @@ public class CandleStickChart extends StickChart {
             for (int i = stickData.size() - 1;
                  i >= 0;
                  i--) {
-                OHLCEntity ohlc = (OHLCEntity) stickData.get(i);
-                float openY = (float) ((1f - (ohlc.getOpen() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float highY = (float) ((1f - (ohlc.getHigh() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float lowY = (float) ((1f - (ohlc.getLow() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float closeY = (float) ((1f - (ohlc.getClose() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-
-                if (ohlc.getOpen() < ohlc.getClose()) {
-                    // stick or line
-                    if (stickWidth >= 2f) {
-                        canvas.drawRect(stickX, closeY, stickX + stickWidth,
-                                openY, mPaintPositive);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintPositive);
-                } else if (ohlc.getOpen() > ohlc.getClose()) {
-                    // stick or line
-                    if (stickWidth >= 2f) {
-                        canvas.drawRect(stickX, openY, stickX + stickWidth,
-                                closeY, mPaintNegative);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintNegative);
-                } else {
-                    // line or point
-                    if (stickWidth >= 2f) {
-                        canvas.drawLine(stickX, closeY, stickX + stickWidth,
-                                openY, mPaintCross);
-                    }
-                    canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
-                            + stickWidth / 2f, lowY, mPaintCross);
-                }
+                drawCandle(canvas, i, stickX, stickWidth, mPaintPositive,
+                        mPaintNegative, mPaintCross);
 
                 // next x
                 stickX = stickX - stickSpacing - stickWidth;
@@ -246,6 +171,43 @@ public class CandleStickChart extends StickChart {
         }
     }
 
+    private void drawCandle(Canvas canvas, int index, float stickX,
+                            float stickWidth, Paint mPaintPositive,
+                            Paint mPaintNegative, Paint mPaintCross) {
+        double open = getStickOpen(index);
+        double close = getStickClose(index);
+        float openY = valueToY(open);
+        float highY = valueToY(getStickHigh(index));
+        float lowY = valueToY(getStickLow(index));
+        float closeY = valueToY(close);
+
+        if (open < close) {
+            // stick or line
+            if (stickWidth >= 2f) {
+                canvas.drawRect(stickX, closeY, stickX + stickWidth, openY,
+                        mPaintPositive);
+            }
+            canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
+                    + stickWidth / 2f, lowY, mPaintPositive);
+        } else if (open > close) {
+            // stick or line
+            if (stickWidth >= 2f) {
+                canvas.drawRect(stickX, openY, stickX + stickWidth, closeY,
+                        mPaintNegative);
+            }
+            canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
+                    + stickWidth / 2f, lowY, mPaintNegative);
+        } else {
+            // line or point
+            if (stickWidth >= 2f) {
+                canvas.drawLine(stickX, closeY, stickX + stickWidth, openY,
+                        mPaintCross);
+            }
+            canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
+                    + stickWidth / 2f, lowY, mPaintCross);
+        }
+    }
+
     public int getPositiveStickBorderColor() {
         return positiveStickBorderColor;
     }
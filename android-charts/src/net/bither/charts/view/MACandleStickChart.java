@@ -25,9 +25,9 @@ import static net.bither.charts.utils.Utils.formatDoubleToString;
 
 import java.util.List;
 
-import net.bither.charts.entity.BitherOHLCEntity;
 import net.bither.charts.entity.DateValueEntity;
 import net.bither.charts.entity.LineEntity;
+import net.bither.charts.entity.OHLCChartData;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -181,9 +181,7 @@ public class MACandleStickChart extends CandleStickChart {
         if (index > stickData.size() - 1) {
             index = stickData.size() - 1;
         }
-        BitherOHLCEntity bitherOHLCEntity = (BitherOHLCEntity) stickData
-                .get(index);
-        double close = bitherOHLCEntity.getClose();
+        double close = getStickClose(index);
         int moveToY = (int) (((close - minValue) / (maxValue - minValue)) * getDataQuadrantPaddingHeight());
         String tenLine = "";
         String thirtyLine = "";
@@ -201,13 +199,14 @@ public class MACandleStickChart extends CandleStickChart {
 
         if (getTouchEventResponse() != null) {
 
-            Object[] objs = new Object[]{bitherOHLCEntity.getDate(),
-                    formatDoubleToString(bitherOHLCEntity.getOpen()),
-                    formatDoubleToString(bitherOHLCEntity.getHigh()),
-                    formatDoubleToString(bitherOHLCEntity.getLow()),
-                    formatDoubleToString(bitherOHLCEntity.getClose()), tenLine,
+            double volume = OHLCChartData.getVolume(stickData, index);
+            Object[] objs = new Object[]{getStickDate(index),
+                    formatDoubleToString(getStickOpen(index)),
+                    formatDoubleToString(getStickHigh(index)),
+                    formatDoubleToString(getStickLow(index)),
+                    formatDoubleToString(close), tenLine,
                     thirtyLine,
-                    formatDoubleToString(bitherOHLCEntity.getVolume())};
+                    formatDoubleToString(volume)};
             getTouchEventResponse().notifyTouchContentChange(objs);
             getTouchEventResponse().notifyTouchPointMove((int) clickPostX,
                     moveToY);
@@ -21,10 +21,12 @@
 
 package net.bither.charts.view;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import net.bither.charts.entity.DateValueEntity;
 import net.bither.charts.entity.LineEntity;
+import net.bither.charts.utils.MinMaxIndex;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -36,6 +38,8 @@ public class MASlipStickChart extends SlipStickChart {
 
     private List<LineEntity<DateValueEntity>> linesData;
 
+    private final List<MinMaxIndex> lineRanges = new ArrayList<MinMaxIndex>();
+
     public MASlipStickChart(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
     }
@@ -59,19 +63,11 @@ public class MASlipStickChart extends SlipStickChart {
              i++) {
             LineEntity<DateValueEntity> line = this.linesData.get(i);
             if (line != null && line.getLineData().size() > 0) {
-                for (int j = displayFrom;
-                     j < displayFrom + displayNumber;
-                     j++) {
-                    DateValueEntity lineData = line.getLineData().get(j);
-                    if (lineData.getValue() < minValue) {
-                        minValue = lineData.getValue();
-                    }
-
-                    if (lineData.getValue() > maxValue) {
-                        maxValue = lineData.getValue();
-                    }
-
-                }
+                MinMaxIndex range = MinMaxIndex.ofLine(lineRanges, i, line.getLineData());
+                minValue = Math.min(minValue,
+                        range.getMin(displayFrom, displayFrom + displayNumber));
+                maxValue = Math.max(maxValue,
+                        range.getMax(displayFrom, displayFrom + displayNumber));
             }
         }
         this.maxValue = maxValue;
@@ -21,8 +21,6 @@
 
 package net.bither.charts.view;
 
-import net.bither.charts.entity.OHLCEntity;
-
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -88,21 +86,14 @@ public class SlipCandleStickChart extends SlipStickChart {
         for (int i = displayFrom;
              i < displayFrom + displayNumber;
              i++) {
-            OHLCEntity ohlc = (OHLCEntity) stickData.get(i);
-            float openY = (float) ((1f - (ohlc.getOpen() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-            float highY = (float) ((1f - (ohlc.getHigh() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-            float lowY = (float) ((1f - (ohlc.getLow() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-            float closeY = (float) ((1f - (ohlc.getClose() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-
-            if (ohlc.getOpen() < ohlc.getClose()) {
+            double open = getStickOpen(i);
+            double close = getStickClose(i);
+            float openY = valueToY(open);
+            float highY = valueToY(getStickHigh(i));
+            float lowY = valueToY(getStickLow(i));
+            float closeY = valueToY(close);
+
+            if (open < close) {
                 // stick or line
                 if (stickWidth >= 2f) {
                     canvas.drawRect(stickX, closeY, stickX + stickWidth, openY,
@@ -110,7 +101,7 @@ public class SlipCandleStickChart extends SlipStickChart {
                 }
                 canvas.drawLine(stickX + stickWidth / 2f, highY, stickX
                         + stickWidth / 2f, lowY, mPaintPositive);
-            } else if (ohlc.getOpen() > ohlc.getClose()) {
+            } else if (open > close) {
                 // stick or line
                 if (stickWidth >= 2f) {
                     canvas.drawRect(stickX, openY, stickX + stickWidth, closeY,
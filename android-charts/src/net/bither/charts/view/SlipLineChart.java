@@ -26,6 +26,7 @@ import java.util.List;
 
 import net.bither.charts.entity.DateValueEntity;
 import net.bither.charts.entity.LineEntity;
+import net.bither.charts.utils.MinMaxIndex;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -52,6 +53,8 @@ public class SlipLineChart extends GridChart {
     protected int zoomBaseLine = DEFAULT_ZOOM_BASE_LINE;
     protected List<LineEntity<DateValueEntity>> linesData;
 
+    private final List<MinMaxIndex> lineRanges = new ArrayList<MinMaxIndex>();
+
     protected double minValue;
     protected double maxValue;
 
@@ -75,19 +78,11 @@ public class SlipLineChart extends GridChart {
              i++) {
             LineEntity<DateValueEntity> line = this.linesData.get(i);
             if (line != null && line.getLineData().size() > 0) {
-                for (int j = displayFrom;
-                     j < displayFrom + displayNumber;
-                     j++) {
-                    DateValueEntity lineData = line.getLineData().get(j);
-                    if (lineData.getValue() < minValue) {
-                        minValue = lineData.getValue();
-                    }
-
-                    if (lineData.getValue() > maxValue) {
-                        maxValue = lineData.getValue();
-                    }
-
-                }
+                MinMaxIndex range = MinMaxIndex.ofLine(lineRanges, i, line.getLineData());
+                minValue = Math.min(minValue,
+                        range.getMin(displayFrom, displayFrom + displayNumber));
+                maxValue = Math.max(maxValue,
+                        range.getMax(displayFrom, displayFrom + displayNumber));
             }
         }
 
@@ -22,6 +22,7 @@
 package net.bither.charts.view;
 
 import net.bither.charts.entity.IMeasurable;
+import net.bither.charts.utils.MinMaxIndex;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -102,17 +103,10 @@ public class SlipMinusStickChart extends SlipStickChart {
 		}
 
 		// 判断显示为方柱或显示为线条
-		for (int i = 0; i < this.stickData.size(); i++) {
-			IMeasurable stick = this.stickData.get(i);
-			if (stick.getLow() < minValue) {
-				minValue = stick.getLow();
-			}
-
-			if (stick.getHigh() > maxValue) {
-				maxValue = stick.getHigh();
-			}
-
-		}
+		// the range of all sticks as before, not only of the displayed ones
+		MinMaxIndex range = getStickRange();
+		minValue = Math.min(minValue, range.getMin(0, stickData.size()));
+		maxValue = Math.max(maxValue, range.getMax(0, stickData.size()));
 
 		this.maxValue = maxValue;
 		this.minValue = minValue;
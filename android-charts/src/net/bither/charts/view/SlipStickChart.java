@@ -25,9 +25,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.bither.charts.entity.IChartData;
-import net.bither.charts.entity.IMeasurable;
 import net.bither.charts.entity.IStickEntity;
+import net.bither.charts.entity.OHLCChartData;
 import net.bither.charts.entity.StickEntity;
+import net.bither.charts.utils.MinMaxIndex;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -68,6 +69,8 @@ public class SlipStickChart extends GridChart {
 
     protected IChartData<IStickEntity> stickData;
 
+    private final MinMaxIndex stickRange = new MinMaxIndex();
+
     protected double maxValue;
 
     protected double minValue;
@@ -89,31 +92,64 @@ public class SlipStickChart extends GridChart {
         double maxValue = Double.MIN_VALUE;
         double minValue = Double.MAX_VALUE;
 
-        IMeasurable first = this.stickData.get(0);
-        if (first.getHigh() == 0 && first.getLow() == 0) {
+        if (getStickHigh(0) == 0 && getStickLow(0) == 0) {
 
         } else {
-            maxValue = first.getHigh();
-            minValue = first.getLow();
+            maxValue = getStickHigh(0);
+            minValue = getStickLow(0);
         }
 
-        for (int i = this.displayFrom;
-             i < this.displayFrom
-                     + this.displayNumber;
-             i++) {
-            IMeasurable stick = this.stickData.get(i);
-            if (stick.getLow() < minValue) {
-                minValue = stick.getLow();
-            }
+        MinMaxIndex range = getStickRange();
+        minValue = Math.min(minValue, range.getMin(displayFrom, displayFrom + displayNumber));
+        maxValue = Math.max(maxValue, range.getMax(displayFrom, displayFrom + displayNumber));
 
-            if (stick.getHigh() > maxValue) {
-                maxValue = stick.getHigh();
-            }
+        this.maxValue = maxValue;
+        this.minValue = minValue;
+    }
 
+    /**
+     * @return the range index with all the sticks added so far, the last one read again
+     */
+    protected MinMaxIndex getStickRange() {
+        stickRange.reset(stickData, stickData.size());
+        int last = stickRange.size() - 1;
+        if (last >= 0) {
+            stickRange.set(last, getStickLow(last), getStickHigh(last));
+        }
+        for (int i = stickRange.size();
+             i < stickData.size();
+             i++) {
+            stickRange.add(getStickLow(i), getStickHigh(i));
         }
+        return stickRange;
+    }
 
-        this.maxValue = maxValue;
-        this.minValue = minValue;
+    protected long getStickDate(int index) {
+        return OHLCChartData.getDate(stickData, index);
+    }
+
+    protected double getStickHigh(int index) {
+        return OHLCChartData.getHigh(stickData, index);
+    }
+
+    protected double getStickLow(int index) {
+        return OHLCChartData.getLow(stickData, index);
+    }
+
+    protected double getStickOpen(int index) {
+        return OHLCChartData.getOpen(stickData, index);
+    }
+
+    protected double getStickClose(int index) {
+        return OHLCChartData.getClose(stickData, index);
+    }
+
+    /**
+     * Maps a value to its y in the data quadrant.
+     */
+    protected float valueToY(double value) {
+        return OHLCChartData.valueToY(value, minValue, maxValue,
+                getDataQuadrantPaddingHeight(), getDataQuadrantPaddingStartY());
     }
 
     protected void calcValueRangePaddingZero() {
@@ -230,7 +266,7 @@ public class SlipStickChart extends GridChart {
 
         index = index + displayFrom;
 
-        return String.valueOf(stickData.get(index).getDate());
+        return String.valueOf(getStickDate(index));
     }
 
     @Override
@@ -262,11 +298,11 @@ public class SlipStickChart extends GridChart {
                     index = displayNumber - 1;
                 }
                 index = index + displayFrom;
-                titleX.add(String.valueOf(stickData.get(index).getDate())
+                titleX.add(String.valueOf(getStickDate(index))
                         .substring(4));
             }
             titleX.add(String.valueOf(
-                    stickData.get(displayFrom + displayNumber - 1).getDate())
+                    getStickDate(displayFrom + displayNumber - 1))
                     .substring(4));
         }
         super.setLongitudeTitles(titleX);
@@ -338,13 +374,8 @@ public class SlipStickChart extends GridChart {
         for (int i = displayFrom;
              i < displayFrom + displayNumber;
              i++) {
-            IMeasurable stick = stickData.get(i);
-            float highY = (float) ((1f - (stick.getHigh() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-            float lowY = (float) ((1f - (stick.getLow() - minValue)
-                    / (maxValue - minValue))
-                    * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
+            float highY = valueToY(getStickHigh(i));
+            float lowY = valueToY(getStickLow(i));
 
             // stick or line?
             if (stickWidth >= 2f) {
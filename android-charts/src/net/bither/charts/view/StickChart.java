@@ -25,8 +25,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.bither.charts.entity.IChartData;
-import net.bither.charts.entity.IMeasurable;
 import net.bither.charts.entity.IStickEntity;
+import net.bither.charts.entity.OHLCChartData;
 import net.bither.charts.entity.StickEntity;
 
 import android.content.Context;
@@ -76,34 +76,36 @@ public class StickChart extends GridChart {
     protected void calcDataValueRange() {
         double maxValue = Double.MIN_VALUE;
         double minValue = Double.MAX_VALUE;
-        IMeasurable first;
+        int first;
         if (axisYPosition == AXIS_Y_POSITION_LEFT) {
-            first = this.stickData.get(0);
+            first = 0;
         } else {
-            first = this.stickData.get(stickData.size() - 1);
+            first = stickData.size() - 1;
         }
-        if (first.getHigh() == 0 && first.getLow() == 0) {
+        if (getStickHigh(first) == 0 && getStickLow(first) == 0) {
 
         } else {
-            maxValue = first.getHigh();
-            minValue = first.getLow();
+            maxValue = getStickHigh(first);
+            minValue = getStickLow(first);
         }
 
         for (int i = 0;
              i < this.maxSticksNum;
              i++) {
-            IMeasurable stick;
+            int index;
             if (axisYPosition == AXIS_Y_POSITION_LEFT) {
-                stick = this.stickData.get(i);
+                index = i;
             } else {
-                stick = this.stickData.get(stickData.size() - 1 - i);
+                index = stickData.size() - 1 - i;
             }
-            if (stick.getLow() < minValue) {
-                minValue = stick.getLow();
+            double low = getStickLow(index);
+            if (low < minValue) {
+                minValue = low;
             }
 
-            if (stick.getHigh() > maxValue) {
-                maxValue = stick.getHigh();
+            double high = getStickHigh(index);
+            if (high > maxValue) {
+                maxValue = high;
             }
 
         }
@@ -112,6 +114,34 @@ public class StickChart extends GridChart {
         this.minValue = minValue;
     }
 
+    protected long getStickDate(int index) {
+        return OHLCChartData.getDate(stickData, index);
+    }
+
+    protected double getStickHigh(int index) {
+        return OHLCChartData.getHigh(stickData, index);
+    }
+
+    protected double getStickLow(int index) {
+        return OHLCChartData.getLow(stickData, index);
+    }
+
+    protected double getStickOpen(int index) {
+        return OHLCChartData.getOpen(stickData, index);
+    }
+
+    protected double getStickClose(int index) {
+        return OHLCChartData.getClose(stickData, index);
+    }
+
+    /**
+     * Maps a value to its y in the data quadrant.
+     */
+    protected float valueToY(double value) {
+        return OHLCChartData.valueToY(value, minValue, maxValue,
+                getDataQuadrantPaddingHeight(), getDataQuadrantPaddingStartY());
+    }
+
     protected void calcValueRangePaddingZero() {
         double maxValue = this.maxValue;
         double minValue = this.minValue;
@@ -217,7 +247,7 @@ public class StickChart extends GridChart {
             index = 0;
         }
 
-        return String.valueOf(stickData.get(index).getDate());
+        return String.valueOf(getStickDate(index));
     }
 
     @Override
@@ -250,10 +280,9 @@ public class StickChart extends GridChart {
                 if (index > maxSticksNum - 1) {
                     index = maxSticksNum - 1;
                 }
-                titleX.add(String.valueOf(stickData.get(index).getTitle()));
+                titleX.add(String.valueOf(OHLCChartData.getTitle(stickData, index)));
             }
-            titleX.add(String.valueOf(stickData.get(maxSticksNum - 1)
-                    .getTitle()));
+            titleX.add(String.valueOf(OHLCChartData.getTitle(stickData, maxSticksNum - 1)));
         }
         super.setLongitudeTitles(titleX);
     }
@@ -327,14 +356,8 @@ public class StickChart extends GridChart {
             for (int i = 0;
                  i < stickData.size();
                  i++) {
-                IMeasurable stick = stickData.get(i);
-
-                float highY = (float) ((1f - (stick.getHigh() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float lowY = (float) ((1f - (stick.getLow() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
+                float highY = valueToY(getStickHigh(i));
+                float lowY = valueToY(getStickLow(i));
 
                 if (stickWidth >= 2f) {
                     canvas.drawRect(stickX, highY, stickX + stickWidth, lowY,
@@ -351,14 +374,8 @@ public class StickChart extends GridChart {
             for (int i = stickData.size() - 1;
                  i >= 0;
                  i--) {
-                IMeasurable stick = stickData.get(i);
-
-                float highY = (float) ((1f - (stick.getHigh() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
-                float lowY = (float) ((1f - (stick.getLow() - minValue)
-                        / (maxValue - minValue))
-                        * (getDataQuadrantPaddingHeight()) + getDataQuadrantPaddingStartY());
+                float highY = valueToY(getStickHigh(i));
+                float lowY = valueToY(getStickLow(i));
 
                 if (stickWidth >= 2f) {
                     canvas.drawRect(stickX, highY, stickX + stickWidth, lowY,
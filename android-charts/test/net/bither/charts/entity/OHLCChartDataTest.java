@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.entity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class OHLCChartDataTest {
+
+    @Test
+    public void growsPastTheCapacity() {
+        OHLCChartData data = new OHLCChartData(2);
+        for (int i = 0;
+             i < 100;
+             i++) {
+            data.add(i, i + 1, i + 3, i, i + 2, i * 10, "t" + i);
+        }
+        assertEquals(100, data.size());
+        for (int i = 0;
+             i < 100;
+             i++) {
+            assertEquals(i, data.getDate(i));
+            assertEquals(i + 1, data.getOpen(i), 0);
+            assertEquals(i + 3, data.getHigh(i), 0);
+            assertEquals(i, data.getLow(i), 0);
+            assertEquals(i + 2, data.getClose(i), 0);
+            assertEquals(i * 10, data.getVolume(i), 0);
+            assertEquals("t" + i, data.getTitle(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readsOnlyAddedCandles() {
+        OHLCChartData data = new OHLCChartData(16);
+        data.add(0, 1, 1, 1, 1, 1, null);
+        data.getClose(1);
+    }
+
+    @Test
+    public void formatsTitlesOnceWhenAsked() {
+        final List<Long> formatted = new ArrayList<Long>();
+        OHLCChartData data = new OHLCChartData(4, new OHLCChartData.TitleFormatter() {
+            @Override
+            public String format(long date) {
+                formatted.add(date);
+                return "d" + date;
+            }
+        });
+        data.add(10, 1, 1, 1, 1, 1, null);
+        data.add(20, 1, 1, 1, 1, 1, "given");
+        data.add(30, 1, 1, 1, 1, 1, null);
+        assertEquals(0, formatted.size());
+
+        String title = data.getTitle(2);
+        assertEquals("d30", title);
+        assertSame(title, data.getTitle(2));
+        assertEquals("given", data.getTitle(1));
+        assertEquals(1, formatted.size());
+        assertEquals("d10", data.get(0).getTitle());
+        assertEquals(2, formatted.size());
+    }
+
+    @Test
+    public void titleWithoutFormatterIsNull() {
+        OHLCChartData data = new OHLCChartData();
+        data.add(10, 1, 1, 1, 1, 1, null);
+        assertNull(data.getTitle(0));
+    }
+
+    @Test
+    public void helpersReadEntitiesAndArraysAlike() {
+        List<IStickEntity> entities = new ArrayList<IStickEntity>();
+        for (int i = 0;
+             i < 5;
+             i++) {
+            entities.add(new BitherOHLCEntity(i + 1, i + 3, i, i + 2, i * 10, "t" + i, i));
+        }
+        IChartData<IStickEntity> list = new ListChartData<IStickEntity>(entities);
+        IChartData<IStickEntity> arrays = new OHLCChartData(entities);
+        for (int i = 0;
+             i < 5;
+             i++) {
+            assertEquals(OHLCChartData.getDate(list, i), OHLCChartData.getDate(arrays, i));
+            assertEquals(OHLCChartData.getOpen(list, i), OHLCChartData.getOpen(arrays, i), 0);
+            assertEquals(OHLCChartData.getHigh(list, i), OHLCChartData.getHigh(arrays, i), 0);
+            assertEquals(OHLCChartData.getLow(list, i), OHLCChartData.getLow(arrays, i), 0);
+            assertEquals(OHLCChartData.getClose(list, i), OHLCChartData.getClose(arrays, i), 0);
+            assertEquals(OHLCChartData.getVolume(list, i), OHLCChartData.getVolume(arrays, i),
+                    0);
+            assertEquals(OHLCChartData.getTitle(list, i), OHLCChartData.getTitle(arrays, i));
+        }
+        assertEquals(6, OHLCChartData.getClose(arrays, 4), 0);
+    }
+
+    @Test
+    public void valueToYPutsTheMaxOnTop() {
+        assertEquals(20, OHLCChartData.valueToY(200, 100, 200, 600, 20), 0);
+        assertEquals(620, OHLCChartData.valueToY(100, 100, 200, 600, 20), 0);
+        assertEquals(320, OHLCChartData.valueToY(150, 100, 200, 600, 20), 0);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.charts.entity.LineEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds the indicators candles the way the series store does, the running candle replaced a
+ * few times before the next one starts, and compares every value with a naive recomputation
+ * over the final closes.
+ */
+public class IndicatorTest {
+    private static final int CANDLE_COUNT = 3000;
+    private static final double DELTA = 1e-7;
+
+    private IndicatorEngine engine;
+    private SMAIndicator sma;
+    private List<Double> closes;
+
+    @Before
+    public void setUp() {
+        engine = new IndicatorEngine();
+        sma = engine.add(new SMAIndicator(30));
+        closes = new ArrayList<Double>();
+        Random random = new Random(1);
+        // prices far from zero, where naive running sums lose the precision of the changes
+        double close = 40000;
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            int updates = random.nextInt(4);
+            for (int update = 0;
+                 update <= updates;
+                 update++) {
+                close += random.nextGaussian() * 20;
+                engine.merge(i, close);
+            }
+            closes.add(close);
+        }
+    }
+
+    @Test
+    public void smaMatchesRecomputation() {
+        assertEquals(CANDLE_COUNT, sma.getLine().size());
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            assertEquals(mean(i, 30), sma.getLine().get(i), DELTA);
+        }
+    }
+
+    @Test
+    public void olderCandlesAreIgnored() {
+        engine.merge(CANDLE_COUNT - 2, 1);
+        assertEquals(CANDLE_COUNT, engine.size());
+        assertEquals(mean(CANDLE_COUNT - 1, 30), sma.getLine().get(CANDLE_COUNT - 1), DELTA);
+    }
+
+    @Test
+    public void addedIndicatorCatchesUp() {
+        SMAIndicator late = engine.add(new SMAIndicator(30));
+        assertEquals(CANDLE_COUNT, late.size());
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            assertEquals(sma.getLine().get(i), late.getLine().get(i), 0);
+        }
+    }
+
+    @Test
+    public void fillScalesTheWindowAndRewritesTheLastValue() {
+        int from = CANDLE_COUNT - 100;
+        LineEntity<DateValueEntity> line = new LineEntity<DateValueEntity>();
+        engine.fill(line, sma.getLine(), from, 0.5);
+        List<DateValueEntity> lineData = line.getLineData();
+        assertEquals(100, lineData.size());
+        for (int i = 0;
+             i < 100;
+             i++) {
+            assertEquals(from + i, lineData.get(i).getDate());
+            assertEquals((float) (sma.getLine().get(from + i) * 0.5), lineData.get(i)
+                    .getValue(), 0);
+        }
+
+        // the running candle changes, the next one starts
+        engine.merge(CANDLE_COUNT - 1, 41000);
+        engine.merge(CANDLE_COUNT, 42000);
+        engine.fill(line, sma.getLine(), from, 0.5);
+        assertEquals(101, lineData.size());
+        assertEquals((float) (sma.getLine().get(CANDLE_COUNT - 1) * 0.5), lineData.get(99)
+                .getValue(), 0);
+        assertEquals((float) (sma.getLine().get(CANDLE_COUNT) * 0.5), lineData.get(100)
+                .getValue(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nothingToReplace() {
+        new SMAIndicator(5).replaceLast(1);
+    }
+
+    private double mean(int i, int days) {
+        int from = Math.max(0, i - days + 1);
+        double sum = 0;
+        for (int j = from;
+             j <= i;
+             j++) {
+            sum += closes.get(j);
+        }
+        return sum / (i - from + 1);
+    }
+}
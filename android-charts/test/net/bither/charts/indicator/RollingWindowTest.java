@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.indicator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollingWindowTest {
+
+    @Test
+    public void emptyWindow() {
+        RollingWindow window = new RollingWindow(3);
+        assertEquals(0, window.mean(), 0);
+    }
+
+    @Test
+    public void averagesTheValuesSeenUntilFull() {
+        RollingWindow window = new RollingWindow(4);
+        window.push(2);
+        assertEquals(2, window.mean(), 0);
+        window.push(4);
+        assertEquals(3, window.mean(), 0);
+        window.push(6);
+        window.push(8);
+        assertEquals(5, window.mean(), 0);
+        window.push(10);
+        assertEquals(7, window.mean(), 0);
+    }
+
+    @Test
+    public void replacesTheLastValue() {
+        RollingWindow window = new RollingWindow(3);
+        window.push(1);
+        window.replaceLast(5);
+        assertEquals(5, window.mean(), 0);
+        window.push(7);
+        window.push(9);
+        // the ring wrapped with this push, the replaced value is the newest one
+        window.replaceLast(3);
+        assertEquals(5, window.mean(), 1e-12);
+        window.push(11);
+        assertEquals(7, window.mean(), 1e-12);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nothingToReplace() {
+        new RollingWindow(3).replaceLast(1);
+    }
+
+    @Test
+    public void keepsPrecisionFarFromZero() {
+        Random random = new Random(7);
+        int length = 20;
+        RollingWindow window = new RollingWindow(length);
+        List<Double> values = new ArrayList<Double>();
+        for (int i = 0;
+             i < 100000;
+             i++) {
+            double value = 1e6 + random.nextDouble();
+            if (i > 0 && random.nextInt(3) == 0) {
+                window.replaceLast(value);
+                values.set(values.size() - 1, value);
+            } else {
+                window.push(value);
+                values.add(value);
+            }
+        }
+        double sum = 0;
+        for (int i = values.size() - length;
+             i < values.size();
+             i++) {
+            sum += values.get(i);
+        }
+        assertEquals(sum / length, window.mean(), 1e-9);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.charts.utils;
+
+import net.bither.charts.entity.DateValueEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the ranges of the index with scanning the values.
+ */
+public class MinMaxIndexTest {
+
+    @Test
+    public void matchesScanningWhileGrowing() {
+        Random random = new Random(1);
+        MinMaxIndex index = new MinMaxIndex();
+        List<double[]> values = new ArrayList<double[]>();
+        // past several doublings of the default capacity
+        for (int i = 0;
+             i < 1000;
+             i++) {
+            double low = random.nextGaussian() * 100;
+            double high = low + random.nextDouble() * 10;
+            index.add(low, high);
+            values.add(new double[]{low, high});
+            assertEquals(values.size(), index.size());
+            for (int query = 0;
+                 query < 5;
+                 query++) {
+                int from = random.nextInt(values.size() + 1);
+                int to = from + random.nextInt(values.size() - from + 1);
+                assertRange(values, index, from, to);
+            }
+        }
+        assertRange(values, index, 0, values.size());
+    }
+
+    @Test
+    public void setReplacesValues() {
+        Random random = new Random(2);
+        MinMaxIndex index = new MinMaxIndex();
+        List<double[]> values = new ArrayList<double[]>();
+        for (int i = 0;
+             i < 200;
+             i++) {
+            values.add(new double[]{i, i + 1});
+            index.add(i, i + 1);
+        }
+        for (int i = 0;
+             i < 500;
+             i++) {
+            int at = random.nextInt(values.size());
+            double low = random.nextGaussian() * 300;
+            double high = low + random.nextDouble();
+            values.set(at, new double[]{low, high});
+            index.set(at, low, high);
+            int from = random.nextInt(values.size());
+            assertRange(values, index, from, from + random.nextInt(values.size() - from) + 1);
+        }
+    }
+
+    @Test
+    public void emptyRange() {
+        MinMaxIndex index = new MinMaxIndex();
+        assertEquals(Double.MAX_VALUE, index.getMin(0, 0), 0);
+        assertEquals(-Double.MAX_VALUE, index.getMax(0, 0), 0);
+        index.add(5);
+        assertEquals(Double.MAX_VALUE, index.getMin(1, 1), 0);
+        assertEquals(5, index.getMax(0, 1), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rangePastTheValues() {
+        MinMaxIndex index = new MinMaxIndex();
+        index.add(1);
+        index.getMin(0, 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setPastTheValues() {
+        new MinMaxIndex().set(0, 1, 1);
+    }
+
+    @Test
+    public void resetForgetsOtherAndShorterSeries() {
+        Object series = new Object();
+        MinMaxIndex index = new MinMaxIndex();
+        index.reset(series, 3);
+        index.add(1);
+        index.add(2);
+        index.reset(series, 3);
+        assertEquals(2, index.size());
+        index.reset(series, 1);
+        assertEquals(0, index.size());
+        index.add(1);
+        index.reset(new Object(), 5);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void syncLineAppendsAndRereadsTheLastValue() {
+        List<DateValueEntity> lineData = new ArrayList<DateValueEntity>();
+        for (int i = 0;
+             i < 100;
+             i++) {
+            lineData.add(new DateValueEntity(i, i));
+        }
+        List<MinMaxIndex> indexes = new ArrayList<MinMaxIndex>();
+        MinMaxIndex index = MinMaxIndex.ofLine(indexes, 1, lineData);
+        assertEquals(2, indexes.size());
+        assertEquals(100, index.size());
+        assertEquals(99, index.getMax(0, 100), 0);
+
+        // the running candle changed, the next one started
+        lineData.get(99).setValue(500);
+        lineData.add(new DateValueEntity(-3, 100));
+        assertEquals(index, MinMaxIndex.ofLine(indexes, 1, lineData));
+        assertEquals(101, index.size());
+        assertEquals(500, index.getMax(50, 101), 0);
+        assertEquals(-3, index.getMin(50, 101), 0);
+    }
+
+    private static void assertRange(List<double[]> values, MinMaxIndex index, int from, int to) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = from;
+             i < to;
+             i++) {
+            min = Math.min(min, values.get(i)[0]);
+            max = Math.max(max, values.get(i)[1]);
+        }
+        assertEquals(min, index.getMin(from, to), 0);
+        assertEquals(max, index.getMax(from, to), 0);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+import net.bither.charts.benchmark.Benchmark;
+import net.bither.db.base.AndroidDbConfig;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * The db part of the startup path on the JVM: opening a v4 tx db with the pragmas of
+ * AndroidDbConfig and reading the balances of the wallet addresses, the first thing the
+ * address list asks for. The fixture dbs are generated from a fixed seed for a small and a
+ * big wallet, so the runs of two releases read the same data.
+ * <p/>
+ * sqlite-jdbc brings its own sqlite, only compare results of this benchmark with each other.
+ */
+public class DbOpenBenchmark {
+    private static final int ADDRESS_COUNT = 20;
+    private static final int[] TX_COUNTS = new int[]{1000, 20000};
+    // the fixtures are in WAL mode
+    private static final String[] OPEN_PRAGMAS = AndroidDbConfig.getPragmas(true);
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "bither-benchmark");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not create " + dir);
+        }
+        for (int txCount : TX_COUNTS) {
+            final File file = new File(dir, "tx_" + txCount + ".db");
+            // generated again every run, a fixture of an older schema must not be measured
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                new File(file.getPath() + suffix).delete();
+            }
+            createFixture(file, txCount);
+            Benchmark.measure("open tx db, " + txCount + " txs", 20, 100, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    open(file).close();
+                }
+            });
+            Benchmark.measure("open tx db and read balances, " + txCount + " txs", 20, 100,
+                    new Benchmark.Task() {
+                        @Override
+                        public void run() throws Exception {
+                            Connection connection = open(file);
+                            readBalances(connection);
+                            connection.close();
+                        }
+                    });
+        }
+    }
+
+    private static Connection open(File file) throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        for (String pragma : OPEN_PRAGMAS) {
+            statement.execute("PRAGMA " + pragma);
+        }
+        // sqlite reads the schema lazily, the first statement is part of the open
+        statement.executeQuery("select count(0) from sqlite_master").close();
+        statement.close();
+        return connection;
+    }
+
+    private static long readBalances(Connection connection) throws Exception {
+        PreparedStatement statement = connection.prepareStatement("select ifnull(sum" +
+                "(out_value),0) from outs where out_address=? and out_status=?");
+        long total = 0;
+        for (int i = 0;
+             i < ADDRESS_COUNT;
+             i++) {
+            statement.setString(1, address(i));
+            statement.setInt(2, 0);
+            ResultSet rs = statement.executeQuery();
+            rs.next();
+            total += rs.getLong(1);
+            rs.close();
+        }
+        statement.close();
+        return total;
+    }
+
+    private static void createFixture(File file, int txCount) throws Exception {
+        Random random = new Random(txCount);
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        // as DbMaintenance leaves the dbs after its first run
+        statement.execute("PRAGMA auto_vacuum=INCREMENTAL");
+        statement.execute("PRAGMA journal_mode=WAL");
+        statement.execute(AbstractDb.CREATE_TXS_SQL);
+        statement.execute(AbstractDb.CREATE_TX_BLOCK_NO_INDEX);
+        statement.execute(AbstractDb.CREATE_ADDRESSTXS_SQL);
+        statement.execute(AbstractDb.CREATE_INS_SQL);
+        statement.execute(AbstractDb.CREATE_OUTS_SQL);
+        for (String sql : TxDatabaseHelper.V4_INDEXES) {
+            statement.execute(sql);
+        }
+        statement.close();
+        connection.setAutoCommit(false);
+        PreparedStatement tx = connection.prepareStatement("insert into txs (tx_hash, tx_ver, " +
+                "tx_locktime, tx_time, block_no, source) values (?, 1, 0, ?, ?, 0)");
+        PreparedStatement addressTx = connection.prepareStatement("insert or ignore into " +
+                "addresses_txs (address, tx_hash) values (?, ?)");
+        PreparedStatement in = connection.prepareStatement("insert into ins (tx_hash, in_sn, " +
+                "prev_tx_hash, prev_out_sn, in_signature, in_sequence) values (?, 0, ?, ?, ?, " +
+                "-1)");
+        PreparedStatement out = connection.prepareStatement("insert into outs (tx_hash, out_sn, " +
+                "out_script, out_value, out_status, out_address) values (?, ?, ?, ?, ?, ?)");
+        String previous = hash(random);
+        for (int i = 0;
+             i < txCount;
+             i++) {
+            String hash = hash(random);
+            tx.setString(1, hash);
+            tx.setLong(2, 1400000000L + i * 600L);
+            tx.setInt(3, 300000 + i);
+            tx.executeUpdate();
+            in.setString(1, hash);
+            in.setString(2, previous);
+            in.setInt(3, random.nextInt(2));
+            in.setString(4, hash(random) + hash(random));
+            in.executeUpdate();
+            for (int sn = 0;
+                 sn < 2;
+                 sn++) {
+                String address = address(random.nextInt(ADDRESS_COUNT));
+                out.setString(1, hash);
+                out.setInt(2, sn);
+                out.setString(3, hash(random));
+                out.setLong(4, random.nextInt(100000000));
+                out.setInt(5, random.nextInt(4) == 0 ? 0 : 1);
+                out.setString(6, address);
+                out.executeUpdate();
+                addressTx.setString(1, address);
+                addressTx.setString(2, hash);
+                addressTx.executeUpdate();
+            }
+            previous = hash;
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    private static String address(int i) {
+        return String.format("1Bither%027d", i);
+    }
+
+    private static String hash(Random random) {
+        StringBuilder builder = new StringBuilder(64);
+        for (int i = 0;
+             i < 4;
+             i++) {
+            builder.append(String.format("%016x", random.nextLong()));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+import net.bither.charts.benchmark.Benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk insert throughput of EnterpriseHDMProvider.addEnterpriseHDMAddress on the JVM: one
+ * compiled statement reused for every address against the ContentValues path it replaced,
+ * which formatted the pub_key_%d column names into a map per address and had
+ * SQLiteDatabase.insert build and compile the insert sql from that map for every row. Both
+ * insert the addresses of a 3 of 5 enterprise HDM in one transaction, which every run rolls
+ * back, and both bind the same Base58 strings.
+ * <p/>
+ * sqlite-jdbc brings its own sqlite, only compare results of this benchmark with each other.
+ */
+public class EnterpriseHDMInsertBenchmark {
+    private static final int ADDRESS_COUNT = 1000;
+    private static final int PUB_COUNT = 5;
+    private static final int MAX_PUB_COUNT = 10;
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "bither-benchmark");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not create " + dir);
+        }
+        final String[] addresses = new String[ADDRESS_COUNT];
+        final String[][] pubs = new String[ADDRESS_COUNT][PUB_COUNT];
+        for (int i = 0;
+             i < ADDRESS_COUNT;
+             i++) {
+            addresses[i] = String.format("3Bither%027d", i);
+            for (int pub = 0;
+                 pub < PUB_COUNT;
+                 pub++) {
+                pubs[i][pub] = String.format("%044d", i * MAX_PUB_COUNT + pub);
+            }
+        }
+
+        final Connection reuse = open(new File(dir, "enterprise_hdm_reuse.db"));
+        final PreparedStatement statement = reuse.prepareStatement(insertSql());
+        long median = Benchmark.measure("reused statement, " + ADDRESS_COUNT + " addresses",
+                20, 100, new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        reuse.setAutoCommit(false);
+                        for (int i = 0;
+                             i < ADDRESS_COUNT;
+                             i++) {
+                            statement.clearParameters();
+                            statement.setInt(1, i);
+                            statement.setString(2, addresses[i]);
+                            statement.setInt(3, 0);
+                            for (int pub = 0;
+                                 pub < PUB_COUNT;
+                                 pub++) {
+                                statement.setString(4 + pub, pubs[i][pub]);
+                            }
+                            statement.executeUpdate();
+                        }
+                        reuse.rollback();
+                    }
+                });
+        printRate(median);
+        statement.close();
+        reuse.close();
+
+        final Connection contentValues = open(new File(dir, "enterprise_hdm_values.db"));
+        median = Benchmark.measure("ContentValues, " + ADDRESS_COUNT + " addresses", 20, 100,
+                new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        contentValues.setAutoCommit(false);
+                        for (int i = 0;
+                             i < ADDRESS_COUNT;
+                             i++) {
+                            Map<String, Object> values = new HashMap<String, Object>();
+                            values.put(AbstractDb.EnterpriseHDMAddressColumns.HDM_INDEX, i);
+                            values.put(AbstractDb.EnterpriseHDMAddressColumns.ADDRESS,
+                                    addresses[i]);
+                            values.put(AbstractDb.EnterpriseHDMAddressColumns.IS_SYNCED, 0);
+                            for (int pub = 0;
+                                 pub < PUB_COUNT;
+                                 pub++) {
+                                values.put(String.format(Locale.US, "pub_key_%d", pub),
+                                        pubs[i][pub]);
+                            }
+                            insert(contentValues, values);
+                        }
+                        contentValues.rollback();
+                    }
+                });
+        printRate(median);
+        contentValues.close();
+    }
+
+    /**
+     * What SQLiteDatabase.insert does with a ContentValues.
+     */
+    private static void insert(Connection connection, Map<String, Object> values) throws
+            Exception {
+        StringBuilder sql = new StringBuilder("INSERT INTO ");
+        sql.append(AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS).append('(');
+        Object[] bindArgs = new Object[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            sql.append(i > 0 ? "," : "").append(entry.getKey());
+            bindArgs[i++] = entry.getValue();
+        }
+        sql.append(") VALUES (");
+        for (i = 0;
+             i < bindArgs.length;
+             i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(')');
+        PreparedStatement statement = connection.prepareStatement(sql.toString());
+        for (i = 0;
+             i < bindArgs.length;
+             i++) {
+            statement.setObject(i + 1, bindArgs[i]);
+        }
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    /**
+     * The columns of EnterpriseHDMProvider's cached insert, the unused pub keys stay null.
+     */
+    private static String insertSql() {
+        StringBuilder sql = new StringBuilder("insert into ");
+        sql.append(AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS).append("(").append(AbstractDb
+                .EnterpriseHDMAddressColumns.HDM_INDEX).append(",").append(AbstractDb
+                .EnterpriseHDMAddressColumns.ADDRESS).append(",").append(AbstractDb
+                .EnterpriseHDMAddressColumns.IS_SYNCED);
+        for (int pub = 0;
+             pub < MAX_PUB_COUNT;
+             pub++) {
+            sql.append(",pub_key_").append(pub);
+        }
+        sql.append(") values (?,?,?");
+        for (int pub = 0;
+             pub < MAX_PUB_COUNT;
+             pub++) {
+            sql.append(",?");
+        }
+        return sql.append(")").toString();
+    }
+
+    private static Connection open(File file) throws Exception {
+        // generated again every run, a db of an older schema must not be measured
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        statement.execute("PRAGMA synchronous=NORMAL");
+        statement.execute(AbstractDb.CREATE_ENTERPRISE_HDM_ADDRESSES_SQL);
+        statement.close();
+        return connection;
+    }
+
+    private static void printRate(long median) {
+        System.out.println(String.format("%-40s %,.0f rows/s", "", ADDRESS_COUNT * 1e9 /
+                median));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+import net.bither.charts.benchmark.Benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Rows per second of the TxProvider insert path on the JVM: a batch of txs, each with one in
+ * and two outs, inserted in one transaction through statements compiled once and reused, as
+ * AndroidStatementCache does, against compiling the insert for every row, as
+ * SQLiteDatabase.insert with ContentValues does. Every run is rolled back, so all runs insert
+ * into the same empty tables.
+ * <p/>
+ * sqlite-jdbc brings its own sqlite, only compare results of this benchmark with each other.
+ */
+public class TxInsertBenchmark {
+    private static final int TX_COUNT = 1000;
+    private static final int ROWS_PER_TX = 4;
+    private static final String INSERT_TX_SQL = "insert into txs(block_no,tx_hash,source," +
+            "tx_time,tx_ver,tx_locktime) values (?,?,?,?,?,?)";
+    private static final String INSERT_IN_SQL = "insert into ins(tx_hash,in_sn,prev_tx_hash," +
+            "prev_out_sn,in_signature,in_sequence) values (?,?,?,?,?,?)";
+    private static final String INSERT_OUT_SQL = "insert into outs(tx_hash,out_sn,out_script," +
+            "out_value,out_status,out_address,hd_account_id) values (?,?,?,?,?,?,?)";
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "bither-benchmark");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not create " + dir);
+        }
+        for (final boolean reuse : new boolean[]{true, false}) {
+            final Connection connection = open(new File(dir, "tx_insert_" + reuse + ".db"));
+            final Inserter inserter = new Inserter(connection, reuse);
+            long median = Benchmark.measure((reuse ? "reused statements, " : "compiled per " +
+                    "row, ") + TX_COUNT + " txs", 20, 100, new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    connection.setAutoCommit(false);
+                    for (int i = 0;
+                         i < TX_COUNT;
+                         i++) {
+                        inserter.insertTx(i);
+                    }
+                    connection.rollback();
+                }
+            });
+            System.out.println(String.format("%-40s %,.0f rows/s", "", TX_COUNT * ROWS_PER_TX *
+                    1e9 / median));
+            inserter.close();
+            connection.close();
+        }
+    }
+
+    private static Connection open(File file) throws Exception {
+        // generated again every run, a db of an older schema must not be measured
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        statement.execute("PRAGMA synchronous=NORMAL");
+        statement.execute(AbstractDb.CREATE_TXS_SQL);
+        statement.execute(AbstractDb.CREATE_TX_BLOCK_NO_INDEX);
+        statement.execute(AbstractDb.CREATE_ADDRESSTXS_SQL);
+        statement.execute(AbstractDb.CREATE_INS_SQL);
+        statement.execute(AbstractDb.CREATE_OUTS_SQL);
+        for (String sql : TxDatabaseHelper.V4_INDEXES) {
+            statement.execute(sql);
+        }
+        statement.close();
+        return connection;
+    }
+
+    private static class Inserter {
+        private final Connection connection;
+        private final boolean reuse;
+        private final PreparedStatement tx;
+        private final PreparedStatement in;
+        private final PreparedStatement out;
+        private final String[] hashes = new String[TX_COUNT + 1];
+        private final String[] addresses = new String[TX_COUNT];
+
+        Inserter(Connection connection, boolean reuse) throws Exception {
+            this.connection = connection;
+            this.reuse = reuse;
+            tx = reuse ? connection.prepareStatement(INSERT_TX_SQL) : null;
+            in = reuse ? connection.prepareStatement(INSERT_IN_SQL) : null;
+            out = reuse ? connection.prepareStatement(INSERT_OUT_SQL) : null;
+            for (int i = 0;
+                 i <= TX_COUNT;
+                 i++) {
+                hashes[i] = String.format("%064x", i);
+            }
+            for (int i = 0;
+                 i < TX_COUNT;
+                 i++) {
+                addresses[i] = String.format("1Bither%027d", i % 20);
+            }
+        }
+
+        void insertTx(int i) throws Exception {
+            String hash = hashes[i + 1];
+            PreparedStatement statement = statement(tx, INSERT_TX_SQL);
+            statement.setLong(1, 300000 + i);
+            statement.setString(2, hash);
+            statement.setInt(3, 0);
+            statement.setLong(4, 1400000000L + i * 600L);
+            statement.setInt(5, 1);
+            statement.setInt(6, 0);
+            execute(statement);
+
+            statement = statement(in, INSERT_IN_SQL);
+            statement.setString(1, hash);
+            statement.setInt(2, 0);
+            statement.setString(3, hashes[i]);
+            statement.setInt(4, 0);
+            statement.setString(5, hash + hash);
+            statement.setLong(6, -1);
+            execute(statement);
+
+            for (int sn = 0;
+                 sn < 2;
+                 sn++) {
+                statement = statement(out, INSERT_OUT_SQL);
+                statement.setString(1, hash);
+                statement.setInt(2, sn);
+                statement.setString(3, hash);
+                statement.setLong(4, i * 1000L + sn);
+                statement.setInt(5, 0);
+                statement.setString(6, addresses[i]);
+                statement.setInt(7, -1);
+                execute(statement);
+            }
+        }
+
+        void close() throws Exception {
+            if (reuse) {
+                tx.close();
+                in.close();
+                out.close();
+            }
+        }
+
+        private PreparedStatement statement(PreparedStatement cached, String sql) throws
+                Exception {
+            if (reuse) {
+                cached.clearParameters();
+                return cached;
+            }
+            return connection.prepareStatement(sql);
+        }
+
+        private void execute(PreparedStatement statement) throws Exception {
+            statement.executeUpdate();
+            if (!reuse) {
+                statement.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.mnemonic;
+
+import net.bither.bitherj.crypto.mnemonic.MnemonicCode;
+import net.bither.bitherj.crypto.mnemonic.MnemonicWordList;
+import net.bither.charts.benchmark.Benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+
+/**
+ * The word list step of the startup path on the JVM: the same work as
+ * {@link MnemonicCodeAndroid#setMnemonicCode(MnemonicWordList)}, with the raw resources read
+ * from res/raw of the module.
+ */
+public class WordListBenchmark {
+    private static final File RAW = new File("res/raw");
+
+    private static class FileMnemonicCode extends MnemonicCode {
+
+        private FileMnemonicCode() throws IOException {
+            super();
+        }
+
+        @Override
+        protected HashMap<MnemonicWordList, InputStream> openWordList() throws IOException {
+            HashMap<MnemonicWordList, InputStream> inputStreamMap = new HashMap<>();
+            for (MnemonicWordList wordList : MnemonicWordList.getAllMnemonicWordLists()) {
+                inputStreamMap.put(wordList, new FileInputStream(new File(RAW, fileName
+                        (wordList))));
+            }
+            return inputStreamMap;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (final MnemonicWordList wordList : MnemonicWordList.getAllMnemonicWordLists()) {
+            Benchmark.measure("word lists, " + wordList.name() + " selected", 20, 200, new
+                    Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    new FileMnemonicCode().setMnemonicWordList(wordList);
+                }
+            });
+        }
+    }
+
+    private static String fileName(MnemonicWordList wordList) {
+        switch (wordList) {
+            case ZhCN:
+                return "mnemonic_wordlist_zh_cn.txt";
+            case ZhTw:
+                return "mnemonic_wordlist_zh_tw.txt";
+            default:
+                return "mnemonic_wordlist_english.txt";
+        }
+    }
+}
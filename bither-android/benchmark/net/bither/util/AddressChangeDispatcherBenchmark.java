@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.charts.benchmark.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The coalescing path of {@link AddressChangeDispatcher} on the JVM: the tx notifications of
+ * one frame, added from several threads as the peers and the db writer deliver them, then the
+ * drain the frame callback runs. The frame is posted to the benchmark thread instead of the
+ * Choreographer, everything else is the dispatcher of the app.
+ * <p/>
+ * Prints the notifications per second the dispatcher takes, with one listener callback per
+ * frame whatever the number of notifications.
+ */
+public class AddressChangeDispatcherBenchmark {
+    private static final int ADDRESS_COUNT = 200;
+    private static final int PRODUCER_COUNT = 4;
+    private static final int NOTIFICATIONS_PER_PRODUCER = 500;
+    private static final int WARMUPS = 200;
+    private static final int RUNS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        final String[] addresses = new String[ADDRESS_COUNT];
+        for (int i = 0;
+             i < ADDRESS_COUNT;
+             i++) {
+            addresses[i] = String.format("1Bither%027d", i);
+        }
+
+        final AtomicReference<Runnable> frame = new AtomicReference<Runnable>();
+        final AddressChangeDispatcher dispatcher = new AddressChangeDispatcher(new
+                AddressChangeDispatcher.FrameScheduler() {
+                    @Override
+                    public void postFrame(Runnable dispatch) {
+                        if (!frame.compareAndSet(null, dispatch)) {
+                            throw new IllegalStateException("second frame posted");
+                        }
+                    }
+                });
+        final int[] callbacks = new int[1];
+        dispatcher.addListener(new AddressChangeDispatcher.Listener() {
+            @Override
+            public void onAddressesChanged(Set<String> changed, boolean allChanged) {
+                callbacks[0]++;
+                if (changed.size() != ADDRESS_COUNT) {
+                    throw new IllegalStateException(changed.size() + " addresses delivered");
+                }
+            }
+        });
+
+        final ExecutorService producers = Executors.newFixedThreadPool(PRODUCER_COUNT);
+        final List<Callable<Void>> notifications = new ArrayList<Callable<Void>>();
+        for (int p = 0;
+             p < PRODUCER_COUNT;
+             p++) {
+            final int producer = p;
+            notifications.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0;
+                         i < NOTIFICATIONS_PER_PRODUCER;
+                         i++) {
+                        dispatcher.onAddressChanged(addresses[(producer * 31 + i) %
+                                ADDRESS_COUNT]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final int notificationCount = PRODUCER_COUNT * NOTIFICATIONS_PER_PRODUCER;
+        long median = Benchmark.measure(notificationCount + " notifications, 1 frame", WARMUPS,
+                RUNS, new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        for (Future<Void> future : producers.invokeAll(notifications)) {
+                            future.get();
+                        }
+                        frame.getAndSet(null).run();
+                    }
+                });
+        producers.shutdown();
+        System.out.println(String.format("%-40s %,.0f notifications/s, %.2f callbacks/frame",
+                "", notificationCount * 1e9 / median, (double) callbacks[0] / (WARMUPS + RUNS)));
+    }
+}
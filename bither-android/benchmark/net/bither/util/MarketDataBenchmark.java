@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.bitherj.BitherjSettings.KlineTimeType;
+import net.bither.bitherj.BitherjSettings.MarketType;
+import net.bither.charts.benchmark.Benchmark;
+import net.bither.charts.entity.BitherOHLCEntity;
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.charts.entity.IStickEntity;
+import net.bither.model.Depth;
+import net.bither.model.Ticker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reads and writes of the market data cache, Java serialization as FileUtil did it against
+ * the binary files of {@link MarketDataStore} and {@link KLineSeriesStore}.
+ * <p/>
+ * A kline update used to rewrite all candles of all series, the series store merges the new
+ * candle into the mapping of its own series.
+ */
+public class MarketDataBenchmark {
+    private static final int TICKER_COUNT = 8;
+    private static final int DEPTH_COUNT = 400;
+    private static final int CANDLE_COUNT = 1000;
+    private static final long MINUTE = 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "bither-benchmark");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not create " + dir);
+        }
+        Random random = new Random(1);
+        final File serialized = new File(dir, "serialized");
+
+        final ArrayList<Ticker> tickers = new ArrayList<Ticker>();
+        for (int i = 0;
+             i < TICKER_COUNT;
+             i++) {
+            Ticker ticker = new Ticker();
+            ticker.setMarketType(MarketType.values()[i % MarketType.values().length]);
+            ticker.setDate(new Date(1400000000000L + i));
+            ticker.setNew(random.nextDouble() * 1000);
+            ticker.setHigh(ticker.getPrice() + random.nextDouble());
+            ticker.setLow(ticker.getPrice() - random.nextDouble());
+            tickers.add(ticker);
+        }
+        compare("tickers", tickers, serialized, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                MarketDataStore.writeTickers(dir, tickers);
+            }
+        }, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                MarketDataStore.readTickers(dir);
+            }
+        });
+
+        List<DateValueEntity> entities = new ArrayList<DateValueEntity>();
+        for (int i = 0;
+             i < DEPTH_COUNT;
+             i++) {
+            entities.add(new DateValueEntity(random.nextFloat() * 100, String.format("%.2f",
+                    400 + i * 0.5), 40000 + i * 50));
+        }
+        final Depth depth = new Depth();
+        depth.setMarketType(MarketType.BITSTAMP);
+        depth.setMaxVolume(100);
+        depth.setSplitIndex(DEPTH_COUNT / 2);
+        depth.setDateValueEntities(entities);
+        ArrayList<Depth> depths = new ArrayList<Depth>();
+        depths.add(depth);
+        compare("depth", depths, serialized, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                MarketDataStore.writeDepth(dir, depth);
+            }
+        }, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                MarketDataStore.readDepth(dir, MarketType.BITSTAMP);
+            }
+        });
+
+        ArrayList<IStickEntity> candles = new ArrayList<IStickEntity>();
+        File seriesFile = new File(dir, "series");
+        seriesFile.delete();
+        final KLineSeriesStore store = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_MINUTE, seriesFile);
+        double close = 400;
+        for (int i = 0;
+             i < CANDLE_COUNT;
+             i++) {
+            double open = close;
+            close = open + random.nextGaussian();
+            double high = Math.max(open, close) + random.nextDouble();
+            double low = Math.min(open, close) - random.nextDouble();
+            double volume = random.nextDouble() * 10;
+            candles.add(new BitherOHLCEntity(open, high, low, close, volume, DateTimeUtil
+                    .getXTitle(KlineTimeType.ONE_MINUTE, new Date(i * MINUTE)), i * MINUTE));
+            store.merge(i * MINUTE, open, high, low, close, volume);
+        }
+        store.setWindowSize(CANDLE_COUNT);
+        final long lastDate = store.getLastDate();
+        final double lastClose = store.getLastClose();
+        compare("klines, " + CANDLE_COUNT + " candles", candles, serialized, new Benchmark
+                .Task() {
+            @Override
+            public void run() throws Exception {
+                // the running candle changed
+                store.merge(lastDate, lastClose, lastClose + 1, lastClose - 1, lastClose, 1);
+            }
+        }, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                store.getKLine(1);
+            }
+        });
+    }
+
+    private static void compare(String name, final ArrayList<?> list, final File serialized,
+                                Benchmark.Task write, Benchmark.Task read) throws Exception {
+        Benchmark.measure(name + " write, serialized", 50, 500, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new
+                        FileOutputStream(serialized)));
+                out.writeObject(list);
+                out.close();
+            }
+        });
+        Benchmark.measure(name + " write, binary", 50, 500, write);
+        Benchmark.measure(name + " read, serialized", 50, 500, new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new
+                        FileInputStream(serialized)));
+                in.readObject();
+                in.close();
+            }
+        });
+        Benchmark.measure(name + " read, binary", 50, 500, read);
+        System.out.println(name + ": serialized " + serialized.length() + " bytes");
+    }
+}
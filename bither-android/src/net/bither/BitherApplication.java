@@ -34,11 +34,15 @@ import net.bither.bitherj.crypto.mnemonic.MnemonicCode;
 import net.bither.bitherj.utils.Threading;
 import net.bither.db.AddressDatabaseHelper;
 import net.bither.db.AndroidDbImpl;
+import net.bither.db.DbMigrator;
 import net.bither.db.TxDatabaseHelper;
 import net.bither.exception.UEHandler;
 import net.bither.mnemonic.MnemonicCodeAndroid;
 import net.bither.preference.AppSharedPreference;
+import net.bither.runnable.StartupOrchestrator;
+import net.bither.runnable.TaskExecutor.Pool;
 import net.bither.service.BlockchainService;
+import net.bither.util.StartupTrace;
 import net.bither.xrandom.LinuxSecureRandom;
 
 import org.slf4j.LoggerFactory;
@@ -76,6 +80,7 @@ public class BitherApplication extends Application {
 
     @Override
     public void onCreate() {
+        int trace = StartupTrace.begin("application.onCreate");
         new LinuxSecureRandom();
         super.onCreate();
         mContext = getApplicationContext();
@@ -96,6 +101,7 @@ public class BitherApplication extends Application {
         activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
 
         upgrade();
+        StartupTrace.end(trace);
     }
 
     @Override
@@ -175,19 +181,52 @@ public class BitherApplication extends Application {
         log.setLevel(Level.INFO);
     }
 
+    /**
+     * Only what the first activity needs runs on the main thread in {@link #onCreate()}, the
+     * rest starts here in parallel and the activities wait for the address load broadcast.
+     */
     private void initApp() {
-        new Thread(new Runnable() {
+        int trace = StartupTrace.begin("application.initApp");
+        // the db files are opened on IO, logging and the word lists use CPU so they don't
+        // queue behind the two opens
+        new StartupOrchestrator().add("logging", Pool.CPU, new Runnable() {
+            @Override
+            public void run() {
+                initLogging();
+            }
+        }).add("word_list", Pool.CPU, new Runnable() {
             @Override
             public void run() {
                 try {
-                    MnemonicCodeAndroid.setMnemonicCode(AppSharedPreference.getInstance().getMnemonicWordList());
+                    MnemonicCodeAndroid.setMnemonicCode(AppSharedPreference.getInstance()
+                            .getMnemonicWordList());
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
+            }
+        }).add("address_db", Pool.IO, new Runnable() {
+            @Override
+            public void run() {
+                mAddressDbHelper.getWritableDatabase();
+            }
+        }).add("tx_db", Pool.IO, new Runnable() {
+            @Override
+            public void run() {
+                mTxDbHelper.getWritableDatabase();
+            }
+        }).add("migrations", Pool.CPU, new Runnable() {
+            @Override
+            public void run() {
+                DbMigrator.resume(mAddressDbHelper, AddressDatabaseHelper.CHUNKED_MIGRATIONS);
+                DbMigrator.resume(mTxDbHelper, TxDatabaseHelper.CHUNKED_MIGRATIONS);
+            }
+        }, "address_db", "tx_db").add("addresses", Pool.IO, new Runnable() {
+            @Override
+            public void run() {
                 AddressManager.getInstance();
-                initLogging();
             }
-        }).start();
+        }, "address_db", "tx_db", "word_list").start();
+        StartupTrace.end(trace);
     }
 
     /**
@@ -22,6 +22,9 @@ import net.bither.bitherj.AbstractApp;
 import net.bither.bitherj.NotificationService;
 import net.bither.bitherj.core.Tx;
 import net.bither.bitherj.utils.Utils;
+import net.bither.service.SyncProgressChannel;
+import net.bither.util.AddressChangeDispatcher;
+import net.bither.util.AddressSummaryCache;
 import net.bither.util.BroadcastUtil;
 
 import org.slf4j.Logger;
@@ -43,10 +46,6 @@ public class NotificationAndroidImpl implements NotificationService {
     public static final String MESSAGE_TX = "tx";
     public static final String MESSAGE_TX_NOTIFICATION_TYPE = "tx_notification_type";
 
-    public static final String ACTION_SYNC_BLOCK_AND_WALLET_STATE = R.class.getPackage().getName
-            () + ".sync_block_wallet";
-    public static final String ACTION_PROGRESS_INFO = "progress_info";
-
     @Override
     public void sendBroadcastSyncSPVFinished(boolean isFinished) {
         if (isFinished) {
@@ -69,12 +68,18 @@ public class NotificationAndroidImpl implements NotificationService {
 
     @Override
     public void sendLastBlockChange() {
+        // only rows with a tx that is not mature yet show something else after a block
+        AddressChangeDispatcher.getInstance().onAddressesChanged(AddressSummaryCache
+                .onBlockChanged());
         Intent broadcast = new Intent(ACTION_SYNC_LAST_BLOCK_CHANGE);
         BitherApplication.mContext.sendBroadcast(broadcast);
     }
 
     @Override
     public void notificatTx(String address, Tx tx, Tx.TxNotificationType txNotificationType, long deltaBalance) {
+        // refresh before the broadcast, so the address list rebinds from memory
+        AddressSummaryCache.onAddressChanged(address, tx, txNotificationType, deltaBalance);
+        AddressChangeDispatcher.getInstance().onAddressChanged(address);
         final Intent broadcast = new Intent(ACTION_ADDRESS_BALANCE);
         broadcast.putExtra(MESSAGE_ADDRESS, address);
         broadcast.putExtra(MESSAGE_DELTA_BALANCE, deltaBalance);
@@ -124,15 +129,11 @@ public class NotificationAndroidImpl implements NotificationService {
 
     @Override
     public void sendBroadcastProgressState(double value) {
-        final Intent broadcast = new Intent(ACTION_SYNC_BLOCK_AND_WALLET_STATE);
-        broadcast.putExtra(ACTION_PROGRESS_INFO, value);
-        BitherApplication.mContext.sendBroadcast(broadcast);
+        SyncProgressChannel.getInstance().publish(value);
     }
 
     @Override
     public void removeProgressState() {
-        BitherApplication.mContext.removeStickyBroadcast(new Intent
-                (ACTION_SYNC_BLOCK_AND_WALLET_STATE));
-
+        SyncProgressChannel.getInstance().clear();
     }
 }
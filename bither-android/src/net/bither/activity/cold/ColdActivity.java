@@ -67,6 +67,7 @@ import net.bither.util.BackupUtil;
 import net.bither.util.FileUtil;
 import net.bither.util.KeyUtil;
 import net.bither.util.LogUtil;
+import net.bither.util.StartupTrace;
 import net.bither.util.StringUtil;
 import net.bither.util.ThreadUtil;
 import net.bither.util.UIUtil;
@@ -94,6 +95,7 @@ public class ColdActivity extends BaseFragmentActivity {
         super.onCreate(arg0);
         BitherApplication.coldActivity = this;
         setContentView(R.layout.activity_cold);
+        StartupTrace.traceFirstFrame(this, "cold.firstFrame");
         initView();
         mPager.postDelayed(new Runnable() {
 
@@ -106,7 +106,6 @@ public class EnterpriseHDMKeychainActivity extends SwipeRightFragmentActivity {
     private void registerReceiver() {
         IntentFilter filter = new IntentFilter();
         filter.addAction(BroadcastUtil.ACTION_MARKET);
-        filter.addAction(NotificationAndroidImpl.ACTION_SYNC_BLOCK_AND_WALLET_STATE);
         filter.addAction(NotificationAndroidImpl.ACTION_ADDRESS_LOAD_COMPLETE_STATE);
         filter.addAction(NotificationAndroidImpl.ACTION_ADDRESS_BALANCE);
         filter.addAction(NotificationAndroidImpl.ACTION_SYNC_LAST_BLOCK_CHANGE);
@@ -27,9 +27,11 @@ import android.os.Looper;
 import android.support.v4.app.Fragment;
 import android.support.v4.view.ViewPager;
 import android.support.v4.view.ViewPager.OnPageChangeListener;
+import android.text.format.DateUtils;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.FrameLayout;
+import android.widget.TextView;
 
 import net.bither.BitherApplication;
 import net.bither.BitherSetting;
@@ -53,6 +55,8 @@ import net.bither.preference.AppSharedPreference;
 import net.bither.runnable.AddErrorMsgRunnable;
 import net.bither.runnable.DownloadAvatarRunnable;
 import net.bither.runnable.UploadAvatarRunnable;
+import net.bither.service.SyncProgress;
+import net.bither.service.SyncProgressChannel;
 import net.bither.ui.base.BaseFragmentActivity;
 import net.bither.ui.base.DropdownMessage;
 import net.bither.ui.base.SyncProgressView;
@@ -60,7 +64,8 @@ import net.bither.ui.base.TabButton;
 import net.bither.ui.base.dialog.DialogFirstRunWarning;
 import net.bither.ui.base.dialog.DialogGenerateAddressFinalConfirm;
 import net.bither.ui.base.dialog.DialogProgress;
-import net.bither.util.LogUtil;
+import net.bither.util.BroadcastUtil;
+import net.bither.util.StartupTrace;
 import net.bither.util.StringUtil;
 import net.bither.util.UIUtil;
 import net.bither.util.WalletUtils;
@@ -77,12 +82,14 @@ public class HotActivity extends BaseFragmentActivity {
     private HotFragmentPagerAdapter mAdapter;
     private ViewPager mPager;
     private SyncProgressView pbSync;
+    private TextView tvSyncEta;
+    private TextView tvDbMigration;
     private DialogProgress dp;
 
     private final TxAndBlockBroadcastReceiver txAndBlockBroadcastReceiver = new
             TxAndBlockBroadcastReceiver();
-    private final ProgressBroadcastReceiver broadcastReceiver = new ProgressBroadcastReceiver();
     private final AddressIsLoadedReceiver addressIsLoadedReceiver = new AddressIsLoadedReceiver();
+    private final DbMigrationReceiver dbMigrationReceiver = new DbMigrationReceiver();
 
     protected void onCreate(Bundle savedInstanceState) {
         AbstractApp.notificationService.removeProgressState();
@@ -90,6 +97,7 @@ public class HotActivity extends BaseFragmentActivity {
         super.onCreate(savedInstanceState);
         BitherApplication.hotActivity = this;
         setContentView(R.layout.activity_hot);
+        StartupTrace.traceFirstFrame(this, "hot.firstFrame");
         initView();
         registerReceiver();
         mPager.postDelayed(new Runnable() {
@@ -114,21 +122,22 @@ public class HotActivity extends BaseFragmentActivity {
     }
 
     private void registerReceiver() {
-        registerReceiver(broadcastReceiver, new IntentFilter(NotificationAndroidImpl
-                .ACTION_SYNC_BLOCK_AND_WALLET_STATE));
+        SyncProgressChannel.getInstance().subscribe(syncProgressSubscriber);
         IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction(NotificationAndroidImpl.ACTION_SYNC_LAST_BLOCK_CHANGE);
         intentFilter.addAction(NotificationAndroidImpl.ACTION_ADDRESS_BALANCE);
         registerReceiver(txAndBlockBroadcastReceiver, intentFilter);
         registerReceiver(addressIsLoadedReceiver,
                 new IntentFilter(NotificationAndroidImpl.ACTION_ADDRESS_LOAD_COMPLETE_STATE));
+        registerReceiver(dbMigrationReceiver, new IntentFilter(BroadcastUtil.ACTION_DB_MIGRATION));
     }
 
     @Override
     protected void onDestroy() {
-        unregisterReceiver(broadcastReceiver);
+        SyncProgressChannel.getInstance().unsubscribe(syncProgressSubscriber);
         unregisterReceiver(txAndBlockBroadcastReceiver);
         unregisterReceiver(addressIsLoadedReceiver);
+        unregisterReceiver(dbMigrationReceiver);
         super.onDestroy();
         BitherApplication.hotActivity = null;
 
@@ -177,6 +186,8 @@ public class HotActivity extends BaseFragmentActivity {
 
     private void initView() {
         pbSync = (SyncProgressView) findViewById(R.id.pb_sync);
+        tvSyncEta = (TextView) findViewById(R.id.tv_sync_eta);
+        tvDbMigration = (TextView) findViewById(R.id.tv_db_migration);
         flAddAddress = (FrameLayout) findViewById(R.id.fl_add_address);
 
         tbtnMain = (TabButton) findViewById(R.id.tbtn_main);
@@ -447,16 +458,26 @@ public class HotActivity extends BaseFragmentActivity {
         }
     }
 
-    private final class ProgressBroadcastReceiver extends BroadcastReceiver {
+    private final SyncProgressChannel.Subscriber syncProgressSubscriber = new
+            SyncProgressChannel.Subscriber() {
         @Override
-        public void onReceive(final Context context, final Intent intent) {
-            if (intent != null && intent.hasExtra(NotificationAndroidImpl.ACTION_PROGRESS_INFO)) {
-                double progress = intent.getDoubleExtra(NotificationAndroidImpl.ACTION_PROGRESS_INFO, 0);
-                LogUtil.d("progress", "BlockchainBroadcastReceiver" + progress);
-                pbSync.setProgress(progress);
+        public void onSyncProgress(SyncProgress progress) {
+            pbSync.setProgress(progress.progress);
+            if (!progress.isSyncing() || progress.targetHeight <= progress.height) {
+                tvSyncEta.setVisibility(View.GONE);
+                return;
+            }
+            if (progress.etaSeconds == SyncProgress.UNKNOWN) {
+                tvSyncEta.setText(getString(R.string.sync_progress_stalled, progress.height,
+                        progress.targetHeight));
+            } else {
+                tvSyncEta.setText(getString(R.string.sync_progress_eta, progress.height,
+                        progress.targetHeight, progress.blocksPerSecond, DateUtils
+                                .formatElapsedTime(progress.etaSeconds)));
             }
+            tvSyncEta.setVisibility(View.VISIBLE);
         }
-    }
+    };
 
     private final class TxAndBlockBroadcastReceiver extends BroadcastReceiver {
 
@@ -468,13 +489,10 @@ public class HotActivity extends BaseFragmentActivity {
                             && !Utils.compareString(NotificationAndroidImpl.ACTION_SYNC_LAST_BLOCK_CHANGE, intent.getAction()))) {
                 return;
             }
+            // the address list rebinds its changed rows through AddressChangeDispatcher
             if (Utils.compareString(NotificationAndroidImpl.ACTION_ADDRESS_BALANCE, intent.getAction())) {
                 refreshTotalBalance();
             }
-            Fragment fragment = getFragmentAtIndex(1);
-            if (fragment != null && fragment instanceof HotAddressFragment) {
-                ((HotAddressFragment) fragment).refresh();
-            }
         }
     }
 
@@ -492,6 +510,30 @@ public class HotActivity extends BaseFragmentActivity {
         }
     }
 
+    private final class DbMigrationReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent == null || !Utils.compareString(intent.getAction(), BroadcastUtil
+                    .ACTION_DB_MIGRATION)) {
+                return;
+            }
+            int copied = intent.getIntExtra(BroadcastUtil.ACTION_DB_MIGRATION_COPIED, 0);
+            int total = intent.getIntExtra(BroadcastUtil.ACTION_DB_MIGRATION_TOTAL, 0);
+            if (total < 0) {
+                tvDbMigration.setVisibility(View.GONE);
+                boolean retry = intent.getBooleanExtra(BroadcastUtil.ACTION_DB_MIGRATION_RETRY,
+                        true);
+                DropdownMessage.showDropdownMessage(HotActivity.this, retry ? R.string
+                        .db_migration_failed_retry : R.string.db_migration_failed);
+            } else if (copied >= total) {
+                tvDbMigration.setVisibility(View.GONE);
+            } else {
+                tvDbMigration.setText(getString(R.string.db_migration_progress, copied, total));
+                tvDbMigration.setVisibility(View.VISIBLE);
+            }
+        }
+    }
+
 //    private void addNewPrivateKey() {
 //        final AppSharedPreference preference = AppSharedPreference.getInstance();
 //        if (!preference.hasPrivateKey()) {
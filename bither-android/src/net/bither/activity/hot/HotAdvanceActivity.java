@@ -24,6 +24,7 @@ import android.content.Intent;
 import android.database.sqlite.SQLiteDatabase;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.text.format.Formatter;
 import android.support.v4.app.Fragment;
 import android.view.View;
 import android.widget.Button;
@@ -90,6 +91,7 @@ import net.bither.ui.base.dialog.DialogWithActions;
 import net.bither.ui.base.listener.IBackClickListener;
 import net.bither.ui.base.listener.ICheckPasswordListener;
 import net.bither.ui.base.listener.IDialogPasswordListener;
+import net.bither.util.AddressSummaryCache;
 import net.bither.util.BroadcastUtil;
 import net.bither.util.FileUtil;
 import net.bither.util.HDMKeychainRecoveryUtil;
@@ -101,11 +103,14 @@ import org.w3c.dom.Text;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 public class HotAdvanceActivity extends SwipeRightFragmentActivity {
     private SettingSelectorView ssvWifi;
+    private SettingSelectorView ssvDbWal;
     private Button btnEditPassword;
     private Button btnExportAddress;
     private SettingSelectorView ssvImportPrivateKey;
@@ -142,6 +147,7 @@ public class HotAdvanceActivity extends SwipeRightFragmentActivity {
         findViewById(R.id.ibtn_back).setOnClickListener(new IBackClickListener());
         tvVserion = (TextView) findViewById(R.id.tv_version);
         ssvWifi = (SettingSelectorView) findViewById(R.id.ssv_wifi);
+        ssvDbWal = (SettingSelectorView) findViewById(R.id.ssv_db_wal);
         ssvPinCode = (SettingSelectorView) findViewById(R.id.ssv_pin_code);
         btnEditPassword = (Button) findViewById(R.id.btn_edit_password);
         btnTrashCan = (Button) findViewById(R.id.btn_trash_can);
@@ -157,6 +163,7 @@ public class HotAdvanceActivity extends SwipeRightFragmentActivity {
         ssvApiConfig = (SettingSelectorView) findViewById(R.id.ssv_api_config);
         ssvApiConfig.setSelector(apiConfigSelector);
         ssvWifi.setSelector(wifiSelector);
+        ssvDbWal.setSelector(dbWalSelector);
         ssvImportPrivateKey.setSelector(importPrivateKeySelector);
         ssvImprotBip38Key.setSelector(importBip38KeySelector);
         ssvSyncInterval.setSelector(syncIntervalSelector);
@@ -184,10 +191,26 @@ public class HotAdvanceActivity extends SwipeRightFragmentActivity {
         findViewById(R.id.ibtn_bither_address_qr).setOnClickListener(bitherAddressQrClick);
         findViewById(R.id.iv_logo).setOnClickListener(rawPrivateKeyClick);
         tvVserion.setText(Version.name + " " + Version.version);
+        configureDbMaintenance();
         hdmRecoveryUtil = new HDMKeychainRecoveryUtil(this, dp);
         configureHDMServerPasswordReset();
     }
 
+    private void configureDbMaintenance() {
+        TextView tvDbMaintenance = (TextView) findViewById(R.id.tv_db_maintenance);
+        AppSharedPreference preference = AppSharedPreference.getInstance();
+        if (preference.getDbMaintenanceTime() <= 0) {
+            tvDbMaintenance.setVisibility(View.GONE);
+            return;
+        }
+        tvDbMaintenance.setVisibility(View.VISIBLE);
+        tvDbMaintenance.setText(getString(R.string.db_maintenance_info, DateFormat
+                .getDateTimeInstance().format(new Date(preference.getDbMaintenanceTime())),
+                Formatter.formatShortFileSize(this, preference.getDbMaintenanceSizeBefore()),
+                Formatter.formatShortFileSize(this, preference.getDbMaintenanceSizeAfter()),
+                preference.getDbMaintenanceDuration()));
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -580,6 +603,7 @@ public class HotAdvanceActivity extends SwipeRightFragmentActivity {
                 }
                 AbstractDb.hdAccountAddressProvider.setSyncedNotComplete();
                 AbstractDb.txProvider.clearAllTx();
+                AddressSummaryCache.clear();
                 for (Address address : AddressManager.getInstance().getAllAddresses()) {
                     address.notificatTx(null, Tx.TxNotificationType.txFromApi);
                 }
@@ -921,6 +945,52 @@ public class HotAdvanceActivity extends SwipeRightFragmentActivity {
         }
     };
 
+    private SettingSelectorView.SettingSelector dbWalSelector = new SettingSelectorView
+            .SettingSelector() {
+
+        @Override
+        public void onOptionIndexSelected(int index) {
+            hasAnyAction = true;
+            AppSharedPreference.getInstance().setDbWalMode(index == 1);
+        }
+
+        @Override
+        public String getSettingName() {
+            return getString(R.string.setting_name_db_wal);
+        }
+
+        @Override
+        public String getOptionName(int index) {
+            if (index == 1) {
+                return getString(R.string.setting_name_db_wal_yes);
+            } else {
+                return getString(R.string.setting_name_db_wal_no);
+            }
+        }
+
+        @Override
+        public int getOptionCount() {
+            hasAnyAction = true;
+            return 2;
+        }
+
+        @Override
+        public int getCurrentOptionIndex() {
+            return AppSharedPreference.getInstance().getDbWalMode() ? 1 : 0;
+        }
+
+        @Override
+        public String getOptionNote(int index) {
+            // the databases are configured when they are opened
+            return getString(R.string.setting_db_wal_note);
+        }
+
+        @Override
+        public Drawable getOptionDrawable(int index) {
+            return null;
+        }
+    };
+
     private SettingSelectorView.SettingSelector wifiSelector = new SettingSelectorView
             .SettingSelector() {
 
@@ -261,7 +261,7 @@ public class MarketDetailActivity extends SwipeRightActivity implements OnChecke
                 case HandlerMessage.MSG_SUCCESS_FROM_CACHE:
                     if (msg.obj != null) {
                         KLine kLine = (KLine) msg.obj;
-                        ChartsUtil.initMACandleStickChart(chartKline, kLine.getStickEntities(),
+                        ChartsUtil.initMACandleStickChart(chartKline, kLine,
                                 isKlineRefresh);
                         if (!isKlineRefresh) {
                             isKlineRefresh = true;
@@ -274,7 +274,7 @@ public class MarketDetailActivity extends SwipeRightActivity implements OnChecke
                     break;
                 case HandlerMessage.MSG_SUCCESS:
                     KLine kLine = (KLine) msg.obj;
-                    ChartsUtil.initMACandleStickChart(chartKline, kLine.getStickEntities(),
+                    ChartsUtil.initMACandleStickChart(chartKline, kLine,
                             isKlineRefresh);
                     if (!isKlineRefresh) {
                         isKlineRefresh = true;
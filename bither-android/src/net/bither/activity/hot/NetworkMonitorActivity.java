@@ -21,20 +21,28 @@ import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentStatePagerAdapter;
 import android.support.v4.view.ViewPager;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageButton;
+import android.widget.TextView;
 
 import net.bither.R;
 import net.bither.bitherj.db.AbstractDb;
 import net.bither.fragment.hot.BlockListFragment;
 import net.bither.fragment.hot.PeerListFragment;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
 import net.bither.runnable.ThreadNeedService;
 import net.bither.service.BlockchainService;
+import net.bither.service.SyncTelemetry;
 import net.bither.ui.base.BaseFragmentActivity;
 import net.bither.ui.base.ViewPagerTabs;
 import net.bither.ui.base.dialog.DialogWithActions;
 import net.bither.ui.base.listener.IBackClickListener;
+import net.bither.util.ThreadUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -82,6 +90,36 @@ public final class NetworkMonitorActivity extends BaseFragmentActivity {
 		ibtnBack = (ImageButton) findViewById(R.id.ibtn_back);
 		ibtnBack.setOnClickListener(new IBackClickListener());
         findViewById(R.id.ibtn_option).setOnClickListener(optionClick);
+        showSyncTelemetry();
+    }
+
+    private void showSyncTelemetry() {
+        final TextView tvSyncTelemetry = (TextView) findViewById(R.id.tv_sync_telemetry);
+        if (tvSyncTelemetry == null) {
+            return;
+        }
+        TaskExecutor.execute(Pool.IO, Priority.NORMAL, this, new Runnable() {
+            @Override
+            public void run() {
+                final SyncTelemetry.Summary summary = SyncTelemetry.getInstance().summarize
+                        (System.currentTimeMillis() - DateUtils.DAY_IN_MILLIS);
+                if (summary.minutes == 0) {
+                    return;
+                }
+                ThreadUtil.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        tvSyncTelemetry.setText(getString(R.string
+                                .network_monitor_sync_telemetry, summary.blocks, summary.txs,
+                                summary.averagePeers, Formatter.formatShortFileSize
+                                        (NetworkMonitorActivity.this, summary.bytesIn),
+                                Formatter.formatShortFileSize(NetworkMonitorActivity.this,
+                                        summary.bytesOut), summary.dbWriteMillis));
+                        tvSyncTelemetry.setVisibility(View.VISIBLE);
+                    }
+                });
+            }
+        });
     }
 
     private View.OnClickListener optionClick = new View.OnClickListener() {
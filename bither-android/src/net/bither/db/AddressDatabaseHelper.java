@@ -7,6 +7,8 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 import net.bither.bitherj.db.AbstractDb;
 import net.bither.bitherj.utils.Utils;
+import net.bither.db.base.AndroidDbConfig;
+import net.bither.db.base.ChunkedTableCopy;
 import net.bither.preference.AppSharedPreference;
 
 import java.sql.SQLException;
@@ -15,6 +17,22 @@ public class AddressDatabaseHelper extends SQLiteOpenHelper {
     public static final int DB_VERSION = 7;
     private static final String DB_NAME = "address.db";
 
+    private static final ChunkedTableCopy V6_TO_V7_HD_ACCOUNT = new ChunkedTableCopy(
+            "address_v7_hd_account", "hd_account", "hd_account2",
+            "create table if not exists  hd_account2 " +
+            "( hd_account_id integer not null primary key autoincrement" +
+            ", encrypt_seed text" +
+            ", encrypt_mnemonic_seed text" +
+            ", hd_address text not null" +
+            ", external_pub text not null" +
+            ", internal_pub text not null" +
+            ", is_xrandom integer not null);", new String[]{"hd_account_id", "encrypt_seed",
+            "encrypt_mnemonic_seed", "hd_address", "external_pub", "internal_pub", "is_xrandom"},
+            new String[]{"hd_account_id"}, new String[]{});
+
+    public static final ChunkedTableCopy[] CHUNKED_MIGRATIONS = new ChunkedTableCopy[]{
+            V6_TO_V7_HD_ACCOUNT};
+
     public AddressDatabaseHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
     }
@@ -37,6 +55,16 @@ public class AddressDatabaseHelper extends SQLiteOpenHelper {
 
     }
 
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        AndroidDbConfig.onConfigure(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        AndroidDbConfig.onOpen(db);
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
 //        if (oldVersion == 1 && newVersion == 2) {
@@ -114,33 +142,6 @@ public class AddressDatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(AbstractDb.CREATE_ENTERPRISE_HDM_ADDRESSES_SQL);
         db.execSQL(AbstractDb.CREATE_MULTI_SIGN_SET);
         // modify encrypt_seed null
-        db.execSQL("create table if not exists  hd_account2 " +
-                "( hd_account_id integer not null primary key autoincrement" +
-                ", encrypt_seed text" +
-                ", encrypt_mnemonic_seed text" +
-                ", hd_address text not null" +
-                ", external_pub text not null" +
-                ", internal_pub text not null" +
-                ", is_xrandom integer not null);");
-        db.execSQL("INSERT INTO hd_account2(hd_account_id,encrypt_seed,encrypt_mnemonic_seed,hd_address,external_pub,internal_pub,is_xrandom) " +
-                " SELECT hd_account_id,encrypt_seed,encrypt_mnemonic_seed,hd_address,external_pub,internal_pub,is_xrandom FROM hd_account;");
-        int oldCnt = 0;
-        int newCnt = 0;
-        Cursor c = db.rawQuery("select count(0) cnt from hd_account", null);
-        if (c.moveToNext()) {
-            oldCnt = c.getInt(0);
-        }
-        c.close();
-        c = db.rawQuery("select count(0) cnt from hd_account2", null);
-        if (c.moveToNext()) {
-            newCnt = c.getInt(0);
-        }
-        c.close();
-        if (oldCnt != newCnt) {
-            throw new RuntimeException("address db upgrade from 6 to 7 failed. new hd_account_addresses table record count not the same as old one");
-        } else {
-            db.execSQL("DROP TABLE hd_account;");
-            db.execSQL("ALTER TABLE hd_account2 RENAME TO hd_account;");
-        }
+        V6_TO_V7_HD_ACCOUNT.prepare(db);
     }
 }
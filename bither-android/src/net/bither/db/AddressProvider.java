@@ -18,6 +18,7 @@ package net.bither.db;
 
 import android.content.ContentValues;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import net.bither.BitherApplication;
 import net.bither.bitherj.core.Address;
@@ -27,6 +28,8 @@ import net.bither.bitherj.db.imp.base.IDb;
 import net.bither.bitherj.utils.Base58;
 import net.bither.bitherj.utils.Utils;
 import net.bither.db.base.AndroidDb;
+import net.bither.db.base.AndroidDbManager;
+import net.bither.db.base.AndroidStatementCache;
 
 public class AddressProvider extends AbstractAddressProvider {
     private static AddressProvider addressProvider = new AddressProvider(BitherApplication.mAddressDbHelper);
@@ -35,20 +38,28 @@ public class AddressProvider extends AbstractAddressProvider {
         return addressProvider;
     }
 
-    private SQLiteOpenHelper helper;
+    private static final String INSERT_HDM_ADDRESS_SQL = AndroidStatementCache.insertSql(
+            AbstractDb.Tables.HDMADDRESSES, new String[]{AbstractDb.HDMAddressesColumns
+            .HD_SEED_ID, AbstractDb.HDMAddressesColumns.HD_SEED_INDEX, AbstractDb
+            .HDMAddressesColumns.PUB_KEY_HOT, AbstractDb.HDMAddressesColumns.PUB_KEY_COLD,
+            AbstractDb.HDMAddressesColumns.ADDRESS, AbstractDb.HDMAddressesColumns
+            .PUB_KEY_REMOTE, AbstractDb.HDMAddressesColumns.IS_SYNCED});
+
+    private AndroidDbManager dbManager;
+    private AndroidStatementCache statementCache = new AndroidStatementCache();
 
     public AddressProvider(SQLiteOpenHelper helper) {
-        this.helper = helper;
+        this.dbManager = AndroidDbManager.getInstance(helper);
     }
 
     @Override
     public IDb getReadDb() {
-        return new AndroidDb(this.helper.getReadableDatabase());
+        return this.dbManager.getReadDb();
     }
 
     @Override
     public IDb getWriteDb() {
-        return new AndroidDb(this.helper.getWritableDatabase());
+        return this.dbManager.getWriteDb();
     }
 
     @Override
@@ -74,8 +85,28 @@ public class AddressProvider extends AbstractAddressProvider {
     }
 
     @Override
-    protected void insertHDMAddressToDb(IDb db, String address, int hdSeedId, int index, byte[] pubKeysHot, byte[] pubKeysCold, byte[] pubKeysRemote, boolean isSynced) {
+    protected void insertHDMAddressToDb(IDb db, final String address, final int hdSeedId, final int index, final byte[] pubKeysHot, final byte[] pubKeysCold, final byte[] pubKeysRemote, final boolean isSynced) {
         AndroidDb mdb = (AndroidDb)db;
+        // HDM keychain expansion writes its addresses in one transaction, reuse the statement
+        if (statementCache.insertInTransaction(mdb.getSQLiteDatabase(), AbstractDb.Tables
+                .HDMADDRESSES, INSERT_HDM_ADDRESS_SQL, new AndroidStatementCache.Binder() {
+            @Override
+            public void bind(SQLiteStatement statement) {
+                statement.bindLong(1, hdSeedId);
+                statement.bindLong(2, index);
+                statement.bindString(3, Base58.encode(pubKeysHot));
+                statement.bindString(4, Base58.encode(pubKeysCold));
+                if (!Utils.isEmpty(address)) {
+                    statement.bindString(5, address);
+                }
+                if (pubKeysRemote != null) {
+                    statement.bindString(6, Base58.encode(pubKeysRemote));
+                }
+                statement.bindLong(7, isSynced ? 1 : 0);
+            }
+        })) {
+            return;
+        }
         ContentValues cv = new ContentValues();
         cv.put(AbstractDb.HDMAddressesColumns.HD_SEED_ID, hdSeedId);
         cv.put(AbstractDb.HDMAddressesColumns.HD_SEED_INDEX, index);
@@ -21,7 +21,7 @@ import android.database.sqlite.SQLiteOpenHelper;
 import net.bither.BitherApplication;
 import net.bither.bitherj.db.imp.AbstractBlockProvider;
 import net.bither.bitherj.db.imp.base.IDb;
-import net.bither.db.base.AndroidDb;
+import net.bither.db.base.AndroidDbManager;
 
 public class BlockProvider extends AbstractBlockProvider {
     private static BlockProvider blockProvider = new BlockProvider(BitherApplication.mTxDbHelper);
@@ -30,19 +30,19 @@ public class BlockProvider extends AbstractBlockProvider {
         return blockProvider;
     }
 
-    private SQLiteOpenHelper helper;
+    private AndroidDbManager dbManager;
 
     public BlockProvider(SQLiteOpenHelper helper) {
-        this.helper = helper;
+        this.dbManager = AndroidDbManager.getInstance(helper);
     }
 
     @Override
     public IDb getReadDb() {
-        return new AndroidDb(this.helper.getReadableDatabase());
+        return this.dbManager.getReadDb();
     }
 
     @Override
     public IDb getWriteDb() {
-        return new AndroidDb(this.helper.getWritableDatabase());
+        return this.dbManager.getWriteDb();
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.BatteryManager;
+
+import net.bither.BitherApplication;
+import net.bither.bitherj.db.AbstractDb;
+import net.bither.db.base.AndroidDbConfig;
+import net.bither.db.base.IncrementalVacuum;
+import net.bither.preference.AppSharedPreference;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the databases from growing without bound: refreshes planner statistics, prunes peers
+ * that have not been seen for a week and gives free pages back to the file system in short
+ * incremental_vacuum slices. Runs at most once a day, when BlockchainService goes idle while
+ * the device is charging, and the service only stops once it is done. The result shows up in
+ * the advanced settings.
+ * <p/>
+ * The databases start without auto_vacuum, the first run switches each of them with a full
+ * vacuum, see {@link IncrementalVacuum}. That rewrites the whole file once, whatever its size,
+ * later runs only free pages up to {@link #VACUUM_BUDGET_MS}.
+ */
+public class DbMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(DbMaintenance.class);
+
+    private static final long MIN_INTERVAL = AlarmManager.INTERVAL_DAY;
+    private static final long STALE_PEER_SECONDS = 7 * 24 * 60 * 60;
+    private static final int VACUUM_PAGES_PER_SLICE = 128;
+    private static final long VACUUM_BUDGET_MS = 5 * 1000;
+
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    private DbMaintenance() {
+    }
+
+    public static boolean shouldRun(Context context) {
+        long last = AppSharedPreference.getInstance().getDbMaintenanceTime();
+        return System.currentTimeMillis() - last > MIN_INTERVAL && isCharging(context);
+    }
+
+    private static boolean isCharging(Context context) {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent
+                .ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    public static boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * @param done run on the maintenance thread when it finished or failed, not run if
+     *             maintenance was running already
+     */
+    public static void runInBackground(final Runnable done) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        TaskExecutor.execute(Pool.DB_MAINTENANCE, Priority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DbMaintenance.run();
+                } catch (Exception e) {
+                    log.error("db maintenance failed", e);
+                } finally {
+                    running.set(false);
+                    done.run();
+                }
+            }
+        });
+    }
+
+    private static void run() {
+        long begin = System.currentTimeMillis();
+        long sizeBefore = size(BitherApplication.mTxDbHelper) + size(BitherApplication
+                .mAddressDbHelper);
+
+        SQLiteDatabase txDb = BitherApplication.mTxDbHelper.getWritableDatabase();
+        int peers = txDb.delete(AbstractDb.Tables.PEERS, AbstractDb.PeersColumns.PEER_TIMESTAMP +
+                "<?", new String[]{Long.toString(System.currentTimeMillis() / 1000 -
+                STALE_PEER_SECONDS)});
+        log.info("db maintenance pruned {} stale peers", peers);
+        maintain(BitherApplication.mTxDbHelper);
+        maintain(BitherApplication.mAddressDbHelper);
+        AndroidDbConfig.checkpoint(BitherApplication.mTxDbHelper);
+        AndroidDbConfig.checkpoint(BitherApplication.mAddressDbHelper);
+
+        long sizeAfter = size(BitherApplication.mTxDbHelper) + size(BitherApplication
+                .mAddressDbHelper);
+        long duration = System.currentTimeMillis() - begin;
+        AppSharedPreference.getInstance().setDbMaintenanceResult(System.currentTimeMillis(),
+                sizeBefore, sizeAfter, duration);
+        log.info("db maintenance {} -> {} bytes in {}ms", sizeBefore, sizeAfter, duration);
+    }
+
+    private static void maintain(SQLiteOpenHelper helper) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("analyze;");
+        IncrementalVacuum.Database vacuumDb = IncrementalVacuum.wrap(db);
+        long begin = System.currentTimeMillis();
+        if (!IncrementalVacuum.isIncremental(vacuumDb)) {
+            // auto_vacuum only changes with a full vacuum, paid once while charging
+            IncrementalVacuum.switchToIncremental(vacuumDb);
+            log.info("db maintenance switched {} to incremental auto_vacuum in {}ms",
+                    helper.getDatabaseName(), System.currentTimeMillis() - begin);
+            return;
+        }
+        long pages = IncrementalVacuum.run(vacuumDb, VACUUM_PAGES_PER_SLICE, VACUUM_BUDGET_MS);
+        log.info("db maintenance freed {} pages of {} in {}ms", pages, helper.getDatabaseName(),
+                System.currentTimeMillis() - begin);
+    }
+
+    private static long size(SQLiteOpenHelper helper) {
+        File file = BitherApplication.mContext.getDatabasePath(helper.getDatabaseName());
+        File wal = new File(file.getPath() + "-wal");
+        return file.length() + wal.length();
+    }
+}
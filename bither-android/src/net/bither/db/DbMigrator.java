@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import net.bither.db.base.ChunkedTableCopy;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
+import net.bither.util.BroadcastUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens the databases on a background pool early in the startup, so onUpgrade usually runs
+ * there, and then finishes the chunked table rebuilds left pending by onUpgrade. Nothing keeps
+ * a provider on the main thread from opening a database first, which is why onUpgrade only
+ * copies tables of up to one chunk inline and leaves the bigger ones to this class. Progress and failures go out through {@link BroadcastUtil#ACTION_DB_MIGRATION},
+ * a copy that keeps failing is given up after {@link ChunkedTableCopy#MAX_ATTEMPTS} starts.
+ */
+public class DbMigrator {
+    private static final Logger log = LoggerFactory.getLogger(DbMigrator.class);
+
+    private DbMigrator() {
+    }
+
+    public static void resume(final SQLiteOpenHelper helper, final ChunkedTableCopy[] copies) {
+        // DB_MAINTENANCE has a single thread, so the helpers are migrated one after another
+        TaskExecutor.execute(Pool.DB_MAINTENANCE, Priority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                for (ChunkedTableCopy copy : copies) {
+                    try {
+                        if (!copy.isPending(db)) {
+                            continue;
+                        }
+                        long begin = System.currentTimeMillis();
+                        copy.resume(db, progressListener);
+                        log.info("migration {} finished in {}ms", copy.getName(),
+                                System.currentTimeMillis() - begin);
+                    } catch (RuntimeException e) {
+                        log.error("migration " + copy.getName() + " failed", e);
+                        boolean retry = true;
+                        try {
+                            retry = copy.onFailed(db);
+                        } catch (RuntimeException recordError) {
+                            log.error("migration " + copy.getName() + " failure not recorded",
+                                    recordError);
+                        }
+                        BroadcastUtil.sendBroadcastDbMigrationFailed(copy.getName(), retry);
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private static final ChunkedTableCopy.ProgressListener progressListener = new
+            ChunkedTableCopy.ProgressListener() {
+        @Override
+        public void onProgress(ChunkedTableCopy copy, int copied, int total) {
+            BroadcastUtil.sendBroadcastDbMigration(copy.getName(), copied, total);
+        }
+    };
+}
@@ -20,6 +20,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import net.bither.BitherApplication;
 import net.bither.bitherj.core.EnterpriseHDMAddress;
@@ -29,12 +30,41 @@ import net.bither.bitherj.db.IEnterpriseHDMProvider;
 import net.bither.bitherj.exception.AddressFormatException;
 import net.bither.bitherj.utils.Base58;
 import net.bither.bitherj.utils.Utils;
+import net.bither.db.base.AndroidStatementCache;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class EnterpriseHDMProvider implements IEnterpriseHDMProvider {
+    private static final String[] PUB_KEY_COLUMNS = new String[]{
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_0,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_1,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_2,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_3,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_4,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_5,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_6,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_7,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_8,
+            AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_9};
+
+    private static final int COLUMN_HDM_INDEX = 0;
+    private static final int COLUMN_ADDRESS = 1;
+    private static final int COLUMN_IS_SYNCED = 2;
+    private static final int COLUMN_PUB_KEY_0 = 3;
+
+    // columns in the order of INSERT_ENTERPRISE_HDM_ADDRESS_SQL and of formatColumns
+    private static final String INSERT_ENTERPRISE_HDM_ADDRESS_SQL = AndroidStatementCache
+            .insertSql(AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS, new String[]{AbstractDb
+                    .EnterpriseHDMAddressColumns.HDM_INDEX, AbstractDb
+                    .EnterpriseHDMAddressColumns.ADDRESS, AbstractDb
+                    .EnterpriseHDMAddressColumns.IS_SYNCED, PUB_KEY_COLUMNS[0],
+                    PUB_KEY_COLUMNS[1], PUB_KEY_COLUMNS[2], PUB_KEY_COLUMNS[3],
+                    PUB_KEY_COLUMNS[4], PUB_KEY_COLUMNS[5], PUB_KEY_COLUMNS[6],
+                    PUB_KEY_COLUMNS[7], PUB_KEY_COLUMNS[8], PUB_KEY_COLUMNS[9]});
+
     private SQLiteOpenHelper mDb;
+    private AndroidStatementCache statementCache = new AndroidStatementCache();
 
     private static EnterpriseHDMProvider enterpriseHDMProvider = new EnterpriseHDMProvider(
             BitherApplication.mAddressDbHelper);
@@ -53,28 +83,32 @@ public class EnterpriseHDMProvider implements IEnterpriseHDMProvider {
 
         SQLiteDatabase db = this.mDb.getWritableDatabase();
         db.beginTransaction();
-        for (EnterpriseHDMAddress enterpriseHDMAddress : enterpriseHDMAddressList) {
-            ContentValues cv = applyContentValues(enterpriseHDMAddress);
-            db.insert(AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS, null, cv);
+        try {
+            for (final EnterpriseHDMAddress enterpriseHDMAddress : enterpriseHDMAddressList) {
+                statementCache.insertInTransaction(db, AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS,
+                        INSERT_ENTERPRISE_HDM_ADDRESS_SQL, new AndroidStatementCache.Binder() {
+                            @Override
+                            public void bind(SQLiteStatement statement) {
+                                bindEnterpriseHDMAddress(statement, enterpriseHDMAddress);
+                            }
+                        });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        db.setTransactionSuccessful();
-        db.endTransaction();
 
     }
 
-    private ContentValues applyContentValues(EnterpriseHDMAddress enterpriseHDMAddress) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(AbstractDb.EnterpriseHDMAddressColumns.HDM_INDEX, enterpriseHDMAddress.getIndex());
-        contentValues.put(AbstractDb.EnterpriseHDMAddressColumns.ADDRESS, enterpriseHDMAddress.getAddress());
-        contentValues.put(AbstractDb.EnterpriseHDMAddressColumns.IS_SYNCED, enterpriseHDMAddress.isSyncComplete() ? 1 : 0);
-        String pubKeyStr = "pub_key_%d";
+    private void bindEnterpriseHDMAddress(SQLiteStatement statement, EnterpriseHDMAddress
+            enterpriseHDMAddress) {
+        statement.bindLong(COLUMN_HDM_INDEX + 1, enterpriseHDMAddress.getIndex());
+        statement.bindString(COLUMN_ADDRESS + 1, enterpriseHDMAddress.getAddress());
+        statement.bindLong(COLUMN_IS_SYNCED + 1, enterpriseHDMAddress.isSyncComplete() ? 1 : 0);
         for (int i = 0; i < enterpriseHDMAddress.pubCount(); i++) {
             byte[] bytes = enterpriseHDMAddress.getPubkeys().get(i);
-            contentValues.put(Utils.format(pubKeyStr, i), Base58.encode(bytes));
+            statement.bindString(COLUMN_PUB_KEY_0 + i + 1, Base58.encode(bytes));
         }
-
-        return contentValues;
-
     }
 
     @Override
@@ -186,8 +220,9 @@ public class EnterpriseHDMProvider implements IEnterpriseHDMProvider {
         cursor = db.rawQuery("select * from " + AbstractDb.Tables.ENTERPRISE_HDM_ADDRESS + " order by hdm_index asc ",
                 null);
         try {
+            int[] columns = formatColumns(cursor);
             while (cursor.moveToNext()) {
-                enterpriseHDMAddressList.add(format(cursor, threshold, keychain));
+                enterpriseHDMAddressList.add(format(cursor, columns, threshold, keychain));
             }
         } catch (AddressFormatException e) {
             e.printStackTrace();
@@ -275,93 +310,49 @@ public class EnterpriseHDMProvider implements IEnterpriseHDMProvider {
     }
 
 
-    private EnterpriseHDMAddress format(Cursor c, int threshold, EnterpriseHDMKeychain keychain)
+    /**
+     * Resolves the column indexes used by format once per query instead of once per row.
+     */
+    private int[] formatColumns(Cursor c) {
+        int[] columns = new int[COLUMN_PUB_KEY_0 + PUB_KEY_COLUMNS.length];
+        columns[COLUMN_HDM_INDEX] = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns
+                .HDM_INDEX);
+        columns[COLUMN_ADDRESS] = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.ADDRESS);
+        columns[COLUMN_IS_SYNCED] = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns
+                .IS_SYNCED);
+        for (int i = 0; i < PUB_KEY_COLUMNS.length; i++) {
+            columns[COLUMN_PUB_KEY_0 + i] = c.getColumnIndex(PUB_KEY_COLUMNS[i]);
+        }
+        return columns;
+    }
+
+    private EnterpriseHDMAddress format(Cursor c, int[] columns, int threshold,
+                                        EnterpriseHDMKeychain keychain)
             throws AddressFormatException {
         String address = null;
         boolean isSync = false;
         int index = 0;
         List<byte[]> bytes = new ArrayList<byte[]>();
 
-        int idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.HDM_INDEX);
+        int idColumn = columns[COLUMN_HDM_INDEX];
         if (idColumn != -1) {
             index = c.getInt(idColumn);
         }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.ADDRESS);
+        idColumn = columns[COLUMN_ADDRESS];
         if (idColumn != -1) {
             address = c.getString(idColumn);
         }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.IS_SYNCED);
+        idColumn = columns[COLUMN_IS_SYNCED];
         if (idColumn != -1) {
             isSync = c.getInt(idColumn) == 1;
         }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_0);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_1);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_2);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_3);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_4);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_5);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_6);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_7);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_8);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
-            }
-        }
-        idColumn = c.getColumnIndex(AbstractDb.EnterpriseHDMAddressColumns.PUB_KEY_9);
-        if (idColumn != -1) {
-            String pub = c.getString(idColumn);
-            if (!Utils.isEmpty(pub)) {
-                bytes.add(Base58.decode(pub));
+        for (int i = 0; i < PUB_KEY_COLUMNS.length; i++) {
+            idColumn = columns[COLUMN_PUB_KEY_0 + i];
+            if (idColumn != -1) {
+                String pub = c.getString(idColumn);
+                if (!Utils.isEmpty(pub)) {
+                    bytes.add(Base58.decode(pub));
+                }
             }
         }
         EnterpriseHDMAddress.Pubs pubs = new EnterpriseHDMAddress.Pubs(index, threshold, bytes);
@@ -26,6 +26,7 @@ import net.bither.bitherj.db.imp.AbstractHDAccountProvider;
 import net.bither.bitherj.db.imp.base.IDb;
 import net.bither.bitherj.utils.Base58;
 import net.bither.db.base.AndroidDb;
+import net.bither.db.base.AndroidDbManager;
 
 public class HDAccountProvider extends AbstractHDAccountProvider {
     private static HDAccountProvider hdAccountProvider = new HDAccountProvider(BitherApplication.mAddressDbHelper);
@@ -34,20 +35,20 @@ public class HDAccountProvider extends AbstractHDAccountProvider {
         return hdAccountProvider;
     }
 
-    private SQLiteOpenHelper helper;
+    private AndroidDbManager dbManager;
 
     public HDAccountProvider(SQLiteOpenHelper helper) {
-        this.helper = helper;
+        this.dbManager = AndroidDbManager.getInstance(helper);
     }
 
     @Override
     public IDb getReadDb() {
-        return new AndroidDb(this.helper.getReadableDatabase());
+        return this.dbManager.getReadDb();
     }
 
     @Override
     public IDb getWriteDb() {
-        return new AndroidDb(this.helper.getWritableDatabase());
+        return this.dbManager.getWriteDb();
     }
 
     @Override
@@ -21,7 +21,7 @@ import android.database.sqlite.SQLiteOpenHelper;
 import net.bither.BitherApplication;
 import net.bither.bitherj.db.imp.AbstractPeerProvider;
 import net.bither.bitherj.db.imp.base.IDb;
-import net.bither.db.base.AndroidDb;
+import net.bither.db.base.AndroidDbManager;
 
 public class PeerProvider extends AbstractPeerProvider {
     private static PeerProvider peerProvider = new PeerProvider(BitherApplication.mTxDbHelper);
@@ -30,19 +30,19 @@ public class PeerProvider extends AbstractPeerProvider {
         return peerProvider;
     }
 
-    private SQLiteOpenHelper helper;
+    private AndroidDbManager dbManager;
 
     public PeerProvider(SQLiteOpenHelper helper) {
-        this.helper = helper;
+        this.dbManager = AndroidDbManager.getInstance(helper);
     }
 
     @Override
     public IDb getReadDb() {
-        return new AndroidDb(this.helper.getReadableDatabase());
+        return this.dbManager.getReadDb();
     }
 
     @Override
     public IDb getWriteDb() {
-        return new AndroidDb(this.helper.getWritableDatabase());
+        return this.dbManager.getWriteDb();
     }
 }
@@ -23,12 +23,63 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 import net.bither.BitherApplication;
 import net.bither.bitherj.db.AbstractDb;
+import net.bither.db.base.AndroidDbConfig;
+import net.bither.db.base.ChunkedTableCopy;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class TxDatabaseHelper extends SQLiteOpenHelper {
 
-    public static final int DB_VERSION = 3;
+    public static final int DB_VERSION = 4;
     private static final String DB_NAME = "bitherj.db";
 
+    // v4 indexes for the hot query shapes, the primary keys already cover ins(tx_hash, in_sn),
+    // outs(tx_hash, out_sn) and addresses_txs(address, tx_hash). The history of an address is
+    // served by the addresses_txs and txs primary keys, only its own txs get sorted by tx_time.
+    static final String CREATE_ADDRESSTXS_TX_HASH_INDEX = "create index if not exists " +
+            "idx_addresses_txs_tx_hash on addresses_txs (tx_hash);";
+    static final String CREATE_IN_PREV_TX_HASH_OUT_SN_INDEX = "create index if not " +
+            "exists idx_in_prev_tx_hash_out_sn on ins (prev_tx_hash, prev_out_sn);";
+    static final String CREATE_OUT_ADDRESS_STATUS_VALUE_INDEX = "create index if not " +
+            "exists idx_out_out_address_status_value on outs (out_address, out_status, " +
+            "out_value);";
+    static final String CREATE_OUT_HD_ACCOUNT_ID_STATUS_VALUE_INDEX = "create index if " +
+            "not exists idx_out_hd_account_id_status_value on outs (hd_account_id, out_status, " +
+            "out_value);";
+
+    static final String[] V4_INDEXES = new String[]{CREATE_ADDRESSTXS_TX_HASH_INDEX,
+            CREATE_IN_PREV_TX_HASH_OUT_SN_INDEX, CREATE_OUT_ADDRESS_STATUS_VALUE_INDEX,
+            CREATE_OUT_HD_ACCOUNT_ID_STATUS_VALUE_INDEX};
+
+    // prefixes of the v4 indexes, they only cost writes once those exist
+    static final String[] SUPERSEDED_INDEXES = new String[]{
+            AbstractDb.CREATE_IN_PREV_TX_HASH_INDEX, AbstractDb.CREATE_OUT_OUT_ADDRESS_INDEX,
+            AbstractDb.CREATE_OUT_HD_ACCOUNT_ID_INDEX};
+
+    private static final Pattern INDEX_NAME = Pattern.compile(
+            "index\\s+(?:if\\s+not\\s+exists\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private static final String CREATE_HD_ACCOUNT_ADDRESSES2_SQL = "create table if not exists " +
+            "hd_account_addresses2 " +
+            "(hd_account_id integer not null" +
+            ", path_type integer not null" +
+            ", address_index integer not null" +
+            ", is_issued integer not null" +
+            ", address text not null" +
+            ", pub text not null" +
+            ", is_synced integer not null" +
+            ", primary key (address));";
+
+    static final ChunkedTableCopy V2_TO_V3_HD_ACCOUNT_ADDRESSES = new ChunkedTableCopy(
+            "tx_v3_hd_account_addresses", "hd_account_addresses", "hd_account_addresses2",
+            CREATE_HD_ACCOUNT_ADDRESSES2_SQL, new String[]{"hd_account_id", "path_type",
+            "address_index", "is_issued", "address", "pub", "is_synced"}, new String[]{"address"},
+            new String[]{AbstractDb.CREATE_HD_ACCOUNT_ACCOUNT_ID_AND_PATH_TYPE_INDEX});
+
+    public static final ChunkedTableCopy[] CHUNKED_MIGRATIONS = new ChunkedTableCopy[]{
+            V2_TO_V3_HD_ACCOUNT_ADDRESSES};
+
     public TxDatabaseHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
     }
@@ -43,6 +94,17 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
         createPeersTable(db);
         createHDAccountAddress(db);
         db.execSQL(AbstractDb.CREATE_HD_ACCOUNT_ACCOUNT_ID_AND_PATH_TYPE_INDEX);
+        createV4Indexes(db);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        AndroidDbConfig.onConfigure(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        AndroidDbConfig.onOpen(db);
     }
 
     @Override
@@ -52,6 +114,8 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
                 v1Tov2(db);
             case 2:
                 v2Tov3(db);
+            case 3:
+                v3Tov4(db);
 
         }
     }
@@ -74,13 +138,10 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
 
     private void createInsTable(SQLiteDatabase db) {
         db.execSQL(AbstractDb.CREATE_INS_SQL);
-        db.execSQL(AbstractDb.CREATE_IN_PREV_TX_HASH_INDEX);
     }
 
     private void createOutsTable(SQLiteDatabase db) {
         db.execSQL(AbstractDb.CREATE_OUTS_SQL);
-        db.execSQL(AbstractDb.CREATE_OUT_OUT_ADDRESS_INDEX);
-        db.execSQL(AbstractDb.CREATE_OUT_HD_ACCOUNT_ID_INDEX);
     }
 
     private void createPeersTable(SQLiteDatabase db) {
@@ -92,6 +153,24 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(AbstractDb.CREATE_HD_ACCOUNT_ADDRESS_INDEX);
     }
 
+    private void createV4Indexes(SQLiteDatabase db) {
+        for (String sql : V4_INDEXES) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * @return name of the index the create index statement creates
+     */
+    static String indexName(String createIndexSql) {
+        Matcher matcher = INDEX_NAME.matcher(createIndexSql);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("not a create index statement: " +
+                    createIndexSql);
+        }
+        return matcher.group(1);
+    }
+
 //    private void createColdHDAccountAddress(SQLiteDatabase db) {
 //        db.execSQL(AbstractDb.CREATE_COLD_HD_ACCOUNT_ADDRESSES);
 //        db.execSQL(AbstractDb.CREATE_COLD_HD_ACCOUNT_ADDRESS_INDEX);
@@ -114,16 +193,6 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
         }
         c.close();
 
-        db.execSQL("create table if not exists " +
-                "hd_account_addresses2 " +
-                "(hd_account_id integer not null" +
-                ", path_type integer not null" +
-                ", address_index integer not null" +
-                ", is_issued integer not null" +
-                ", address text not null" +
-                ", pub text not null" +
-                ", is_synced integer not null" +
-                ", primary key (address));");
         if (cnt > 0) {
             db.execSQL("ALTER TABLE hd_account_addresses ADD COLUMN hd_account_id integer");
 
@@ -143,31 +212,24 @@ public class TxDatabaseHelper extends SQLiteOpenHelper {
             }
 
             db.execSQL("update hd_account_addresses set hd_account_id=?", new String[] {Integer.toString(hd_account_id)});
-            db.execSQL("INSERT INTO hd_account_addresses2(hd_account_id,path_type,address_index,is_issued,address,pub,is_synced) " +
-                    "SELECT hd_account_id,path_type,address_index,is_issued,address,pub,is_synced FROM hd_account_addresses;");
-        }
-        int oldCnt = 0;
-        int newCnt = 0;
-        c = db.rawQuery("select count(0) cnt from hd_account_addresses", null);
-        if (c.moveToNext()) {
-            oldCnt = c.getInt(0);
-        }
-        c.close();
-        c = db.rawQuery("select count(0) cnt from hd_account_addresses2", null);
-        if (c.moveToNext()) {
-            newCnt = c.getInt(0);
-        }
-        c.close();
-        if (oldCnt != newCnt) {
-            throw new RuntimeException("tx db upgrade from 2 to 3 failed. new hd_account_addresses table record count not the same as old one");
+            // big tables are copied in chunks by DbMigrator after the db is open
+            V2_TO_V3_HD_ACCOUNT_ADDRESSES.prepare(db);
         } else {
+            db.execSQL(CREATE_HD_ACCOUNT_ADDRESSES2_SQL);
             db.execSQL("DROP TABLE hd_account_addresses;");
             db.execSQL("ALTER TABLE hd_account_addresses2 RENAME TO hd_account_addresses;");
+            db.execSQL(AbstractDb.CREATE_HD_ACCOUNT_ACCOUNT_ID_AND_PATH_TYPE_INDEX);
         }
 
         db.execSQL(AbstractDb.CREATE_OUT_HD_ACCOUNT_ID_INDEX);
-        db.execSQL(AbstractDb.CREATE_HD_ACCOUNT_ACCOUNT_ID_AND_PATH_TYPE_INDEX);
     }
 
-
+    private void v3Tov4(SQLiteDatabase db) {
+        // covering indexes for balance and history queries
+        createV4Indexes(db);
+        for (String sql : SUPERSEDED_INDEXES) {
+            db.execSQL("drop index if exists " + indexName(sql) + ";");
+        }
+        db.execSQL("analyze;");
+    }
 }
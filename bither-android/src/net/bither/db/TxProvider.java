@@ -18,6 +18,7 @@ package net.bither.db;
 
 import android.content.ContentValues;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import net.bither.BitherApplication;
 import net.bither.bitherj.core.In;
@@ -29,8 +30,23 @@ import net.bither.bitherj.db.imp.base.IDb;
 import net.bither.bitherj.utils.Base58;
 import net.bither.bitherj.utils.Utils;
 import net.bither.db.base.AndroidDb;
+import net.bither.db.base.AndroidDbManager;
+import net.bither.db.base.AndroidStatementCache;
 
 public class TxProvider extends AbstractTxProvider {
+    private static final String INSERT_TX_SQL = AndroidStatementCache.insertSql(AbstractDb
+            .Tables.TXS, new String[]{AbstractDb.TxsColumns.BLOCK_NO, AbstractDb.TxsColumns
+            .TX_HASH, AbstractDb.TxsColumns.SOURCE, AbstractDb.TxsColumns.TX_TIME, AbstractDb
+            .TxsColumns.TX_VER, AbstractDb.TxsColumns.TX_LOCKTIME});
+    private static final String INSERT_IN_SQL = AndroidStatementCache.insertSql(AbstractDb
+            .Tables.INS, new String[]{AbstractDb.InsColumns.TX_HASH, AbstractDb.InsColumns
+            .IN_SN, AbstractDb.InsColumns.PREV_TX_HASH, AbstractDb.InsColumns.PREV_OUT_SN,
+            AbstractDb.InsColumns.IN_SIGNATURE, AbstractDb.InsColumns.IN_SEQUENCE});
+    private static final String INSERT_OUT_SQL = AndroidStatementCache.insertSql(AbstractDb
+            .Tables.OUTS, new String[]{AbstractDb.OutsColumns.TX_HASH, AbstractDb.OutsColumns
+            .OUT_SN, AbstractDb.OutsColumns.OUT_SCRIPT, AbstractDb.OutsColumns.OUT_VALUE,
+            AbstractDb.OutsColumns.OUT_STATUS, AbstractDb.OutsColumns.OUT_ADDRESS, AbstractDb
+            .OutsColumns.HD_ACCOUNT_ID});
 
     private static TxProvider txProvider = new TxProvider(BitherApplication.mTxDbHelper);
 
@@ -38,25 +54,42 @@ public class TxProvider extends AbstractTxProvider {
         return txProvider;
     }
 
-    private SQLiteOpenHelper helper;
+    private AndroidDbManager dbManager;
+    private AndroidStatementCache statementCache = new AndroidStatementCache();
 
     public TxProvider(SQLiteOpenHelper helper) {
-        this.helper = helper;
+        this.dbManager = AndroidDbManager.getInstance(helper);
     }
 
     @Override
     public IDb getReadDb() {
-        return new AndroidDb(this.helper.getReadableDatabase());
+        return this.dbManager.getReadDb();
     }
 
     @Override
     public IDb getWriteDb() {
-        return new AndroidDb(this.helper.getWritableDatabase());
+        return this.dbManager.getWriteDb();
     }
 
     @Override
-    protected void insertTxToDb(IDb db, Tx tx) {
+    protected void insertTxToDb(IDb db, final Tx tx) {
         AndroidDb mdb = (AndroidDb)db;
+        if (statementCache.insertInTransaction(mdb.getSQLiteDatabase(), AbstractDb.Tables.TXS,
+                INSERT_TX_SQL, new AndroidStatementCache.Binder() {
+                    @Override
+                    public void bind(SQLiteStatement statement) {
+                        if (tx.getBlockNo() != Tx.TX_UNCONFIRMED) {
+                            statement.bindLong(1, tx.getBlockNo());
+                        }
+                        statement.bindString(2, Base58.encode(tx.getTxHash()));
+                        statement.bindLong(3, tx.getSource());
+                        statement.bindLong(4, tx.getTxTime());
+                        statement.bindLong(5, tx.getTxVer());
+                        statement.bindLong(6, tx.getTxLockTime());
+                    }
+                })) {
+            return;
+        }
         ContentValues cv = new ContentValues();
         if (tx.getBlockNo() != Tx.TX_UNCONFIRMED) {
             cv.put(AbstractDb.TxsColumns.BLOCK_NO, tx.getBlockNo());
@@ -72,8 +105,24 @@ public class TxProvider extends AbstractTxProvider {
     }
 
     @Override
-    protected void insertInToDb(IDb db, In in) {
+    protected void insertInToDb(IDb db, final In in) {
         AndroidDb mdb = (AndroidDb)db;
+        if (statementCache.insertInTransaction(mdb.getSQLiteDatabase(), AbstractDb.Tables.INS,
+                INSERT_IN_SQL, new AndroidStatementCache.Binder() {
+                    @Override
+                    public void bind(SQLiteStatement statement) {
+                        statement.bindString(1, Base58.encode(in.getTxHash()));
+                        statement.bindLong(2, in.getInSn());
+                        statement.bindString(3, Base58.encode(in.getPrevTxHash()));
+                        statement.bindLong(4, in.getPrevOutSn());
+                        if (in.getInSignature() != null) {
+                            statement.bindString(5, Base58.encode(in.getInSignature()));
+                        }
+                        statement.bindLong(6, in.getInSequence());
+                    }
+                })) {
+            return;
+        }
         ContentValues cv = new ContentValues();
         cv.put(AbstractDb.InsColumns.TX_HASH, Base58.encode(in.getTxHash()));
         cv.put(AbstractDb.InsColumns.IN_SN, in.getInSn());
@@ -89,8 +138,28 @@ public class TxProvider extends AbstractTxProvider {
     }
 
     @Override
-    protected void insertOutToDb(IDb db, Out out) {
+    protected void insertOutToDb(IDb db, final Out out) {
         AndroidDb mdb = (AndroidDb)db;
+        if (statementCache.insertInTransaction(mdb.getSQLiteDatabase(), AbstractDb.Tables.OUTS,
+                INSERT_OUT_SQL, new AndroidStatementCache.Binder() {
+                    @Override
+                    public void bind(SQLiteStatement statement) {
+                        statement.bindString(1, Base58.encode(out.getTxHash()));
+                        statement.bindLong(2, out.getOutSn());
+                        statement.bindString(3, Base58.encode(out.getOutScript()));
+                        statement.bindLong(4, out.getOutValue());
+                        statement.bindLong(5, out.getOutStatus().getValue());
+                        if (!Utils.isEmpty(out.getOutAddress())) {
+                            statement.bindString(6, out.getOutAddress());
+                        }
+                        //support hd
+                        if (out.getHDAccountId() != -1) {
+                            statement.bindLong(7, out.getHDAccountId());
+                        }
+                    }
+                })) {
+            return;
+        }
         ContentValues cv = new ContentValues();
         cv.put(AbstractDb.OutsColumns.TX_HASH, Base58.encode(out.getTxHash()));
         cv.put(AbstractDb.OutsColumns.OUT_SN, out.getOutSn());
@@ -23,6 +23,12 @@ import net.bither.bitherj.db.imp.base.ICursor;
 public class AndroidCursor implements ICursor {
 
     private Cursor cursor;
+    // row callbacks ask for the same column names in the same order on every row, the names
+    // are resolved on the first row and later rows only compare references in that order
+    private String[] columnNames = new String[8];
+    private int[] columnIndexes = new int[8];
+    private int resolvedCount;
+    private int nextColumn;
 
     public AndroidCursor(Cursor cursor) {
         this.cursor = cursor;
@@ -60,6 +66,7 @@ public class AndroidCursor implements ICursor {
 
     @Override
     public boolean moveToNext() {
+        nextColumn = 0;
         return cursor.moveToNext();
     }
 
@@ -90,7 +97,36 @@ public class AndroidCursor implements ICursor {
 
     @Override
     public int getColumnIndex(String var1) {
-        return cursor.getColumnIndex(var1);
+        if (nextColumn < resolvedCount && columnNames[nextColumn] == var1) {
+            return columnIndexes[nextColumn++];
+        }
+        int index = resolveColumnIndex(var1);
+        if (nextColumn == resolvedCount) {
+            if (resolvedCount == columnNames.length) {
+                String[] names = new String[resolvedCount * 2];
+                int[] indexes = new int[resolvedCount * 2];
+                System.arraycopy(columnNames, 0, names, 0, resolvedCount);
+                System.arraycopy(columnIndexes, 0, indexes, 0, resolvedCount);
+                columnNames = names;
+                columnIndexes = indexes;
+            }
+            resolvedCount++;
+        }
+        columnNames[nextColumn] = var1;
+        columnIndexes[nextColumn] = index;
+        nextColumn++;
+        return index;
+    }
+
+    private int resolveColumnIndex(String name) {
+        for (int i = 0;
+             i < resolvedCount;
+             i++) {
+            if (name.equals(columnNames[i])) {
+                return columnIndexes[i];
+            }
+        }
+        return cursor.getColumnIndex(name);
     }
 
     @Override
@@ -25,21 +25,36 @@ import net.bither.bitherj.db.imp.base.IDb;
 
 public class AndroidDb implements IDb {
 
-    private SQLiteDatabase sqliteDatabase;
+    private final SQLiteDatabase sqliteDatabase;
+    private final AndroidDbManager manager;
 
     public AndroidDb(SQLiteDatabase sqliteDatabase) {
+        this(sqliteDatabase, null);
+    }
+
+    public AndroidDb(SQLiteDatabase sqliteDatabase, AndroidDbManager manager) {
         this.sqliteDatabase = sqliteDatabase;
+        this.manager = manager;
     }
 
     @Override
     public void beginTransaction() {
+        if (manager == null) {
+            this.sqliteDatabase.beginTransaction();
+            return;
+        }
+        long begin = System.nanoTime();
         this.sqliteDatabase.beginTransaction();
+        manager.onBeginTransaction(System.nanoTime() - begin);
     }
 
     @Override
     public void endTransaction() {
         this.sqliteDatabase.setTransactionSuccessful();
         this.sqliteDatabase.endTransaction();
+        if (manager != null) {
+            manager.onEndTransaction();
+        }
     }
 
     @Override
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import net.bither.preference.AppSharedPreference;
+import net.bither.util.SdkUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection settings shared by TxDatabaseHelper and AddressDatabaseHelper.
+ * <p/>
+ * Write-ahead logging is opt-in from API 11 through the database setting of the advanced
+ * options, see {@link AppSharedPreference#getDbWalMode()}, and takes effect when the databases
+ * are opened next. With WAL on, readers such as the tx list of an address don't wait for
+ * PeerManager's writes during sync, and synchronous can safely drop to NORMAL. The WAL file is
+ * checkpointed when sync goes idle, see {@link #checkpoint(SQLiteOpenHelper)}.
+ * <p/>
+ * The pragmas are per connection and SQLiteDatabase has no hook for the reader connections it
+ * pools in WAL mode, so cache_size, temp_store and mmap_size only reach the primary connection,
+ * which does all the writes of the sync. The pooled readers keep sqlite's defaults, the
+ * platform sets their journal mode and synchronous itself.
+ */
+public class AndroidDbConfig {
+    private static final Logger log = LoggerFactory.getLogger(AndroidDbConfig.class);
+
+    // negative cache_size is in KiB, 2MiB per connection
+    private static final int CACHE_SIZE_KB = 2048;
+    // ignored by sqlite versions without mmap support
+    private static final long MMAP_SIZE = 16 * 1024 * 1024;
+    private static final String[] PRAGMAS = new String[]{"cache_size=-" + CACHE_SIZE_KB,
+            "temp_store=MEMORY", "mmap_size=" + MMAP_SIZE};
+
+    private AndroidDbConfig() {
+    }
+
+    public static boolean isWalMode() {
+        return SdkUtils.hasHoneycomb() && AppSharedPreference.getInstance().getDbWalMode();
+    }
+
+    /**
+     * Called from SQLiteOpenHelper.onConfigure, API 16+.
+     */
+    @TargetApi(16)
+    public static void onConfigure(SQLiteDatabase db) {
+        if (isWalMode()) {
+            db.enableWriteAheadLogging();
+        } else {
+            db.disableWriteAheadLogging();
+        }
+        applyPragmas(db);
+    }
+
+    /**
+     * Called from SQLiteOpenHelper.onOpen, only does work before API 16 where onConfigure
+     * is not available.
+     */
+    @TargetApi(11)
+    public static void onOpen(SQLiteDatabase db) {
+        if (SdkUtils.hasJellyBean() || db.isReadOnly()) {
+            return;
+        }
+        if (isWalMode()) {
+            db.enableWriteAheadLogging();
+        }
+        applyPragmas(db);
+    }
+
+    /**
+     * The pragmas set on the primary connection, in order, also used by DbOpenBenchmark.
+     */
+    public static String[] getPragmas(boolean walMode) {
+        if (!walMode) {
+            return PRAGMAS.clone();
+        }
+        String[] pragmas = new String[PRAGMAS.length + 1];
+        // enableWriteAheadLogging resets synchronous, so this must come after it
+        pragmas[0] = "synchronous=NORMAL";
+        System.arraycopy(PRAGMAS, 0, pragmas, 1, PRAGMAS.length);
+        return pragmas;
+    }
+
+    private static void applyPragmas(SQLiteDatabase db) {
+        for (String pragma : getPragmas(isWalMode())) {
+            pragma(db, pragma);
+        }
+    }
+
+    public static void checkpoint(SQLiteOpenHelper helper) {
+        if (!isWalMode()) {
+            return;
+        }
+        try {
+            long begin = System.currentTimeMillis();
+            pragma(helper.getWritableDatabase(), "wal_checkpoint(PASSIVE)");
+            log.info("checkpoint {} in {}ms", helper.getDatabaseName(),
+                    System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            log.warn("checkpoint " + helper.getDatabaseName() + " failed", e);
+        }
+    }
+
+    /**
+     * Runs the pragma on the primary connection: SQLiteDatabase compiles every PRAGMA there,
+     * which is where the setters take effect. execSQL does not accept pragmas returning a row.
+     * Only steps the statement once, which is all a setter needs.
+     */
+    public static void pragma(SQLiteDatabase db, String pragma) {
+        SQLiteStatement statement = db.compileStatement("PRAGMA " + pragma);
+        try {
+            statement.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            // no result row
+        } finally {
+            statement.close();
+        }
+    }
+
+    public static long pragmaLong(SQLiteDatabase db, String pragma) {
+        Cursor c = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out one long-lived AndroidDb per SQLiteOpenHelper instead of wrapping the helper's
+ * database in a new AndroidDb for every provider call. All providers sharing a helper share
+ * the same handles, so they also share one view of the transaction state.
+ * <p/>
+ * With write-ahead logging enabled (see {@link AndroidDbConfig}), SQLiteDatabase keeps a pool of
+ * reader connections next to the primary writer connection, so readers on the UI thread are not
+ * blocked by the sync writer.
+ */
+public class AndroidDbManager {
+    private static final HashMap<SQLiteOpenHelper, AndroidDbManager> managers = new
+            HashMap<SQLiteOpenHelper, AndroidDbManager>();
+
+    public static synchronized AndroidDbManager getInstance(SQLiteOpenHelper helper) {
+        AndroidDbManager manager = managers.get(helper);
+        if (manager == null) {
+            manager = new AndroidDbManager(helper);
+            managers.put(helper, manager);
+        }
+        return manager;
+    }
+
+    private final SQLiteOpenHelper helper;
+    // read without the lock on the fast path of getReadDb and getWriteDb
+    private volatile AndroidDb readDb;
+    private volatile AndroidDb writeDb;
+
+    private final AtomicLong readAcquireCount = new AtomicLong();
+    private final AtomicLong writeAcquireCount = new AtomicLong();
+    private final AtomicLong transactionCount = new AtomicLong();
+    private final AtomicLong lockWaitNanos = new AtomicLong();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+    private final AtomicLong transactionNanos = new AtomicLong();
+    // {nesting depth, begin of the outermost transaction} of the current thread
+    private final ThreadLocal<long[]> transactionState = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    private AndroidDbManager(SQLiteOpenHelper helper) {
+        this.helper = helper;
+    }
+
+    public AndroidDb getReadDb() {
+        readAcquireCount.incrementAndGet();
+        AndroidDb db = readDb;
+        if (db == null || !db.getSQLiteDatabase().isOpen()) {
+            synchronized (this) {
+                if (readDb == null || !readDb.getSQLiteDatabase().isOpen()) {
+                    readDb = new AndroidDb(open(false), this);
+                }
+                db = readDb;
+            }
+        }
+        return db;
+    }
+
+    public AndroidDb getWriteDb() {
+        writeAcquireCount.incrementAndGet();
+        AndroidDb db = writeDb;
+        if (db == null || !db.getSQLiteDatabase().isOpen()) {
+            synchronized (this) {
+                if (writeDb == null || !writeDb.getSQLiteDatabase().isOpen()) {
+                    writeDb = new AndroidDb(open(true), this);
+                }
+                db = writeDb;
+            }
+        }
+        return db;
+    }
+
+    private SQLiteDatabase open(boolean writable) {
+        long begin = System.nanoTime();
+        SQLiteDatabase db = writable ? helper.getWritableDatabase() : helper
+                .getReadableDatabase();
+        recordLockWait(System.nanoTime() - begin);
+        return db;
+    }
+
+    void onBeginTransaction(long waitNanos) {
+        transactionCount.incrementAndGet();
+        recordLockWait(waitNanos);
+        long[] state = transactionState.get();
+        if (state[0]++ == 0) {
+            state[1] = System.nanoTime();
+        }
+    }
+
+    void onEndTransaction() {
+        long[] state = transactionState.get();
+        if (state[0] > 0 && --state[0] == 0) {
+            transactionNanos.addAndGet(System.nanoTime() - state[1]);
+        }
+    }
+
+    private void recordLockWait(long waitNanos) {
+        lockWaitNanos.addAndGet(waitNanos);
+        long max = maxLockWaitNanos.get();
+        while (waitNanos > max && !maxLockWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxLockWaitNanos.get();
+        }
+    }
+
+    public long getReadAcquireCount() {
+        return readAcquireCount.get();
+    }
+
+    public long getWriteAcquireCount() {
+        return writeAcquireCount.get();
+    }
+
+    public long getTransactionCount() {
+        return transactionCount.get();
+    }
+
+    public long getLockWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.get());
+    }
+
+    public long getMaxLockWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLockWaitNanos.get());
+    }
+
+    /**
+     * Time spent inside write transactions, from the outermost begin to its end.
+     */
+    public long getTransactionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(transactionNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return helper.getDatabaseName() + " read: " + getReadAcquireCount() + ", write: " +
+                getWriteAcquireCount() + ", transaction: " + getTransactionCount() + ", lock " +
+                "wait: " + getLockWaitMillis() + "ms, max lock wait: " + getMaxLockWaitMillis()
+                + "ms, in transaction: " + getTransactionMillis() + "ms";
+    }
+}
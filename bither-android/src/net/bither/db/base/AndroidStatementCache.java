@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+/**
+ * Keeps compiled statements around for the lifetime of one SQLiteDatabase so that hot insert
+ * paths don't pay for compiling the same sql on every row.
+ * <p/>
+ * Callers must only bind/execute a cached statement while the current thread holds a
+ * transaction on the database, and must synchronize on the statement while doing so.
+ * {@link #insertInTransaction(SQLiteDatabase, String, String, Binder)} does both for inserts.
+ */
+public class AndroidStatementCache {
+    private static final Logger log = LoggerFactory.getLogger(AndroidStatementCache.class);
+
+    /**
+     * Binds the values of one row, the bindings are cleared before.
+     */
+    public interface Binder {
+        void bind(SQLiteStatement statement);
+    }
+
+    private SQLiteDatabase db;
+    private final HashMap<String, SQLiteStatement> statements = new HashMap<String,
+            SQLiteStatement>();
+
+    public synchronized SQLiteStatement get(SQLiteDatabase db, String sql) {
+        if (this.db != db) {
+            clear();
+            this.db = db;
+        }
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Inserts one row through the cached statement of sql if the current thread holds a
+     * transaction on db. A row that fails is logged and skipped, as SQLiteDatabase.insert does.
+     *
+     * @return false without a transaction, the caller inserts through ContentValues then
+     */
+    public boolean insertInTransaction(SQLiteDatabase db, String table, String sql, Binder
+            binder) {
+        if (!db.inTransaction()) {
+            return false;
+        }
+        SQLiteStatement statement = get(db, sql);
+        synchronized (statement) {
+            statement.clearBindings();
+            binder.bind(statement);
+            try {
+                statement.executeInsert();
+            } catch (SQLException e) {
+                log.error("Error inserting into " + table, e);
+            }
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        db = null;
+    }
+
+    public static String insertSql(String table, String[] columns) {
+        StringBuilder sql = new StringBuilder("insert into ");
+        sql.append(table).append("(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(",");
+            }
+            sql.append(columns[i]);
+        }
+        sql.append(") values (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(")");
+        return sql.toString();
+    }
+}
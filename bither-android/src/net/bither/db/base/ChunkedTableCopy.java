@@ -0,0 +1,341 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Rebuilds a table by copying it into a new table in bounded chunks, then swapping the new
+ * table in. Progress is kept in the db_migrations table of the same database and committed
+ * together with each chunk, so a killed process resumes after the last committed chunk.
+ * <p/>
+ * While the copy is pending the app keeps using the source table. Triggers mirror every
+ * insert, update and delete on the source into the target, and chunks are copied with
+ * "insert or ignore" so a row already mirrored by a trigger is never overwritten by an older
+ * copy.
+ * <p/>
+ * A copy that failed {@link #MAX_ATTEMPTS} times is abandoned, the app then keeps the source
+ * table for good.
+ * <p/>
+ * The copy only talks to the database through {@link Database}, so the tests can run it on
+ * the JVM against sqlite-jdbc.
+ */
+public class ChunkedTableCopy {
+    public static final String CREATE_MIGRATIONS_SQL = "create table if not exists " +
+            "db_migrations (name text not null primary key, last_rowid integer not null, " +
+            "done integer not null, failures integer not null default 0);";
+
+    public static final int DEFAULT_CHUNK_SIZE = 2000;
+    public static final int MAX_ATTEMPTS = 3;
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_ABANDONED = 2;
+
+    public interface ProgressListener {
+        void onProgress(ChunkedTableCopy copy, int copied, int total);
+    }
+
+    /**
+     * The part of SQLiteDatabase the copy needs, transactions nest as in SQLiteDatabase.
+     */
+    public interface Database {
+        void execSQL(String sql, Object[] bindArgs);
+
+        /**
+         * @return the first column of the first row, null without a row or for a null value
+         */
+        Long queryLong(String sql, String[] selectionArgs);
+
+        void beginTransaction();
+
+        void setTransactionSuccessful();
+
+        void endTransaction();
+    }
+
+    private final String name;
+    private final String source;
+    private final String target;
+    private final String createTargetSql;
+    private final String[] columns;
+    private final String[] keyColumns;
+    private final String[] afterSwapSql;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * @param createTargetSql creates the target table, must be "if not exists"
+     * @param columns         columns copied from source to target
+     * @param keyColumns      primary key of the target
+     * @param afterSwapSql    run after the target is renamed to source, e.g. to recreate indexes
+     */
+    public ChunkedTableCopy(String name, String source, String target, String createTargetSql,
+                            String[] columns, String[] keyColumns, String[] afterSwapSql) {
+        this.name = name;
+        this.source = source;
+        this.target = target;
+        this.createTargetSql = createTargetSql;
+        this.columns = columns;
+        this.keyColumns = keyColumns;
+        this.afterSwapSql = afterSwapSql;
+    }
+
+    public ChunkedTableCopy setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Called from onUpgrade, inside the upgrade transaction. Small tables are rebuilt right
+     * away, bigger ones are recorded as pending and left to {@link #resume}.
+     *
+     * @return true if the table has been rebuilt already
+     */
+    public boolean prepare(SQLiteDatabase db) {
+        return prepare(wrap(db));
+    }
+
+    public boolean prepare(Database db) {
+        execSQL(db, CREATE_MIGRATIONS_SQL);
+        execSQL(db, createTargetSql);
+        if (count(db, source) <= chunkSize) {
+            execSQL(db, "insert or ignore into " + target + "(" + join(columns, "") + ") " +
+                    "select " + join(columns, "") + " from " + source);
+            verifyAndSwap(db);
+            return true;
+        }
+        createTriggers(db);
+        db.execSQL("insert or replace into db_migrations(name,last_rowid,done,failures) values " +
+                "(?,0," + STATE_PENDING + ",0)", new Object[]{name});
+        return false;
+    }
+
+    public boolean isPending(SQLiteDatabase db) {
+        return isPending(wrap(db));
+    }
+
+    public boolean isPending(Database db) {
+        execSQL(db, CREATE_MIGRATIONS_SQL);
+        Long done = db.queryLong("select done from db_migrations where name=?",
+                new String[]{name});
+        return done != null && done == STATE_PENDING;
+    }
+
+    /**
+     * Copies the remaining rows chunk by chunk, each chunk in its own transaction, and swaps
+     * the tables at the end. Must not be called on the main thread.
+     */
+    public void resume(SQLiteDatabase db, ProgressListener listener) {
+        resume(wrap(db), listener);
+    }
+
+    public void resume(Database db, ProgressListener listener) {
+        if (!isPending(db)) {
+            return;
+        }
+        int total = count(db, source);
+        int copied = countCopied(db);
+        String copySql = "insert or ignore into " + target + "(" + join(columns, "") + ") " +
+                "select " + join(columns, "") + " from " + source + " where rowid>? and " +
+                "rowid<=?";
+        while (true) {
+            long lastRowid = lastRowid(db);
+            long chunkEnd = chunkEnd(db, lastRowid);
+            if (chunkEnd < 0) {
+                break;
+            }
+            db.beginTransaction();
+            try {
+                db.execSQL(copySql, new Object[]{lastRowid, chunkEnd});
+                db.execSQL("update db_migrations set last_rowid=? where name=?",
+                        new Object[]{chunkEnd, name});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            copied = Math.min(total, copied + chunkSize);
+            if (listener != null) {
+                listener.onProgress(this, copied, total);
+            }
+        }
+        db.beginTransaction();
+        try {
+            verifyAndSwap(db);
+            db.execSQL("update db_migrations set done=" + STATE_DONE + " where name=?",
+                    new Object[]{name});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (listener != null) {
+            listener.onProgress(this, total, total);
+        }
+    }
+
+    /**
+     * Counts a failed {@link #resume}. Once the copy failed {@link #MAX_ATTEMPTS} times the
+     * triggers and the partial target are dropped and the source table stays in use.
+     *
+     * @return true if the copy is tried again on the next resume
+     */
+    public boolean onFailed(SQLiteDatabase db) {
+        return onFailed(wrap(db));
+    }
+
+    public boolean onFailed(Database db) {
+        db.execSQL("update db_migrations set failures=failures+1 where name=?",
+                new Object[]{name});
+        if (failures(db) < MAX_ATTEMPTS) {
+            return true;
+        }
+        db.beginTransaction();
+        try {
+            execSQL(db, "drop trigger if exists " + name + "_insert;");
+            execSQL(db, "drop trigger if exists " + name + "_update;");
+            execSQL(db, "drop trigger if exists " + name + "_delete;");
+            execSQL(db, "drop table if exists " + target + ";");
+            db.execSQL("update db_migrations set done=" + STATE_ABANDONED + " where name=?",
+                    new Object[]{name});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return false;
+    }
+
+    private int failures(Database db) {
+        Long failures = db.queryLong("select failures from db_migrations where name=?",
+                new String[]{name});
+        return failures == null ? 0 : failures.intValue();
+    }
+
+    private void verifyAndSwap(Database db) {
+        if (count(db, source) != count(db, target)) {
+            throw new RuntimeException("migration " + name + " failed. " + target +
+                    " record count not the same as " + source);
+        }
+        execSQL(db, "drop table " + source + ";");
+        execSQL(db, "alter table " + target + " rename to " + source + ";");
+        for (String sql : afterSwapSql) {
+            execSQL(db, sql);
+        }
+    }
+
+    private void createTriggers(Database db) {
+        String values = join(columns, "new.");
+        execSQL(db, "create trigger if not exists " + name + "_insert after insert on " + source +
+                " begin insert or replace into " + target + "(" + join(columns, "") + ") " +
+                "values (" + values + "); end;");
+        execSQL(db, "create trigger if not exists " + name + "_update after update on " + source +
+                " begin delete from " + target + " where " + keyMatch() + "; insert or replace " +
+                "into " + target + "(" + join(columns, "") + ") values (" + values + "); end;");
+        execSQL(db, "create trigger if not exists " + name + "_delete after delete on " + source +
+                " begin delete from " + target + " where " + keyMatch() + "; end;");
+    }
+
+    private String keyMatch() {
+        StringBuilder builder = new StringBuilder();
+        for (String key : keyColumns) {
+            if (builder.length() > 0) {
+                builder.append(" and ");
+            }
+            builder.append(key).append("=old.").append(key);
+        }
+        return builder.toString();
+    }
+
+    private long lastRowid(Database db) {
+        Long lastRowid = db.queryLong("select last_rowid from db_migrations where name=?",
+                new String[]{name});
+        return lastRowid == null ? 0 : lastRowid;
+    }
+
+    private long chunkEnd(Database db, long lastRowid) {
+        Long chunkEnd = db.queryLong("select max(rowid) from (select rowid from " + source +
+                " where rowid>? order by rowid limit " + chunkSize + ")", new String[]{Long
+                .toString(lastRowid)});
+        return chunkEnd == null ? -1 : chunkEnd;
+    }
+
+    private int countCopied(Database db) {
+        Long copied = db.queryLong("select count(0) from " + source + " where rowid<=?",
+                new String[]{Long.toString(lastRowid(db))});
+        return copied == null ? 0 : copied.intValue();
+    }
+
+    private static int count(Database db, String table) {
+        Long count = db.queryLong("select count(0) from " + table, null);
+        return count == null ? 0 : count.intValue();
+    }
+
+    private static void execSQL(Database db, String sql) {
+        db.execSQL(sql, new Object[0]);
+    }
+
+    /**
+     * Runs the copy on the database of a SQLiteOpenHelper.
+     */
+    public static Database wrap(final SQLiteDatabase db) {
+        return new Database() {
+            @Override
+            public void execSQL(String sql, Object[] bindArgs) {
+                db.execSQL(sql, bindArgs);
+            }
+
+            @Override
+            public Long queryLong(String sql, String[] selectionArgs) {
+                Cursor c = db.rawQuery(sql, selectionArgs);
+                try {
+                    return c.moveToNext() && !c.isNull(0) ? c.getLong(0) : null;
+                } finally {
+                    c.close();
+                }
+            }
+
+            @Override
+            public void beginTransaction() {
+                db.beginTransaction();
+            }
+
+            @Override
+            public void setTransactionSuccessful() {
+                db.setTransactionSuccessful();
+            }
+
+            @Override
+            public void endTransaction() {
+                db.endTransaction();
+            }
+        };
+    }
+
+    private static String join(String[] columns, String prefix) {
+        StringBuilder builder = new StringBuilder();
+        for (String column : columns) {
+            if (builder.length() > 0) {
+                builder.append(",");
+            }
+            builder.append(prefix).append(column);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Gives the free pages of a database back to the file system.
+ * <p/>
+ * auto_vacuum can only be set before the first table is created, and SQLiteOpenHelper creates
+ * android_metadata before onCreate, so every database of the app starts without it. The first
+ * {@link #switchToIncremental} rewrites the whole file with a full vacuum, after that
+ * {@link #slice} frees a bounded number of pages per transaction.
+ * <p/>
+ * PRAGMA incremental_vacuum returns a row for every page it frees and only frees the next one
+ * when stepped again, {@link Database#pragma} has to step it until it is done.
+ * <p/>
+ * Only talks to the database through {@link Database}, so the tests can run it on the JVM
+ * against sqlite-jdbc.
+ */
+public class IncrementalVacuum {
+    public static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int TEMP_STORE_FILE = 1;
+
+    /**
+     * The part of SQLiteDatabase the vacuum needs.
+     */
+    public interface Database {
+        /**
+         * Runs the pragma and steps it through all of its rows.
+         */
+        void pragma(String pragma);
+
+        /**
+         * @return the first column of the first row, 0 without a row
+         */
+        long pragmaLong(String pragma);
+
+        void execSQL(String sql);
+
+        void beginTransaction();
+
+        void setTransactionSuccessful();
+
+        void endTransaction();
+    }
+
+    private IncrementalVacuum() {
+    }
+
+    public static boolean isIncremental(Database db) {
+        return db.pragmaLong("auto_vacuum") == AUTO_VACUUM_INCREMENTAL;
+    }
+
+    /**
+     * Sets incremental auto_vacuum with a full vacuum, which also frees all pages. Rewrites the
+     * whole file and must not run inside a transaction. The copy goes to a temp file instead of
+     * memory for as long as it runs, the tx database can be far bigger than the heap.
+     */
+    public static void switchToIncremental(Database db) {
+        long tempStore = db.pragmaLong("temp_store");
+        db.pragma("temp_store=" + TEMP_STORE_FILE);
+        try {
+            db.pragma("auto_vacuum=INCREMENTAL");
+            db.execSQL("vacuum;");
+        } finally {
+            db.pragma("temp_store=" + tempStore);
+        }
+    }
+
+    /**
+     * Frees up to the given number of pages in one transaction, the file shrinks on commit.
+     *
+     * @return the number of pages freed
+     */
+    public static long slice(Database db, int pages) {
+        db.beginTransaction();
+        try {
+            long before = db.pragmaLong("freelist_count");
+            if (before > 0) {
+                db.pragma("incremental_vacuum(" + pages + ")");
+            }
+            long freed = before - db.pragmaLong("freelist_count");
+            db.setTransactionSuccessful();
+            return freed;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Runs slices until no free page is left or the budget is used up.
+     *
+     * @return the number of pages freed
+     */
+    public static long run(Database db, int pagesPerSlice, long budgetMillis) {
+        long begin = System.currentTimeMillis();
+        long freed = 0;
+        long sliceFreed;
+        do {
+            sliceFreed = slice(db, pagesPerSlice);
+            freed += sliceFreed;
+        } while (sliceFreed > 0 && System.currentTimeMillis() - begin < budgetMillis);
+        return freed;
+    }
+
+    public static Database wrap(final SQLiteDatabase db) {
+        return new Database() {
+            @Override
+            public void pragma(String pragma) {
+                // a cursor steps the statement until done, simpleQueryForLong only once
+                Cursor c = db.rawQuery("PRAGMA " + pragma, null);
+                try {
+                    while (c.moveToNext()) {
+                        // every row is a freed page
+                    }
+                } finally {
+                    c.close();
+                }
+            }
+
+            @Override
+            public long pragmaLong(String pragma) {
+                return AndroidDbConfig.pragmaLong(db, pragma);
+            }
+
+            @Override
+            public void execSQL(String sql) {
+                db.execSQL(sql);
+            }
+
+            @Override
+            public void beginTransaction() {
+                db.beginTransaction();
+            }
+
+            @Override
+            public void setTransactionSuccessful() {
+                db.setTransactionSuccessful();
+            }
+
+            @Override
+            public void endTransaction() {
+                db.endTransaction();
+            }
+        };
+    }
+}
@@ -45,16 +45,19 @@ import net.bither.fragment.Refreshable;
 import net.bither.fragment.Selectable;
 import net.bither.runnable.HandlerMessage;
 import net.bither.ui.base.AddressFragmentListItemView;
+import net.bither.ui.base.ObtainBCCListItemView;
 import net.bither.ui.base.AddressInfoChangedObserver;
 import net.bither.ui.base.DropdownMessage;
 import net.bither.ui.base.MarketTickerChangedObserver;
 import net.bither.ui.base.PinnedHeaderAddressExpandableListView;
 import net.bither.ui.base.SmoothScrollListRunnable;
+import net.bither.util.AddressChangeDispatcher;
 import net.bither.util.BroadcastUtil;
 import net.bither.util.UIUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static net.bither.activity.hot.HotAdvanceActivity.SplitCoinKey;
 
@@ -170,6 +173,7 @@ public class HotAddressFragment extends Fragment implements Refreshable, Selecta
             }
         }
         getActivity().registerReceiver(broadcastReceiver, broadcastIntentFilter);
+        AddressChangeDispatcher.getInstance().addListener(addressChangeListener);
     }
 
     @Override
@@ -185,6 +189,7 @@ public class HotAddressFragment extends Fragment implements Refreshable, Selecta
             }
         }
         getActivity().unregisterReceiver(broadcastReceiver);
+        AddressChangeDispatcher.getInstance().removeListener(addressChangeListener);
         super.onPause();
     }
 
@@ -427,6 +432,28 @@ public class HotAddressFragment extends Fragment implements Refreshable, Selecta
         }
     };
 
+    // rebinds only the visible rows of the changed addresses, the rest bind when scrolled in
+    private AddressChangeDispatcher.Listener addressChangeListener = new AddressChangeDispatcher
+            .Listener() {
+        @Override
+        public void onAddressesChanged(Set<String> addresses, boolean allChanged) {
+            if (lv == null) {
+                return;
+            }
+            int itemCount = lv.getChildCount();
+            for (int i = 0;
+                 i < itemCount;
+                 i++) {
+                View v = lv.getChildAt(i);
+                if (v instanceof AddressFragmentListItemView) {
+                    ((AddressFragmentListItemView) v).onAddressesChanged(addresses, allChanged);
+                } else if (v instanceof ObtainBCCListItemView) {
+                    ((ObtainBCCListItemView) v).onAddressesChanged(addresses, allChanged);
+                }
+            }
+        }
+    };
+
     private OnScrollListener listScroll = new OnScrollListener() {
         public void onScrollStateChanged(AbsListView view, int scrollState) {
         }
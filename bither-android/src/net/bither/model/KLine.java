@@ -18,7 +18,10 @@ package net.bither.model;
 
 import net.bither.bitherj.BitherjSettings.KlineTimeType;
 import net.bither.bitherj.BitherjSettings.MarketType;
+import net.bither.charts.entity.DateValueEntity;
 import net.bither.charts.entity.IStickEntity;
+import net.bither.charts.entity.LineEntity;
+import net.bither.charts.entity.OHLCChartData;
 
 import java.io.Serializable;
 import java.util.List;
@@ -31,22 +34,36 @@ public class KLine implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	public KLine(MarketType marketType, KlineTimeType klineTimeType,
-			List<IStickEntity> stickEntities) {
-		this.stickEntities = stickEntities;
+			OHLCChartData chartData) {
+		this.chartData = chartData;
 		this.marketType = marketType;
 		this.klineTimeType = klineTimeType;
 	}
 
+	// only set on klines deserialized from the old cache files
 	private List<IStickEntity> stickEntities;
+	private transient OHLCChartData chartData;
+	private transient List<LineEntity<DateValueEntity>> movingAverages;
 	private MarketType marketType;
 	private KlineTimeType klineTimeType;
 
-	public List<IStickEntity> getStickEntities() {
-		return stickEntities;
+	public OHLCChartData getChartData() {
+		if (chartData == null && stickEntities != null) {
+			chartData = new OHLCChartData(stickEntities);
+		}
+		return chartData;
+	}
+
+	/**
+	 * @return the lines of {@link net.bither.util.KLineSeriesStore#MOVING_AVERAGE_DAYS},
+	 *         aligned with the candles of the chart data
+	 */
+	public List<LineEntity<DateValueEntity>> getMovingAverages() {
+		return movingAverages;
 	}
 
-	public void setStickEntities(List<IStickEntity> stickEntities) {
-		this.stickEntities = stickEntities;
+	public void setMovingAverages(List<LineEntity<DateValueEntity>> movingAverages) {
+		this.movingAverages = movingAverages;
 	}
 
 	public MarketType getMarketType() {
@@ -2,6 +2,7 @@ package net.bither.model;
 
 import net.bither.bitherj.BitherjSettings.MarketType;
 import net.bither.preference.AppSharedPreference;
+import net.bither.runnable.TaskExecutor;
 import net.bither.util.ExchangeUtil;
 import net.bither.util.FileUtil;
 import net.bither.util.LogUtil;
@@ -130,7 +131,7 @@ public class PriceAlert implements Serializable {
     }
 
     private static void saveFile() {
-        new Thread(new Runnable() {
+        TaskExecutor.execute(TaskExecutor.Pool.IO, new Runnable() {
             @Override
             public void run() {
                 synchronized (priceAlertList) {
@@ -138,7 +139,7 @@ public class PriceAlert implements Serializable {
                     FileUtil.serializeObject(file, priceAlertList);
                 }
             }
-        }).start();
+        });
     }
 
     public static List<PriceAlert> getPriceAlertList() {
@@ -54,6 +54,15 @@ public class AppSharedPreference {
 
     // from service
     private static final String SYNC_BLOCK_ONLY_WIFI = "sync_block_only_wifi";
+    private static final String DB_WAL_MODE = "db_wal_mode";
+    private static final String DB_MAINTENANCE_TIME = "db_maintenance_time";
+    private static final String DB_MAINTENANCE_SIZE_BEFORE = "db_maintenance_size_before";
+    private static final String DB_MAINTENANCE_SIZE_AFTER = "db_maintenance_size_after";
+    private static final String DB_MAINTENANCE_DURATION = "db_maintenance_duration";
+    private static final String SYNC_IDLE_WAKEUPS = "sync_idle_wakeups";
+    private static final String SYNC_LAST_TX_TIME = "sync_last_tx_time";
+    private static final String WAKE_LOCK_DAY = "wake_lock_day";
+    private static final String WAKE_LOCK_USED = "wake_lock_used";
 
     private static final String DOWNLOAD_SPV_FINISH = "download_spv_finish";
     private static final String PASSWORD_SEED = "password_seed";
@@ -288,6 +297,65 @@ public class AppSharedPreference {
         this.mPreferences.edit().putBoolean(SYNC_BLOCK_ONLY_WIFI, onlyWifi).commit();
     }
 
+    public boolean getDbWalMode() {
+        return mPreferences.getBoolean(DB_WAL_MODE, false);
+    }
+
+    public void setDbWalMode(boolean walMode) {
+        this.mPreferences.edit().putBoolean(DB_WAL_MODE, walMode).commit();
+    }
+
+    public long getDbMaintenanceTime() {
+        return mPreferences.getLong(DB_MAINTENANCE_TIME, 0);
+    }
+
+    public long getDbMaintenanceSizeBefore() {
+        return mPreferences.getLong(DB_MAINTENANCE_SIZE_BEFORE, 0);
+    }
+
+    public long getDbMaintenanceSizeAfter() {
+        return mPreferences.getLong(DB_MAINTENANCE_SIZE_AFTER, 0);
+    }
+
+    public long getDbMaintenanceDuration() {
+        return mPreferences.getLong(DB_MAINTENANCE_DURATION, 0);
+    }
+
+    public void setDbMaintenanceResult(long time, long sizeBefore, long sizeAfter, long duration) {
+        this.mPreferences.edit().putLong(DB_MAINTENANCE_TIME, time).putLong
+                (DB_MAINTENANCE_SIZE_BEFORE, sizeBefore).putLong(DB_MAINTENANCE_SIZE_AFTER,
+                sizeAfter).putLong(DB_MAINTENANCE_DURATION, duration).commit();
+    }
+
+    public int getSyncIdleWakeups() {
+        return mPreferences.getInt(SYNC_IDLE_WAKEUPS, 0);
+    }
+
+    public long getSyncLastTxTime() {
+        return mPreferences.getLong(SYNC_LAST_TX_TIME, 0);
+    }
+
+    public void setSyncIdleWakeups(int idleWakeups) {
+        this.mPreferences.edit().putInt(SYNC_IDLE_WAKEUPS, idleWakeups).commit();
+    }
+
+    public void setSyncTxSeen(long time) {
+        this.mPreferences.edit().putInt(SYNC_IDLE_WAKEUPS, 0).putLong(SYNC_LAST_TX_TIME, time)
+                .commit();
+    }
+
+    public long getWakeLockUsed(long day) {
+        if (mPreferences.getLong(WAKE_LOCK_DAY, -1) != day) {
+            return 0;
+        }
+        return mPreferences.getLong(WAKE_LOCK_USED, 0);
+    }
+
+    public void setWakeLockUsed(long day, long used) {
+        this.mPreferences.edit().putLong(WAKE_LOCK_DAY, day).putLong(WAKE_LOCK_USED, used)
+                .commit();
+    }
+
     public boolean getDownloadSpvFinish() {
         return mPreferences.getBoolean(DOWNLOAD_SPV_FINISH, false);
     }
@@ -29,7 +29,10 @@ import net.bither.util.ImageManageUtil;
 import net.bither.util.ThreadUtil;
 import net.bither.util.UIUtil;
 
-public class FancyQrCodeThread extends Thread {
+/**
+ * Not a Thread any more, {@link #start()} runs it on the shared CPU pool.
+ */
+public class FancyQrCodeThread implements Runnable {
     public static interface FancyQrCodeListener {
         public void generated(Bitmap bmp);
     }
@@ -58,6 +61,17 @@ public class FancyQrCodeThread extends Thread {
         this.addAvatar = addAvatar;
     }
 
+    public void start() {
+        start(null);
+    }
+
+    /**
+     * @param tag usually the activity showing the qr code, see {@link TaskExecutor#cancel}
+     */
+    public void start(Object tag) {
+        TaskExecutor.execute(TaskExecutor.Pool.CPU, TaskExecutor.Priority.HIGH, tag, this);
+    }
+
     @Override
     public void run() {
         final Bitmap qrCode = Qr.bitmap(content, size, fgColor, bgColor, MarginSize);
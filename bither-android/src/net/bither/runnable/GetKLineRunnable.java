@@ -19,15 +19,13 @@ package net.bither.runnable;
 import net.bither.bitherj.BitherjSettings.KlineTimeType;
 import net.bither.bitherj.BitherjSettings.MarketType;
 import net.bither.bitherj.api.GetKlineApi;
-import net.bither.charts.entity.IStickEntity;
 import net.bither.model.KLine;
 import net.bither.util.ChartsUtil;
-import net.bither.util.KLineUtil;
+import net.bither.util.ExchangeUtil;
+import net.bither.util.KLineSeriesStore;
 
 import org.json.JSONArray;
 
-import java.util.List;
-
 public class GetKLineRunnable extends BaseRunnable {
 
     private MarketType marketType;
@@ -43,21 +41,20 @@ public class GetKLineRunnable extends BaseRunnable {
         boolean hasCache = false;
         obtainMessage(HandlerMessage.MSG_PREPARE);
         try {
-            KLine kLine = KLineUtil.getKLine(this.marketType,
+            KLineSeriesStore store = KLineSeriesStore.get(this.marketType,
                     this.mKlineTimeType);
+            KLine kLine = store.getKLine(ExchangeUtil.getRate(this.marketType));
             hasCache = kLine != null;
             obtainMessage(HandlerMessage.MSG_SUCCESS_FROM_CACHE, kLine);
             GetKlineApi getKlineApi = new GetKlineApi(this.marketType,
                     this.mKlineTimeType);
             getKlineApi.handleHttpGet();
 
+            // the api has no since parameter, only the candles newer than the store are parsed
             JSONArray jsonArray = new JSONArray(getKlineApi.getResult());
-            List<IStickEntity> entityList = ChartsUtil.formatJsonArray(this.marketType,
-                    this.mKlineTimeType, jsonArray);
-
-            kLine = new KLine(this.marketType, this.mKlineTimeType, entityList);
-            obtainMessage(HandlerMessage.MSG_SUCCESS, kLine);
-            KLineUtil.addKline(kLine);
+            ChartsUtil.mergeJsonArray(store, jsonArray);
+            obtainMessage(HandlerMessage.MSG_SUCCESS, store.getKLine(ExchangeUtil.getRate(this
+                    .marketType)));
         } catch (Exception e) {
             if (!hasCache) {
                 obtainMessage(HandlerMessage.MSG_FAILURE);
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.runnable;
+
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
+import net.bither.util.StartupTrace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the init steps of the application as a dependency graph on the {@link TaskExecutor}
+ * pools. A step is submitted as soon as all the steps it depends on finished, so independent
+ * steps run in parallel and the main thread is free to show the first activity meanwhile.
+ * <p/>
+ * Dependencies are named when a step is added and must already be declared, which keeps the
+ * graph free of cycles. A failing step is logged and still releases its dependents, like the
+ * single init thread did. The wait and run time of every step is logged once all finished,
+ * which also lets {@link StartupTrace} dump the trace.
+ */
+public class StartupOrchestrator {
+    private static final Logger log = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    private static final class Step {
+        private final String name;
+        private final Pool pool;
+        private final Runnable runnable;
+        private final List<Step> dependents = new ArrayList<Step>();
+        private final AtomicInteger pendingDependencies;
+
+        private volatile long readyNanos;
+        private volatile long beginNanos;
+        private volatile long endNanos;
+        private volatile boolean failed;
+
+        private Step(String name, Pool pool, Runnable runnable, int dependencies) {
+            this.name = name;
+            this.pool = pool;
+            this.runnable = runnable;
+            this.pendingDependencies = new AtomicInteger(dependencies);
+        }
+    }
+
+    private final LinkedHashMap<String, Step> steps = new LinkedHashMap<String, Step>();
+    private final AtomicInteger remaining = new AtomicInteger();
+    private long startNanos = -1;
+
+    public StartupOrchestrator add(String name, Pool pool, Runnable runnable,
+                                   String... dependsOn) {
+        if (startNanos >= 0) {
+            throw new IllegalStateException("startup already started");
+        }
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate startup step " + name);
+        }
+        Step step = new Step(name, pool, runnable, dependsOn.length);
+        for (String dependency : dependsOn) {
+            Step d = steps.get(dependency);
+            if (d == null) {
+                throw new IllegalArgumentException("startup step " + name + " depends on " +
+                        "undeclared " + dependency);
+            }
+            d.dependents.add(step);
+        }
+        steps.put(name, step);
+        return this;
+    }
+
+    /**
+     * Submits the steps without dependencies and returns at once.
+     */
+    public void start() {
+        if (startNanos >= 0) {
+            throw new IllegalStateException("startup already started");
+        }
+        startNanos = System.nanoTime();
+        remaining.set(steps.size());
+        for (Step step : steps.values()) {
+            if (step.pendingDependencies.get() == 0) {
+                submit(step);
+            }
+        }
+    }
+
+    private void submit(final Step step) {
+        step.readyNanos = System.nanoTime();
+        TaskExecutor.execute(step.pool, Priority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                step.beginNanos = System.nanoTime();
+                int trace = StartupTrace.begin("startup." + step.name);
+                try {
+                    step.runnable.run();
+                } catch (RuntimeException e) {
+                    step.failed = true;
+                    log.error("startup step " + step.name + " failed", e);
+                } finally {
+                    StartupTrace.end(trace);
+                    step.endNanos = System.nanoTime();
+                }
+                for (Step dependent : step.dependents) {
+                    if (dependent.pendingDependencies.decrementAndGet() == 0) {
+                        submit(dependent);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    log.info(dumpTimings());
+                    StartupTrace.onStartupFinished();
+                }
+            }
+        });
+    }
+
+    private String dumpTimings() {
+        long end = startNanos;
+        StringBuilder builder = new StringBuilder();
+        for (Step step : steps.values()) {
+            end = Math.max(end, step.endNanos);
+            builder.append("\n").append(step.name).append(" on ").append(step.pool.name())
+                    .append(": ready +").append(millis(step.readyNanos - startNanos))
+                    .append("ms, waited ").append(millis(step.beginNanos - step.readyNanos))
+                    .append("ms, ran ").append(millis(step.endNanos - step.beginNanos))
+                    .append("ms").append(step.failed ? ", failed" : "");
+        }
+        return "startup finished in " + millis(end - startNanos) + "ms" + builder;
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1000000;
+    }
+}
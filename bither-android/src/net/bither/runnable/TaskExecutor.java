@@ -0,0 +1,318 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.runnable;
+
+import android.os.Process;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared background threads for the app, instead of a new Thread per task.
+ * <p/>
+ * Each {@link Pool} is a fixed number of threads over a priority queue: tasks of a higher
+ * {@link Priority} run first, tasks of the same priority in submission order. Threads time
+ * out when idle, so an unused pool costs nothing. Work that runs for minutes, the block chain
+ * sync and the database migrations and maintenance, has pools of its own, so it never holds
+ * the threads of the short tasks.
+ * <p/>
+ * A task may carry a tag, usually the Activity that submitted it. {@link #cancel(Object)}
+ * drops the queued tasks of that tag; tasks that already started run to completion, since
+ * most of them write to the database or talk to a peer.
+ */
+public class TaskExecutor {
+    private static final Logger log = LoggerFactory.getLogger(TaskExecutor.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    public enum Priority {
+        LOW, NORMAL, HIGH
+    }
+
+    public enum Pool {
+        IO(2, Process.THREAD_PRIORITY_BACKGROUND),
+        CPU(Math.max(2, Runtime.getRuntime().availableProcessors()), Process
+                .THREAD_PRIORITY_BACKGROUND),
+        // short requests: tickers, trends, ads
+        NETWORK(3, Process.THREAD_PRIORITY_BACKGROUND),
+        // long running: spv block download, starting the peer manager, first tx download
+        SYNC(2, Process.THREAD_PRIORITY_BACKGROUND),
+        // a single writer for short writes such as checkpoints, sqlite serializes writers anyway
+        DB_WRITE(1, Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE),
+        // long running: chunked migrations, vacuum, one at a time
+        DB_MAINTENANCE(1, Process.THREAD_PRIORITY_BACKGROUND);
+
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+        private volatile long maxWaitNanos;
+
+        Pool(int threads, int threadPriority) {
+            executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit
+                    .SECONDS, new PriorityBlockingQueue<Runnable>(), new PoolThreadFactory(name
+                    (), threadPriority));
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        public int getActiveCount() {
+            return executor.getActiveCount();
+        }
+
+        public long getSubmittedCount() {
+            return submitted.get();
+        }
+
+        public long getCompletedCount() {
+            return completed.get();
+        }
+
+        /**
+         * @return tasks cancelled before they started, submitted is completed plus cancelled
+         * plus the queued and active ones
+         */
+        public long getCancelledCount() {
+            return cancelled.get();
+        }
+
+        public long getAverageWaitMillis() {
+            long count = completed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos.get() / count);
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+
+        public long getAverageRunMillis() {
+            long count = completed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(runNanos.get() / count);
+        }
+
+        private void onFinished(long wait, long run) {
+            completed.incrementAndGet();
+            waitNanos.addAndGet(wait);
+            runNanos.addAndGet(run);
+            if (wait > maxWaitNanos) {
+                maxWaitNanos = wait;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name() + " queue: " + getQueueDepth() + ", active: " + getActiveCount() + ", " +
+                    "completed: " + getCompletedCount() + "/" + getSubmittedCount() + ", " +
+                    "cancelled: " + getCancelledCount() + ", wait: " +
+                    getAverageWaitMillis() + "ms avg " + getMaxWaitMillis() + "ms max, run: " +
+                    getAverageRunMillis() + "ms avg";
+        }
+    }
+
+    public static final class Task implements Runnable, Comparable<Task> {
+        private static final AtomicLong sequence = new AtomicLong();
+
+        private final Pool pool;
+        private final Priority priority;
+        private final Object tag;
+        private final Runnable runnable;
+        private final long seq = sequence.getAndIncrement();
+        private final long submitNanos = System.nanoTime();
+        private volatile boolean cancelled;
+        // set when a pool thread takes the task, cancel can not stop it from then on
+        private volatile boolean started;
+
+        private Task(Pool pool, Priority priority, Object tag, Runnable runnable) {
+            this.pool = pool;
+            this.priority = priority;
+            this.tag = tag;
+            this.runnable = runnable;
+        }
+
+        /**
+         * Prevents the task from starting, has no effect once it is running.
+         */
+        public void cancel() {
+            cancelled = true;
+            // counted here if it never reaches run, else when run skips it
+            if (pool.executor.remove(this)) {
+                pool.cancelled.incrementAndGet();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            if (cancelled) {
+                pool.cancelled.incrementAndGet();
+                return;
+            }
+            long begin = System.nanoTime();
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                log.error("task in " + pool.name() + " failed", e);
+            } finally {
+                long end = System.nanoTime();
+                pool.onFinished(begin - submitNanos, end - begin);
+            }
+        }
+
+        @Override
+        public int compareTo(Task another) {
+            if (priority != another.priority) {
+                return another.priority.ordinal() - priority.ordinal();
+            }
+            return seq < another.seq ? -1 : (seq == another.seq ? 0 : 1);
+        }
+    }
+
+    private static final class PoolThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int threadPriority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private PoolThreadFactory(String name, int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(threadPriority);
+                    r.run();
+                }
+            }, "bither-" + name.toLowerCase() + "-" + count.incrementAndGet());
+        }
+    }
+
+    private static final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
+            new PoolThreadFactory("scheduler", Process.THREAD_PRIORITY_BACKGROUND));
+
+    private static final List<Task> tagged = new ArrayList<Task>();
+
+    private TaskExecutor() {
+    }
+
+    public static Task execute(Pool pool, Runnable runnable) {
+        return execute(pool, Priority.NORMAL, null, runnable);
+    }
+
+    public static Task execute(Pool pool, Priority priority, Runnable runnable) {
+        return execute(pool, priority, null, runnable);
+    }
+
+    /**
+     * @param tag cancels the task through {@link #cancel(Object)} if it has not started yet,
+     *            may be null
+     */
+    public static Task execute(Pool pool, Priority priority, Object tag, Runnable runnable) {
+        Task task = new Task(pool, priority, tag, runnable);
+        if (tag != null) {
+            synchronized (tagged) {
+                purgeFinished();
+                tagged.add(task);
+            }
+        }
+        pool.submitted.incrementAndGet();
+        pool.executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Hands the runnable to the pool after the delay. The scheduler thread only does the hand
+     * off, the work itself waits in the pool queue like any other task.
+     */
+    public static void schedule(final Pool pool, final Priority priority, final Runnable
+            runnable, long delayMillis) {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(pool, priority, runnable);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops every queued task submitted with this tag, called from onDestroy of the base
+     * activities.
+     */
+    public static void cancel(Object tag) {
+        if (tag == null) {
+            return;
+        }
+        synchronized (tagged) {
+            Iterator<Task> iterator = tagged.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.tag == tag) {
+                    task.cancel();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public static String dumpStats() {
+        StringBuilder builder = new StringBuilder();
+        for (Pool pool : Pool.values()) {
+            if (builder.length() > 0) {
+                builder.append("\n");
+            }
+            builder.append(pool.toString());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Drops the tasks that can not be cancelled any more. A task is only dropped once a pool
+     * thread took it, never while it is still on its way to the queue.
+     */
+    private static void purgeFinished() {
+        Iterator<Task> iterator = tagged.iterator();
+        while (iterator.hasNext()) {
+            Task task = iterator.next();
+            if (task.cancelled || task.started) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import net.bither.BitherSetting;
+
+/**
+ * Starts from a base interval picked by how recently the app was used or a tx was seen, and
+ * doubles it for every background sync in a row that found nothing, up to a day. Syncs are
+ * cheaper on a charger, so the delay is halved there.
+ */
+public class AdaptiveSyncPolicy implements SyncPolicy {
+    public static final long MINUTE = 60 * 1000;
+    public static final long HOUR = 60 * MINUTE;
+    public static final long DAY = 24 * HOUR;
+
+    static final long JUST_USED = BitherSetting.LAST_USAGE_THRESHOLD_JUST_MS;
+    static final long RECENTLY_ACTIVE = BitherSetting.LAST_USAGE_THRESHOLD_RECENTLY_MS;
+    static final long MIN_DELAY = 15 * MINUTE;
+    static final long MAX_DELAY = DAY;
+    private static final int MAX_BACKOFF_SHIFT = 8;
+
+    @Override
+    public long nextDelay(State state) {
+        long base;
+        if (state.lastUsedAgo < JUST_USED) {
+            base = MIN_DELAY;
+        } else if (state.lastUsedAgo < RECENTLY_ACTIVE || state.lastTxAgo < RECENTLY_ACTIVE) {
+            base = HOUR;
+        } else {
+            base = 4 * HOUR;
+        }
+        long delay = Math.min(MAX_DELAY, base << Math.min(state.idleWakeups, MAX_BACKOFF_SHIFT));
+        if (state.charging) {
+            delay = Math.max(MIN_DELAY, delay / 2);
+        }
+        return delay;
+    }
+
+    /**
+     * Without network a sync can't see anything, and after a long idle streak a late sync
+     * costs little, so neither is worth waking the device for.
+     */
+    @Override
+    public boolean isDeferrable(State state) {
+        return !state.networkAvailable || nextDelay(state) >= MAX_DELAY;
+    }
+}
@@ -16,20 +16,16 @@
 
 package net.bither.service;
 
-import android.annotation.SuppressLint;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.net.ConnectivityManager;
-import android.os.Build;
 import android.os.IBinder;
 import android.os.PowerManager;
 import android.os.PowerManager.WakeLock;
 
-import net.bither.BitherSetting;
+import net.bither.BitherApplication;
 import net.bither.NotificationAndroidImpl;
 import net.bither.R;
 import net.bither.bitherj.AbstractApp;
@@ -37,11 +33,14 @@ import net.bither.bitherj.BitherjSettings;
 import net.bither.bitherj.core.AddressManager;
 import net.bither.bitherj.core.Block;
 import net.bither.bitherj.core.PeerManager;
-import net.bither.bitherj.exception.BlockStoreException;
 import net.bither.bitherj.utils.BlockUtil;
 import net.bither.bitherj.utils.TransactionsUtil;
+import net.bither.db.base.AndroidDbConfig;
 import net.bither.preference.AppSharedPreference;
 import net.bither.runnable.DownloadSpvRunnable;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
 import net.bither.util.BitherTimer;
 import net.bither.util.BroadcastUtil;
 import net.bither.util.LogUtil;
@@ -52,7 +51,7 @@ import net.bither.util.UpgradeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.Nonnull;
+import java.util.TimeZone;
 
 
 public class BlockchainService extends android.app.Service {
@@ -61,7 +60,7 @@ public class BlockchainService extends android.app.Service {
             .getPackage().getName() + ".dowload_block_api_begin";
     private static final Logger log = LoggerFactory
             .getLogger(BlockchainService.class);
-    private WakeLock wakeLock;
+    private WakeLockBudget wakeLockBudget;
     private long serviceCreatedAt;
     private BitherTimer mBitherTimer;
     private SPVFinishedReceiver spvFinishedReceiver = null;
@@ -81,7 +80,42 @@ public class BlockchainService extends android.app.Service {
         super.onCreate();
         final String lockName = getPackageName() + " blockchain sync";
         final PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
-        wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, lockName);
+        final WakeLock wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, lockName);
+        // a renewed lease replaces the previous timeout instead of stacking on it
+        wakeLock.setReferenceCounted(false);
+        wakeLockBudget = new WakeLockBudget(new WakeLockBudget.Lock() {
+            @Override
+            public void acquire(long timeout) {
+                wakeLock.acquire(timeout);
+            }
+
+            @Override
+            public void release() {
+                if (wakeLock.isHeld()) {
+                    wakeLock.release();
+                }
+            }
+        }, new WakeLockBudget.Clock() {
+            @Override
+            public long now() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long offset(long time) {
+                return TimeZone.getDefault().getOffset(time);
+            }
+        }, new WakeLockBudget.Store() {
+            @Override
+            public long getUsed(long day) {
+                return AppSharedPreference.getInstance().getWakeLockUsed(day);
+            }
+
+            @Override
+            public void setUsed(long day, long used) {
+                AppSharedPreference.getInstance().setWakeLockUsed(day, used);
+            }
+        });
         if (AppSharedPreference.getInstance().getAppMode() != BitherjSettings.AppMode.COLD) {
             tickReceiver = new TickReceiver(BlockchainService.this);
             txReceiver = new TxReceiver(BlockchainService.this, tickReceiver);
@@ -106,59 +140,25 @@ public class BlockchainService extends android.app.Service {
 
     }
 
-    private void scheduleStartBlockchainService(@Nonnull final Context context) {
-        BitherSetting.SyncInterval syncInterval = AppSharedPreference.getInstance().getSyncInterval();
-        if (syncInterval == BitherSetting.SyncInterval.OnlyOpenApp ||
-                AddressManager.getInstance().getAllAddresses().size() == 0) {
-            return;
-        }
-        long interval = AlarmManager.INTERVAL_HOUR;
-        if (syncInterval == BitherSetting.SyncInterval.Normal) {
-            final long lastUsedAgo = AppSharedPreference.getInstance().getLastUsedAgo();
-            if (lastUsedAgo < BitherSetting.LAST_USAGE_THRESHOLD_JUST_MS) {
-                interval = AlarmManager.INTERVAL_FIFTEEN_MINUTES;
-                log.info("start INTERVAL_FIFTEEN_MINUTES");
-            } else if (lastUsedAgo < BitherSetting.LAST_USAGE_THRESHOLD_RECENTLY_MS) {
-                interval = AlarmManager.INTERVAL_HALF_DAY;
-                log.info("start INTERVAL_HALF_DAY");
-            } else {
-                interval = AlarmManager.INTERVAL_DAY;
-                log.info("start INTERVAL_DAY");
-            }
-        }
-        final AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context
-                .ALARM_SERVICE);
-        final PendingIntent alarmIntent = PendingIntent.getService(context, 0,
-                new Intent(context, BlockchainService.class), 0);
-        alarmManager.cancel(alarmIntent);
-        final long now = System.currentTimeMillis();
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
-        // as of KitKat, set() is inexact
-        {
-            alarmManager.set(AlarmManager.RTC_WAKEUP, now + interval, alarmIntent);
-        } else
-        // workaround for no inexact set() before KitKat
-        {
-            alarmManager.setInexactRepeating(AlarmManager.RTC_WAKEUP, now + interval,
-                    AlarmManager.INTERVAL_HOUR, alarmIntent);
-        }
-    }
-
     @Override
     public void onDestroy() {
         log.info(".onDestroy()");
         if (AppSharedPreference.getInstance().getAppMode() != BitherjSettings.AppMode.COLD) {
-            scheduleStartBlockchainService(this);
+            SyncScheduler.onServiceStopped(this, tickReceiver == null ? 0 : tickReceiver
+                    .getSessionTransactions());
             PeerManager.instance().stop();
             PeerManager.instance().onDestroy();
+            TaskExecutor.execute(Pool.DB_WRITE, Priority.LOW, new Runnable() {
+                @Override
+                public void run() {
+                    AndroidDbConfig.checkpoint(BitherApplication.mTxDbHelper);
+                }
+            });
             if (mBitherTimer != null) {
                 mBitherTimer.stopTimer();
                 mBitherTimer = null;
             }
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
-                wakeLock = null;
-            }
+            wakeLockBudget.release();
             if (connectivityReceivered) {
                 unregisterReceiver(connectivityReceiver);
                 connectivityReceivered = false;
@@ -168,9 +168,11 @@ public class BlockchainService extends android.app.Service {
             }
             if (txReceiver != null) {
                 unregisterReceiver(txReceiver);
+                txReceiver.flush();
             }
             BroadcastUtil.removeMarketState();
         }
+        peerConnectivity.quit();
         super.onDestroy();
 
         log.info("service was up for "
@@ -195,7 +197,7 @@ public class BlockchainService extends android.app.Service {
             LogUtil.i("onStartCommand", "onStartCommand Service:" + action);
         }
         if (ACTION_BEGIN_DOWLOAD_SPV_BLOCK.equals(action)) {
-            new Thread(new DownloadSpvRunnable()).start();
+            TaskExecutor.execute(Pool.SYNC, Priority.HIGH, new DownloadSpvRunnable());
         }
         return START_NOT_STICKY;
     }
@@ -214,80 +216,53 @@ public class BlockchainService extends android.app.Service {
     }
 
     private final BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
-        private boolean hasConnectivity;
-        private boolean hasStorage = true;
-
         @Override
         public void onReceive(final Context context, final Intent intent) {
-            new Thread(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        onReceive(intent);
-                    } catch (BlockStoreException e) {
-                        e.printStackTrace();
-                    }
-
-                }
-            }).start();
-
-        }
-
-        private void onReceive(final Intent intent) throws BlockStoreException {
             final String action = intent.getAction();
             if (ConnectivityManager.CONNECTIVITY_ACTION.equals(action)) {
-                hasConnectivity = !intent.getBooleanExtra(
-                        ConnectivityManager.EXTRA_NO_CONNECTIVITY, false);
-                log.info("network is " + (hasConnectivity ? "up" : "down"));
-                check();
+                peerConnectivity.onConnectivity(!intent.getBooleanExtra(
+                        ConnectivityManager.EXTRA_NO_CONNECTIVITY, false));
             } else if (Intent.ACTION_DEVICE_STORAGE_LOW.equals(action)) {
-                hasStorage = false;
-                log.info("device storage low");
-
-                check();
+                peerConnectivity.onStorage(false);
             } else if (Intent.ACTION_DEVICE_STORAGE_OK.equals(action)) {
-                hasStorage = true;
-                log.info("device storage ok");
-
-                check();
+                peerConnectivity.onStorage(true);
             } else if (BroadcastUtil.ACTION_START_PEER_MANAGER
                     .equals(action)) {
-                hasStorage = true;
-                check();
+                peerConnectivity.onStartRequested();
             }
         }
+    };
 
-        @SuppressLint("Wakelock")
-        private void check() throws BlockStoreException {
+    private final PeerConnectivityController peerConnectivity = new PeerConnectivityController(
+            new PeerConnectivityController.PeerControl() {
+        @Override
+        public boolean isAllowedToRun() {
             BitherjSettings.AppMode mode = AppSharedPreference.getInstance().getAppMode();
             if (mode == BitherjSettings.AppMode.COLD) {
-                return;
+                return false;
             }
-            final boolean hasEverything = hasConnectivity && hasStorage;
             NetworkType networkType = NetworkUtil.isConnectedType();
-            boolean networkIsAvailadble = (!AppSharedPreference.getInstance().getSyncBlockOnlyWifi())
-                    || (networkType == NetworkType.Wifi);
-
-            if (networkIsAvailadble) {
-                if (hasEverything) {
-                    log.debug("acquiring wakelock");
-                    callWekelock();
-                    if (!PeerManager.instance().isRunning()) {
-                        startPeer();
-                    }
-                } else {
-
-                    PeerManager.instance().stop();
-                }
-            } else {
+            return !AppSharedPreference.getInstance().getSyncBlockOnlyWifi()
+                    || networkType == NetworkType.Wifi;
+        }
 
-                PeerManager.instance().stop();
-            }
+        @Override
+        public boolean isPeerRunning() {
+            return PeerManager.instance().isRunning();
+        }
 
+        @Override
+        public void startPeer() {
+            log.debug("acquiring wakelock");
+            callWekelock();
+            BlockchainService.this.startPeer();
+        }
 
+        @Override
+        public void stopPeer() {
+            PeerManager.instance().stop();
         }
-    };
+    });
 
     public void stopAndUnregister() {
         peerCanNotRun = true;
@@ -301,27 +276,29 @@ public class BlockchainService extends android.app.Service {
     public void startAndRegister() {
         peerCanNotRun = false;
         receiverConnectivity();
-        new Thread(new Runnable() {
+        TaskExecutor.execute(Pool.SYNC, Priority.HIGH, new Runnable() {
             @Override
             public void run() {
                 startPeer();
             }
-        }).start();
+        });
 
     }
 
     private void callWekelock() {
-        if ((wakeLock != null) && // we have a WakeLock
-                !wakeLock.isHeld()) { // but we don't hold it
-            try {
-                // WakeLock.acquireLocked(PowerManager.java:329) sdk16 nullpoint
-                wakeLock.acquire();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        wakeLockBudget.acquire();
+    }
 
+    /**
+     * Called by TickReceiver every minute, extends the wake lock lease or takes a new one if
+     * blocks or txs came in.
+     */
+    void onSyncTick(boolean progress) {
+        if (progress) {
+            wakeLockBudget.onProgress();
+        } else {
+            wakeLockBudget.tick();
         }
-
     }
 
     private boolean spvFinishedReceivered = false;
@@ -394,7 +371,7 @@ public class BlockchainService extends android.app.Service {
         @Override
         public void onReceive(Context context, Intent intent) {
             LogUtil.d("block", "sendBroadcastSyncSPVFinished onReceive");
-            new Thread(new Runnable() {
+            TaskExecutor.execute(Pool.SYNC, new Runnable() {
                 @Override
                 public void run() {
                     try {
@@ -411,7 +388,7 @@ public class BlockchainService extends android.app.Service {
                         e.printStackTrace();
                     }
                 }
-            }).start();
+            });
 
 
         }
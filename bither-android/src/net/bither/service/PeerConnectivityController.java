@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Folds connectivity, storage and start-peer broadcasts into one desired state and applies it
+ * on a single thread once the events have settled, so a flapping network restarts the peers
+ * at most once instead of once per broadcast.
+ * <p/>
+ * Applying is idempotent: peers are only started when they are not running and only stopped
+ * when they are.
+ * <p/>
+ * The delayed apply goes through {@link Scheduler}, a HandlerThread in the app, so the tests
+ * can replay broadcast bursts against a fake clock.
+ */
+public class PeerConnectivityController {
+    private static final Logger log = LoggerFactory.getLogger(PeerConnectivityController.class);
+
+    public static final long DEBOUNCE_MS = 1500;
+
+    public interface PeerControl {
+        /**
+         * Checked when applying, false for cold mode or when sync is limited to wifi and the
+         * active network is not wifi.
+         */
+        boolean isAllowedToRun();
+
+        boolean isPeerRunning();
+
+        void startPeer();
+
+        void stopPeer();
+    }
+
+    /**
+     * Runs the posted runnables one at a time on a thread of its own.
+     */
+    public interface Scheduler {
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void removeCallbacks(Runnable runnable);
+
+        void quit();
+    }
+
+    private final PeerControl control;
+    private final Scheduler scheduler;
+
+    private boolean hasConnectivity;
+    private boolean hasStorage = true;
+    private int applyCount;
+
+    public PeerConnectivityController(PeerControl control) {
+        this(control, handlerScheduler());
+    }
+
+    public PeerConnectivityController(PeerControl control, Scheduler scheduler) {
+        this.control = control;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized void onConnectivity(boolean hasConnectivity) {
+        log.info("network is " + (hasConnectivity ? "up" : "down"));
+        this.hasConnectivity = hasConnectivity;
+        scheduleApply(DEBOUNCE_MS);
+    }
+
+    public synchronized void onStorage(boolean hasStorage) {
+        log.info("device storage " + (hasStorage ? "ok" : "low"));
+        this.hasStorage = hasStorage;
+        scheduleApply(DEBOUNCE_MS);
+    }
+
+    /**
+     * An explicit request to run the peers, applied without waiting for the debounce.
+     */
+    public synchronized void onStartRequested() {
+        hasStorage = true;
+        scheduleApply(0);
+    }
+
+    public void quit() {
+        scheduler.removeCallbacks(applyRunnable);
+        scheduler.quit();
+    }
+
+    private void scheduleApply(long delay) {
+        scheduler.removeCallbacks(applyRunnable);
+        scheduler.postDelayed(applyRunnable, delay);
+    }
+
+    private synchronized boolean shouldRun() {
+        return hasConnectivity && hasStorage;
+    }
+
+    private final Runnable applyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyCount++;
+            boolean run = shouldRun() && control.isAllowedToRun();
+            boolean running = control.isPeerRunning();
+            if (run && !running) {
+                log.info("connectivity apply #{}: starting peers", applyCount);
+                control.startPeer();
+            } else if (!run && running) {
+                log.info("connectivity apply #{}: stopping peers", applyCount);
+                control.stopPeer();
+            }
+        }
+    };
+
+    private static Scheduler handlerScheduler() {
+        final HandlerThread thread = new HandlerThread("peer-connectivity", Process
+                .THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        final Handler handler = new Handler(thread.getLooper());
+        return new Scheduler() {
+            @Override
+            public void postDelayed(Runnable runnable, long delayMs) {
+                handler.postDelayed(runnable, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+
+            @Override
+            public void quit() {
+                thread.quit();
+            }
+        };
+    }
+}
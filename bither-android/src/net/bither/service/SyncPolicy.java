@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+/**
+ * Decides when BlockchainService should wake up next for a background sync. Implementations
+ * must not touch Android APIs, so that the tests can replay them on a plain jvm with
+ * SyncPolicySimulator.
+ */
+public interface SyncPolicy {
+
+    public static final class State {
+        public final long lastUsedAgo;
+        /**
+         * Time since a sync last saw a tx of the user's addresses, Long.MAX_VALUE for never.
+         */
+        public final long lastTxAgo;
+        /**
+         * Background syncs in a row that saw no tx and no usage of the app.
+         */
+        public final int idleWakeups;
+        public final boolean charging;
+        public final boolean networkAvailable;
+
+        public State(long lastUsedAgo, long lastTxAgo, int idleWakeups, boolean charging,
+                     boolean networkAvailable) {
+            this.lastUsedAgo = lastUsedAgo;
+            this.lastTxAgo = lastTxAgo;
+            this.idleWakeups = idleWakeups;
+            this.charging = charging;
+            this.networkAvailable = networkAvailable;
+        }
+
+        @Override
+        public String toString() {
+            return "used " + lastUsedAgo / 1000 + "s ago, tx " + (lastTxAgo == Long.MAX_VALUE ?
+                    "never" : lastTxAgo / 1000 + "s ago") + ", idle wakeups " + idleWakeups +
+                    (charging ? ", charging" : "") + (networkAvailable ? "" : ", no network");
+        }
+    }
+
+    /**
+     * @return milliseconds until the next sync
+     */
+    long nextDelay(State state);
+
+    /**
+     * @return true if the next sync may wait until something else wakes the device
+     */
+    boolean isDeferrable(State state);
+}
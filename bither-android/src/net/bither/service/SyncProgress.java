@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+/**
+ * One update of the block sync, published through {@link SyncProgressChannel}. Rates are
+ * exponentially weighted moving averages, see {@link SyncProgressMeter}.
+ */
+public final class SyncProgress {
+    public static final long UNKNOWN = -1;
+
+    /**
+     * Progress reported by the peer manager, outside of [0, 1) when no sync is running.
+     */
+    public final double progress;
+    public final int height;
+    public final int targetHeight;
+    public final double blocksPerSecond;
+    public final double txsPerSecond;
+    public final double bytesPerSecond;
+    /**
+     * Average time of one db write transaction.
+     */
+    public final double dbWriteMillis;
+    /**
+     * Seconds until {@link #targetHeight} is reached, {@link #UNKNOWN} while no blocks came in.
+     */
+    public final long etaSeconds;
+
+    public SyncProgress(double progress, int height, int targetHeight, double blocksPerSecond,
+                        double txsPerSecond, double bytesPerSecond, double dbWriteMillis,
+                        long etaSeconds) {
+        this.progress = progress;
+        this.height = height;
+        this.targetHeight = targetHeight;
+        this.blocksPerSecond = blocksPerSecond;
+        this.txsPerSecond = txsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.dbWriteMillis = dbWriteMillis;
+        this.etaSeconds = etaSeconds;
+    }
+
+    public boolean isSyncing() {
+        return progress >= 0 && progress < 1;
+    }
+
+    @Override
+    public String toString() {
+        return "progress " + progress + ", height " + height + "/" + targetHeight + ", " +
+                String.format("%.1f", blocksPerSecond) + " blocks/s, " + String.format("%.1f",
+                txsPerSecond) + " txs/s, " + (long) bytesPerSecond + " bytes/s, db write " +
+                String.format("%.1f", dbWriteMillis) + "ms, eta " + etaSeconds + "s";
+    }
+}
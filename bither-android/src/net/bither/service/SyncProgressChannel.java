@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import android.net.TrafficStats;
+import android.os.Process;
+
+import net.bither.BitherApplication;
+import net.bither.bitherj.core.Block;
+import net.bither.bitherj.core.BlockChain;
+import net.bither.bitherj.core.Peer;
+import net.bither.bitherj.core.PeerManager;
+import net.bither.db.base.AndroidDbManager;
+import net.bither.util.ThreadUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the block sync as a stream of {@link SyncProgress} to subscribers on the UI thread,
+ * replacing the progress broadcast.
+ * <p/>
+ * The channel holds one pending update. Publishing replaces it and only the first publish
+ * after a delivery posts to the UI thread, so the peer threads never block and a busy UI
+ * thread gets the latest state once instead of a backlog of stale ones. The last update is
+ * kept and handed to new subscribers, like the sticky broadcast did.
+ */
+public class SyncProgressChannel {
+    private static final Logger log = LoggerFactory.getLogger(SyncProgressChannel.class);
+
+    public interface Subscriber {
+        /**
+         * Called on the UI thread.
+         */
+        void onSyncProgress(SyncProgress progress);
+    }
+
+    private static final SyncProgressChannel instance = new SyncProgressChannel();
+
+    public static SyncProgressChannel getInstance() {
+        return instance;
+    }
+
+    private final SyncProgressMeter meter = new SyncProgressMeter();
+    private final AtomicInteger txs = new AtomicInteger();
+    private final AtomicReference<SyncProgress> pending = new AtomicReference<SyncProgress>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new
+            CopyOnWriteArrayList<Subscriber>();
+
+    // progress of the last publish, re-sampled by the minute tick while syncing
+    private volatile double lastProgress = -1;
+
+    // touched on the UI thread only
+    private SyncProgress latest;
+
+    private SyncProgressChannel() {
+    }
+
+    /**
+     * Must be called on the UI thread.
+     */
+    public void subscribe(Subscriber subscriber) {
+        if (subscribers.addIfAbsent(subscriber) && latest != null) {
+            subscriber.onSyncProgress(latest);
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Forgets the last update, so new subscribers start without a progress.
+     */
+    public void clear() {
+        synchronized (meter) {
+            lastProgress = -1;
+            pending.set(null);
+        }
+        ThreadUtil.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                latest = null;
+            }
+        });
+    }
+
+    public void onTx() {
+        txs.incrementAndGet();
+    }
+
+    /**
+     * Samples again with the last progress while a sync is running. Called by TickReceiver
+     * every minute, so a stalled sync publishes rates decaying toward zero and a growing ETA
+     * instead of the rates it had at its last block.
+     */
+    public void resample() {
+        double progress = lastProgress;
+        if (progress >= 0 && progress < 1) {
+            publish(progress);
+        }
+    }
+
+    /**
+     * Samples the chain, the peers, traffic and db counters and publishes the result.
+     *
+     * @param progress progress reported by the peer manager
+     */
+    public void publish(double progress) {
+        Block block = BlockChain.getInstance().getLastBlock();
+        int height = block == null ? 0 : block.getBlockNo();
+        int targetHeight = height;
+        for (Peer peer : PeerManager.instance().getConnectedPeers()) {
+            targetHeight = Math.max(targetHeight, (int) peer.getDisplayLastBlockHeight());
+        }
+        long bytes = TrafficStats.getUidRxBytes(Process.myUid());
+        if (bytes == TrafficStats.UNSUPPORTED) {
+            bytes = 0;
+        }
+        AndroidDbManager txDb = AndroidDbManager.getInstance(BitherApplication.mTxDbHelper);
+        AndroidDbManager addressDb = AndroidDbManager.getInstance(BitherApplication
+                .mAddressDbHelper);
+        SyncProgress syncProgress;
+        synchronized (meter) {
+            syncProgress = meter.sample(System.currentTimeMillis(), progress, height,
+                    targetHeight, txs.get(), bytes, txDb.getTransactionCount() + addressDb
+                            .getTransactionCount(), txDb.getTransactionMillis() + addressDb
+                            .getTransactionMillis());
+            pending.set(syncProgress);
+            lastProgress = progress;
+        }
+        log.debug("sync {}", syncProgress);
+        if (scheduled.compareAndSet(false, true)) {
+            ThreadUtil.getMainThreadHandler().post(deliver);
+        }
+    }
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            // clear first, a publish while delivering schedules the next delivery
+            scheduled.set(false);
+            SyncProgress progress = pending.getAndSet(null);
+            if (progress == null) {
+                return;
+            }
+            latest = progress;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.onSyncProgress(progress);
+            }
+        }
+    };
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+/**
+ * Turns cumulative counters sampled during a sync into {@link SyncProgress} rates and an ETA.
+ * <p/>
+ * Each rate is an exponentially weighted moving average whose weight depends on the time
+ * since the last sample, alpha = 1 - e^(-dt / {@link #TIME_CONSTANT_MS}), so bursts of
+ * progress callbacks and long silences on slow links weigh by the time they cover rather than
+ * by their count. Samples closer than {@link #MIN_SAMPLE_MS} only update the heights.
+ * <p/>
+ * Not thread safe.
+ */
+public class SyncProgressMeter {
+    public static final long TIME_CONSTANT_MS = 30 * 1000;
+    public static final long MIN_SAMPLE_MS = 1000;
+
+    private final long timeConstantMs;
+
+    private long lastTime = -1;
+    private int lastHeight;
+    private long lastTxs;
+    private long lastBytes;
+    private long lastDbTransactions;
+    private long lastDbMillis;
+    private boolean measured;
+
+    private double blocksPerSecond;
+    private double txsPerSecond;
+    private double bytesPerSecond;
+    private double dbWriteMillis;
+
+    public SyncProgressMeter() {
+        this(TIME_CONSTANT_MS);
+    }
+
+    public SyncProgressMeter(long timeConstantMs) {
+        this.timeConstantMs = timeConstantMs;
+    }
+
+    /**
+     * @param txs            txs received so far
+     * @param bytes          bytes received so far
+     * @param dbTransactions db write transactions so far
+     * @param dbMillis       time spent in db write transactions so far
+     */
+    public SyncProgress sample(long now, double progress, int height, int targetHeight,
+                               long txs, long bytes, long dbTransactions, long dbMillis) {
+        if (lastTime < 0 || height < lastHeight) {
+            // first sample or the chain was reset, nothing to measure against
+            reset(now, height, txs, bytes, dbTransactions, dbMillis);
+        } else if (now - lastTime >= MIN_SAMPLE_MS) {
+            long dt = now - lastTime;
+            // the first measurement seeds the averages instead of decaying from zero
+            double alpha = measured ? 1 - Math.exp(-(double) dt / timeConstantMs) : 1;
+            measured = true;
+            blocksPerSecond = average(blocksPerSecond, perSecond(height - lastHeight, dt), alpha);
+            txsPerSecond = average(txsPerSecond, perSecond(txs - lastTxs, dt), alpha);
+            bytesPerSecond = average(bytesPerSecond, perSecond(bytes - lastBytes, dt), alpha);
+            long transactions = dbTransactions - lastDbTransactions;
+            if (transactions > 0) {
+                double latency = (double) (dbMillis - lastDbMillis) / transactions;
+                dbWriteMillis = dbWriteMillis == 0 ? latency : average(dbWriteMillis, latency,
+                        alpha);
+            }
+            reset(now, height, txs, bytes, dbTransactions, dbMillis);
+        }
+        return new SyncProgress(progress, height, targetHeight, blocksPerSecond, txsPerSecond,
+                bytesPerSecond, dbWriteMillis, eta(height, targetHeight));
+    }
+
+    private void reset(long now, int height, long txs, long bytes, long dbTransactions,
+                       long dbMillis) {
+        lastTime = now;
+        lastHeight = height;
+        lastTxs = txs;
+        lastBytes = bytes;
+        lastDbTransactions = dbTransactions;
+        lastDbMillis = dbMillis;
+    }
+
+    private long eta(int height, int targetHeight) {
+        if (targetHeight <= height) {
+            return 0;
+        }
+        // below a block per hour the estimate means nothing
+        if (blocksPerSecond < 1.0 / 3600) {
+            return SyncProgress.UNKNOWN;
+        }
+        return (long) Math.ceil((targetHeight - height) / blocksPerSecond);
+    }
+
+    private static double perSecond(long delta, long dtMillis) {
+        return Math.max(0, delta) * 1000.0 / dtMillis;
+    }
+
+    private static double average(double average, double value, double alpha) {
+        return average + alpha * (value - average);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+
+import net.bither.BitherSetting;
+import net.bither.bitherj.core.AddressManager;
+import net.bither.preference.AppSharedPreference;
+import net.bither.util.NetworkUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the next background start of BlockchainService with a {@link SyncPolicy}. Called
+ * when the service goes down, with the number of txs of the user's addresses it has seen, which
+ * drives the policy's idle back off.
+ */
+public class SyncScheduler {
+    private static final Logger log = LoggerFactory.getLogger(SyncScheduler.class);
+
+    private static SyncPolicy policy = new AdaptiveSyncPolicy();
+
+    private SyncScheduler() {
+    }
+
+    public static void setPolicy(SyncPolicy policy) {
+        SyncScheduler.policy = policy;
+    }
+
+    public static void onServiceStopped(Context context, int transactionsReceived) {
+        AppSharedPreference preference = AppSharedPreference.getInstance();
+        if (transactionsReceived > 0) {
+            preference.setSyncTxSeen(System.currentTimeMillis());
+        } else if (preference.getLastUsedAgo() < AdaptiveSyncPolicy.JUST_USED) {
+            preference.setSyncIdleWakeups(0);
+        } else {
+            preference.setSyncIdleWakeups(preference.getSyncIdleWakeups() + 1);
+        }
+        schedule(context);
+    }
+
+    private static void schedule(Context context) {
+        final AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context
+                .ALARM_SERVICE);
+        final PendingIntent alarmIntent = PendingIntent.getService(context, 0,
+                new Intent(context, BlockchainService.class), 0);
+        alarmManager.cancel(alarmIntent);
+        BitherSetting.SyncInterval syncInterval = AppSharedPreference.getInstance()
+                .getSyncInterval();
+        if (syncInterval == BitherSetting.SyncInterval.OnlyOpenApp ||
+                AddressManager.getInstance().getAllAddresses().size() == 0) {
+            return;
+        }
+        SyncPolicy.State state = currentState(context);
+        long delay = policy.nextDelay(state);
+        // a deferrable alarm waits for the next time something else wakes the device
+        int type = policy.isDeferrable(state) ? AlarmManager.RTC : AlarmManager.RTC_WAKEUP;
+        log.info("next sync in {} min{}, {}", delay / AdaptiveSyncPolicy.MINUTE, type ==
+                AlarmManager.RTC ? " deferrable" : "", state);
+        final long now = System.currentTimeMillis();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+        // as of KitKat, set() is inexact
+        {
+            alarmManager.set(type, now + delay, alarmIntent);
+        } else
+        // workaround for no inexact set() before KitKat
+        {
+            alarmManager.setInexactRepeating(type, now + delay, AlarmManager.INTERVAL_HOUR,
+                    alarmIntent);
+        }
+    }
+
+    private static SyncPolicy.State currentState(Context context) {
+        AppSharedPreference preference = AppSharedPreference.getInstance();
+        long lastTxTime = preference.getSyncLastTxTime();
+        long lastTxAgo = lastTxTime > 0 ? System.currentTimeMillis() - lastTxTime : Long
+                .MAX_VALUE;
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent
+                .ACTION_BATTERY_CHANGED));
+        boolean charging = battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED,
+                0) != 0;
+        boolean networkAvailable = NetworkUtil.isConnectedType() != NetworkUtil.NetworkType
+                .NoConnect;
+        return new SyncPolicy.State(preference.getLastUsedAgo(), lastTxAgo, preference
+                .getSyncIdleWakeups(), charging, networkAvailable);
+    }
+}
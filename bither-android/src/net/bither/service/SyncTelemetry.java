@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import net.bither.BitherApplication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sync activity per minute of BlockchainService, one record per time tick, in a fixed size
+ * ring buffer that is memory-mapped from a file so it survives the service and the process.
+ * <p/>
+ * File layout: a header of {magic, version, next slot, count} ints followed by
+ * {@link #CAPACITY} records of {minute, blocks, txs, peers, db write ms} ints and
+ * {bytes in, bytes out} longs.
+ */
+public class SyncTelemetry {
+    private static final Logger log = LoggerFactory.getLogger(SyncTelemetry.class);
+
+    public static final int CAPACITY = 24 * 60;
+
+    private static final String FILE_NAME = "sync_telemetry";
+    private static final int MAGIC = 0x42535954;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4;
+    private static final int RECORD_SIZE = 5 * 4 + 2 * 8;
+    private static final int OFFSET_NEXT = 8;
+    private static final int OFFSET_COUNT = 12;
+
+    private static final long MINUTE = 60 * 1000;
+
+    public static final class Summary {
+        public final int minutes;
+        public final long blocks;
+        public final long txs;
+        public final double averagePeers;
+        public final long bytesIn;
+        public final long bytesOut;
+        public final long dbWriteMillis;
+
+        private Summary(int minutes, long blocks, long txs, double averagePeers, long bytesIn,
+                        long bytesOut, long dbWriteMillis) {
+            this.minutes = minutes;
+            this.blocks = blocks;
+            this.txs = txs;
+            this.averagePeers = averagePeers;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.dbWriteMillis = dbWriteMillis;
+        }
+    }
+
+    private static SyncTelemetry instance;
+
+    public static synchronized SyncTelemetry getInstance() {
+        if (instance == null) {
+            instance = new SyncTelemetry(new File(BitherApplication.mContext.getFilesDir(),
+                    FILE_NAME));
+        }
+        return instance;
+    }
+
+    private final ByteBuffer buffer;
+
+    private SyncTelemetry(File file) {
+        buffer = map(file);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(OFFSET_NEXT, 0);
+            buffer.putInt(OFFSET_COUNT, 0);
+        }
+    }
+
+    private static ByteBuffer map(File file) {
+        int size = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // the mapping stays valid after the channel is closed
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            log.warn("can not map " + file + ", telemetry will not survive restarts", e);
+            return ByteBuffer.allocate(size);
+        }
+    }
+
+    public synchronized void record(long time, int blocks, int txs, int peers, long bytesIn,
+                                    long bytesOut, int dbWriteMillis) {
+        int next = buffer.getInt(OFFSET_NEXT);
+        int offset = HEADER_SIZE + next * RECORD_SIZE;
+        buffer.putInt(offset, (int) (time / MINUTE));
+        buffer.putInt(offset + 4, blocks);
+        buffer.putInt(offset + 8, txs);
+        buffer.putInt(offset + 12, peers);
+        buffer.putInt(offset + 16, dbWriteMillis);
+        buffer.putLong(offset + 20, bytesIn);
+        buffer.putLong(offset + 28, bytesOut);
+        buffer.putInt(OFFSET_NEXT, (next + 1) % CAPACITY);
+        buffer.putInt(OFFSET_COUNT, Math.min(CAPACITY, buffer.getInt(OFFSET_COUNT) + 1));
+    }
+
+    public synchronized int size() {
+        return buffer.getInt(OFFSET_COUNT);
+    }
+
+    /**
+     * @param age 0 for the latest record
+     */
+    public synchronized int getBlocks(int age) {
+        return buffer.getInt(offsetOf(age) + 4);
+    }
+
+    public synchronized int getTxs(int age) {
+        return buffer.getInt(offsetOf(age) + 8);
+    }
+
+    public synchronized Summary summarize(long since) {
+        int sinceMinute = (int) (since / MINUTE);
+        int count = buffer.getInt(OFFSET_COUNT);
+        int minutes = 0;
+        long blocks = 0;
+        long txs = 0;
+        long peers = 0;
+        long bytesIn = 0;
+        long bytesOut = 0;
+        long dbWrite = 0;
+        for (int age = 0;
+             age < count;
+             age++) {
+            int offset = offsetOf(age);
+            if (buffer.getInt(offset) < sinceMinute) {
+                break;
+            }
+            minutes++;
+            blocks += buffer.getInt(offset + 4);
+            txs += buffer.getInt(offset + 8);
+            peers += buffer.getInt(offset + 12);
+            dbWrite += buffer.getInt(offset + 16);
+            bytesIn += buffer.getLong(offset + 20);
+            bytesOut += buffer.getLong(offset + 28);
+        }
+        return new Summary(minutes, blocks, txs, minutes == 0 ? 0 : (double) peers / minutes,
+                bytesIn, bytesOut, dbWrite);
+    }
+
+    private int offsetOf(int age) {
+        int slot = (buffer.getInt(OFFSET_NEXT) - 1 - age + CAPACITY) % CAPACITY;
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+}
@@ -3,18 +3,26 @@ package net.bither.service;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.net.TrafficStats;
+import android.os.Process;
 
+import net.bither.BitherApplication;
 import net.bither.bitherj.AbstractApp;
 import net.bither.bitherj.BitherjSettings;
 import net.bither.bitherj.core.Block;
 import net.bither.bitherj.core.BlockChain;
+import net.bither.bitherj.core.PeerManager;
+import net.bither.db.DbMaintenance;
+import net.bither.db.base.AndroidDbConfig;
+import net.bither.db.base.AndroidDbManager;
 import net.bither.preference.AppSharedPreference;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class TickReceiver extends BroadcastReceiver {
@@ -31,10 +39,14 @@ public class TickReceiver extends BroadcastReceiver {
     private BlockchainService blockchainService;
 
     private AtomicInteger transactionsReceived = new AtomicInteger();
+    private AtomicInteger sessionTransactions = new AtomicInteger();
 
     private int lastChainHeight = 0;
-    private final List<ActivityHistoryEntry> activityHistory = new
-            LinkedList<ActivityHistoryEntry>();
+    // ticks recorded by this receiver, older records in SyncTelemetry are from earlier runs
+    private int historySize = 0;
+    private long lastBytesIn;
+    private long lastBytesOut;
+    private long lastDbWriteMillis;
 
     public TickReceiver(BlockchainService blockchainService) {
         this.blockchainService = blockchainService;
@@ -53,6 +65,11 @@ public class TickReceiver extends BroadcastReceiver {
             if (block != null) {
                 chainHeight = block.getBlockNo();
             }
+            long bytesIn = TrafficStats.getUidRxBytes(Process.myUid());
+            long bytesOut = TrafficStats.getUidTxBytes(Process.myUid());
+            long dbWriteMillis = AndroidDbManager.getInstance(BitherApplication.mTxDbHelper)
+                    .getTransactionMillis() + AndroidDbManager.getInstance(BitherApplication
+                    .mAddressDbHelper).getTransactionMillis();
             if (lastChainHeight > 0) {
                 final int numBlocksDownloaded = chainHeight
                         - lastChainHeight;
@@ -60,36 +77,34 @@ public class TickReceiver extends BroadcastReceiver {
                         .getAndSet(0);
 
                 // push history
-                activityHistory.add(0, new ActivityHistoryEntry(
-                        numTransactionsReceived, numBlocksDownloaded));
-
-                // trim
-                while (activityHistory.size() > MAX_HISTORY_SIZE) {
-                    activityHistory.remove(activityHistory.size() - 1);
-                }
-
-                // print
-                final StringBuilder builder = new StringBuilder();
-                for (final ActivityHistoryEntry entry : activityHistory) {
-                    if (builder.length() > 0) {
-                        builder.append(", ");
-                    }
-                    builder.append(entry);
+                SyncTelemetry telemetry = SyncTelemetry.getInstance();
+                telemetry.record(System.currentTimeMillis(), numBlocksDownloaded,
+                        numTransactionsReceived, PeerManager.instance().getConnectedPeers()
+                                .size(), delta(bytesIn, lastBytesIn), delta(bytesOut,
+                                lastBytesOut), (int) (dbWriteMillis - lastDbWriteMillis));
+                historySize = Math.min(historySize + 1, MAX_HISTORY_SIZE);
+                blockchainService.onSyncTick(numBlocksDownloaded > 0 ||
+                        numTransactionsReceived > 0);
+                SyncProgressChannel.getInstance().resample();
+                log.debug("tick: {} blocks, {} txs", numBlocksDownloaded,
+                        numTransactionsReceived);
+
+                // checkpoint the wal once blocks and txs stop coming in
+                if (historySize >= MIN_COLLECT_HISTORY && isInactive(telemetry, 0) &&
+                        !isInactive(telemetry, 1)) {
+                    checkpointDb();
                 }
-                log.info("History of transactions/blocks: " + builder);
 
                 // determine if block and transaction activity is idling
                 boolean isIdle = false;
-                if (activityHistory.size() >= MIN_COLLECT_HISTORY) {
+                if (historySize >= MIN_COLLECT_HISTORY) {
                     isIdle = true;
                     for (int i = 0;
-                         i < activityHistory.size();
+                         i < historySize;
                          i++) {
-                        final ActivityHistoryEntry entry = activityHistory
-                                .get(i);
-                        final boolean blocksActive = entry.numBlocksDownloaded > 0
+                        final boolean blocksActive = telemetry.getBlocks(i) > 0
                                 && i <= IDLE_BLOCK_TIMEOUT_MIN;
-                        final boolean transactionsActive = entry.numTransactionsReceived > 0
+                        final boolean transactionsActive = telemetry.getTxs(i) > 0
                                 && i <= IDLE_TRANSACTION_TIMEOUT_MIN;
 
                         if (blocksActive || transactionsActive) {
@@ -102,15 +117,61 @@ public class TickReceiver extends BroadcastReceiver {
                 // if idling, shutdown service
                 if (isIdle && !AbstractApp.bitherjSetting.isApplicationRunInForeground()) {
                     log.info("idling detected, stopping service");
-                    this.blockchainService.stopSelf();
+                    log.info("executors at idle\n{}", TaskExecutor.dumpStats());
+                    if (DbMaintenance.shouldRun(context)) {
+                        // the service keeps the process alive until maintenance is done
+                        DbMaintenance.runInBackground(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!AbstractApp.bitherjSetting.isApplicationRunInForeground()) {
+                                    blockchainService.stopSelf();
+                                }
+                            }
+                        });
+                    } else if (!DbMaintenance.isRunning()) {
+                        this.blockchainService.stopSelf();
+                    }
                 }
             }
 
             lastChainHeight = chainHeight;
+            lastBytesIn = bytesIn;
+            lastBytesOut = bytesOut;
+            lastDbWriteMillis = dbWriteMillis;
         }
     }
 
+    private static boolean isInactive(SyncTelemetry telemetry, int age) {
+        return telemetry.getBlocks(age) == 0 && telemetry.getTxs(age) == 0;
+    }
+
+    // TrafficStats returns UNSUPPORTED on some devices
+    private static long delta(long value, long last) {
+        if (value == TrafficStats.UNSUPPORTED || last == TrafficStats.UNSUPPORTED) {
+            return 0;
+        }
+        return Math.max(0, value - last);
+    }
+
+    private void checkpointDb() {
+        TaskExecutor.execute(Pool.DB_WRITE, Priority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                AndroidDbConfig.checkpoint(BitherApplication.mTxDbHelper);
+                AndroidDbConfig.checkpoint(BitherApplication.mAddressDbHelper);
+            }
+        });
+    }
+
     public void setTransactionsReceived() {
         transactionsReceived.incrementAndGet();
+        sessionTransactions.incrementAndGet();
+    }
+
+    /**
+     * Txs received since the service started, for {@link SyncScheduler}.
+     */
+    public int getSessionTransactions() {
+        return sessionTransactions.get();
     }
 }
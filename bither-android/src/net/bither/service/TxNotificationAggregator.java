@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Buffers the balance changes of tx notifications for a short window and hands them out as
+ * one {@link Summary}, so a wallet catching up after days offline posts one notification
+ * instead of one per tx. The window starts at the first buffered change and does not slide,
+ * so a steady stream of txs still gets a notification every window.
+ * <p/>
+ * Must be used from the thread the {@link Scheduler} runs its runnables on, TxReceiver backs
+ * it with a Handler on the main looper.
+ */
+public class TxNotificationAggregator {
+    public static final long WINDOW_MS = 3000;
+
+    public interface Listener {
+        void onSummary(Summary summary);
+    }
+
+    public interface Scheduler {
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void removeCallbacks(Runnable runnable);
+    }
+
+    public static final class Summary {
+        /**
+         * Net balance change per address, in the order the addresses were first seen.
+         */
+        public final LinkedHashMap<String, Long> deltas;
+        public final int txCount;
+        public final long received;
+        public final long sent;
+
+        private Summary(LinkedHashMap<String, Long> deltas, int txCount, long received,
+                        long sent) {
+            this.deltas = deltas;
+            this.txCount = txCount;
+            this.received = received;
+            this.sent = sent;
+        }
+    }
+
+    private final Listener listener;
+    private final Scheduler scheduler;
+    private final long windowMs;
+
+    private LinkedHashMap<String, Long> deltas = new LinkedHashMap<String, Long>();
+    private int txCount;
+    private long received;
+    private long sent;
+
+    public TxNotificationAggregator(Listener listener, Scheduler scheduler, long windowMs) {
+        this.listener = listener;
+        this.scheduler = scheduler;
+        this.windowMs = windowMs;
+    }
+
+    public void add(String address, long delta) {
+        Long previous = deltas.get(address);
+        deltas.put(address, previous == null ? delta : previous + delta);
+        txCount++;
+        if (delta > 0) {
+            received += delta;
+        } else {
+            sent -= delta;
+        }
+        if (txCount == 1) {
+            scheduler.postDelayed(flushRunnable, windowMs);
+        }
+    }
+
+    /**
+     * Drops everything buffered, e.g. while the initial sync from spv is still running.
+     */
+    public void discard() {
+        scheduler.removeCallbacks(flushRunnable);
+        reset();
+    }
+
+    public void flush() {
+        scheduler.removeCallbacks(flushRunnable);
+        if (txCount == 0) {
+            return;
+        }
+        Summary summary = new Summary(deltas, txCount, received, sent);
+        reset();
+        listener.onSummary(summary);
+    }
+
+    private void reset() {
+        deltas = new LinkedHashMap<String, Long>();
+        txCount = 0;
+        received = 0;
+        sent = 0;
+    }
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+}
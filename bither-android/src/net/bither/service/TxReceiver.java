@@ -4,6 +4,7 @@ import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
 
 import net.bither.BitherApplication;
 import net.bither.BitherSetting;
@@ -23,11 +24,25 @@ public class TxReceiver extends BroadcastReceiver {
     private BlockchainService blockchainService;
     private NotificationManager nm;
     private TickReceiver tickReceiver;
+    private TxNotificationAggregator aggregator;
 
     public TxReceiver(BlockchainService service, TickReceiver tickReceiver) {
         this.blockchainService = service;
         this.tickReceiver = tickReceiver;
         nm = (NotificationManager) service.getSystemService(Context.NOTIFICATION_SERVICE);
+        final Handler handler = new Handler(service.getMainLooper());
+        aggregator = new TxNotificationAggregator(summaryListener, new TxNotificationAggregator
+                .Scheduler() {
+            @Override
+            public void postDelayed(Runnable runnable, long delayMs) {
+                handler.postDelayed(runnable, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+        }, TxNotificationAggregator.WINDOW_MS);
     }
 
     @Override
@@ -38,36 +53,89 @@ public class TxReceiver extends BroadcastReceiver {
         if (tickReceiver != null) {
             tickReceiver.setTransactionsReceived();
         }
-        String address = intent.getStringExtra(NotificationAndroidImpl.MESSAGE_ADDRESS);
-        long amount = intent.getLongExtra(NotificationAndroidImpl.MESSAGE_DELTA_BALANCE, 0);
+        SyncProgressChannel.getInstance().onTx();
         int txNotificationType = intent.getIntExtra(NotificationAndroidImpl.MESSAGE_TX_NOTIFICATION_TYPE, 0);
         if (txNotificationType == Tx.TxNotificationType.txReceive.getValue()) {
-            boolean isReceived = amount > 0;
-            amount = Math.abs(amount);
-            notifyCoins(address, amount, isReceived);
+            // the initial sync from spv replays the whole history, none of it is news
+            if (!AppSharedPreference.getInstance().getBitherjDoneSyncFromSpv()) {
+                aggregator.discard();
+                return;
+            }
+            String address = intent.getStringExtra(NotificationAndroidImpl.MESSAGE_ADDRESS);
+            long amount = intent.getLongExtra(NotificationAndroidImpl.MESSAGE_DELTA_BALANCE, 0);
+            aggregator.add(address, amount);
         }
 
     }
 
+    /**
+     * Posts what is still buffered, called when the service goes down.
+     */
+    public void flush() {
+        aggregator.flush();
+    }
+
+    private final TxNotificationAggregator.Listener summaryListener = new
+            TxNotificationAggregator.Listener() {
+        @Override
+        public void onSummary(TxNotificationAggregator.Summary summary) {
+            String address = summary.deltas.keySet().iterator().next();
+            if (summary.txCount == 1) {
+                long amount = summary.deltas.get(address);
+                notifyCoins(address, Math.abs(amount), amount > 0);
+                return;
+            }
+            String title;
+            if (summary.sent == 0) {
+                title = formatTitle(summary.received, true);
+            } else if (summary.received == 0) {
+                title = formatTitle(summary.sent, false);
+            } else {
+                title = formatTitle(summary.received, true) + ", " + formatTitle(summary.sent,
+                        false);
+            }
+            String addresses = summary.deltas.size() == 1 ? getAddressText(address) :
+                    blockchainService.getString(R.string.tx_notification_summary_addresses,
+                            summary.deltas.size());
+            String contentText = blockchainService.getString(R.string.tx_notification_summary,
+                    summary.txCount, addresses);
+            Intent intent = new Intent(blockchainService, HotActivity.class);
+            if (summary.deltas.size() == 1) {
+                intent.putExtra(BitherSetting.INTENT_REF.NOTIFICATION_ADDRESS, address);
+            }
+            SystemUtil.nmNotifyOfWallet(nm, blockchainService,
+                    BitherSetting.NOTIFICATION_ID_COINS_RECEIVED, intent, title,
+                    contentText, R.drawable.ic_launcher, R.raw.coins_received);
+        }
+    };
+
     private void notifyCoins(String address, final long amount,
                              boolean isReceived) {
-        String contentText = address;
+        String contentText = getAddressText(address);
+        String title = formatTitle(amount, isReceived);
+        Intent intent = new Intent(blockchainService, HotActivity.class);
+        intent.putExtra(BitherSetting.INTENT_REF.NOTIFICATION_ADDRESS, address);
+        SystemUtil.nmNotifyOfWallet(nm, blockchainService,
+                BitherSetting.NOTIFICATION_ID_COINS_RECEIVED, intent, title,
+                contentText, R.drawable.ic_launcher, R.raw.coins_received);
+
+    }
+
+    private String getAddressText(String address) {
         if (Utils.compareString(address, HDAccount.HDAccountPlaceHolder)) {
-            contentText = BitherApplication.mContext.getString(R.string.address_group_hd);
+            return BitherApplication.mContext.getString(R.string.address_group_hd);
         } else if (Utils.compareString(address, HDAccount.HDAccountMonitoredPlaceHolder)) {
-            contentText = BitherApplication.mContext.getString(R.string.address_group_hd_monitored);
+            return BitherApplication.mContext.getString(R.string.address_group_hd_monitored);
         }
+        return address;
+    }
+
+    private String formatTitle(long amount, boolean isReceived) {
         String title = UnitUtilWrapper.formatValue(amount) + " " + AppSharedPreference.getInstance().getBitcoinUnit().name();
         if (isReceived) {
-            title = blockchainService.getString(R.string.feed_received_btc) + " " + title;
+            return blockchainService.getString(R.string.feed_received_btc) + " " + title;
         } else {
-            title = blockchainService.getString(R.string.feed_send_btc) + " " + title;
+            return blockchainService.getString(R.string.feed_send_btc) + " " + title;
         }
-        Intent intent = new Intent(blockchainService, HotActivity.class);
-        intent.putExtra(BitherSetting.INTENT_REF.NOTIFICATION_ADDRESS, address);
-        SystemUtil.nmNotifyOfWallet(nm, blockchainService,
-                BitherSetting.NOTIFICATION_ID_COINS_RECEIVED, intent, title,
-                contentText, R.drawable.ic_launcher, R.raw.coins_received);
-
     }
 }
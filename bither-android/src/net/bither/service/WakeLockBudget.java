@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the sync wake lock in short timed leases instead of until the service dies. A lease is
+ * only renewed when TickReceiver reports blocks or txs coming in, so a stalled sync lets the
+ * CPU sleep once the lease runs out, and progress after that takes a new lease. The time held
+ * per day is capped; once the cap is used up the lock is not acquired again before the next
+ * day. Days run from local midnight to local midnight, the budget comes back when the user's
+ * day starts, not at midnight UTC.
+ * <p/>
+ * Lock, clock and the per-day store are interfaces so the accounting can be driven with a fake
+ * clock.
+ */
+public class WakeLockBudget {
+    private static final Logger log = LoggerFactory.getLogger(WakeLockBudget.class);
+
+    public static final long LEASE_MS = 5 * 60 * 1000;
+    public static final long DAILY_BUDGET_MS = 60 * 60 * 1000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+
+    public interface Lock {
+        void acquire(long timeout);
+
+        void release();
+    }
+
+    public interface Clock {
+        long now();
+
+        /**
+         * @return offset of the local time zone from UTC at the given time, in ms
+         */
+        long offset(long time);
+    }
+
+    public interface Store {
+        /**
+         * @param day local days since the epoch
+         */
+        long getUsed(long day);
+
+        void setUsed(long day, long used);
+    }
+
+    private final Lock lock;
+    private final Clock clock;
+    private final Store store;
+    private final long leaseMs;
+    private final long dailyBudgetMs;
+
+    private long heldSince = -1;
+    private long leaseEnd;
+    private long sessionStart;
+    private long exhaustedDay = -1;
+
+    public WakeLockBudget(Lock lock, Clock clock, Store store) {
+        this(lock, clock, store, LEASE_MS, DAILY_BUDGET_MS);
+    }
+
+    public WakeLockBudget(Lock lock, Clock clock, Store store, long leaseMs, long dailyBudgetMs) {
+        this.lock = lock;
+        this.clock = clock;
+        this.store = store;
+        this.leaseMs = leaseMs;
+        this.dailyBudgetMs = dailyBudgetMs;
+    }
+
+    /**
+     * Takes a lease if none is held. Does nothing when a lease is held, use
+     * {@link #onProgress()} to extend it.
+     *
+     * @return true if the lock is held afterwards
+     */
+    public synchronized boolean acquire() {
+        long now = clock.now();
+        account(now);
+        return isHeld(now) || lease(now);
+    }
+
+    /**
+     * Blocks or txs came in, extends the current lease or takes a new one if it ran out, as long
+     * as the budget of today lasts.
+     */
+    public synchronized void onProgress() {
+        long now = clock.now();
+        account(now);
+        lease(now);
+    }
+
+    /**
+     * Called every minute to account for leases that ran out.
+     */
+    public synchronized void tick() {
+        account(clock.now());
+    }
+
+    public synchronized void release() {
+        long now = clock.now();
+        account(now);
+        if (isHeld(now)) {
+            lock.release();
+            endSession(now);
+        }
+    }
+
+    public synchronized boolean isHeld() {
+        long now = clock.now();
+        account(now);
+        return isHeld(now);
+    }
+
+    public synchronized long getUsedToday() {
+        return store.getUsed(day(clock.now()));
+    }
+
+    private boolean isHeld(long now) {
+        return heldSince >= 0 && now < leaseEnd;
+    }
+
+    private boolean lease(long now) {
+        long day = day(now);
+        long remaining = dailyBudgetMs - store.getUsed(day);
+        if (remaining <= 0) {
+            if (exhaustedDay != day) {
+                exhaustedDay = day;
+                log.warn("wake lock budget of {}min used up for today", dailyBudgetMs / 60000);
+            }
+            return false;
+        }
+        long lease = Math.min(leaseMs, remaining);
+        try {
+            // WakeLock.acquireLocked(PowerManager.java:329) sdk16 nullpoint
+            lock.acquire(lease);
+        } catch (Exception e) {
+            log.warn("wake lock acquire failed", e);
+            return false;
+        }
+        if (heldSince < 0) {
+            heldSince = now;
+            sessionStart = now;
+        }
+        leaseEnd = now + lease;
+        return true;
+    }
+
+    /**
+     * Moves the time held since the last call into the store of its day.
+     */
+    private void account(long now) {
+        if (heldSince < 0) {
+            return;
+        }
+        long end = Math.min(now, leaseEnd);
+        while (heldSince < end) {
+            long day = day(heldSince);
+            // the next local midnight
+            long dayEnd = Math.min(end, (day + 1) * DAY_MS - clock.offset(heldSince));
+            store.setUsed(day, store.getUsed(day) + dayEnd - heldSince);
+            heldSince = dayEnd;
+        }
+        if (now >= leaseEnd) {
+            log.info("wake lock lease ran out without progress");
+            endSession(leaseEnd);
+        }
+    }
+
+    private long day(long time) {
+        return (time + clock.offset(time)) / DAY_MS;
+    }
+
+    private void endSession(long end) {
+        log.info("wake lock held for {}s, {}s of {}s used today", (end - sessionStart) / 1000,
+                store.getUsed(day(end)) / 1000, dailyBudgetMs / 1000);
+        heldSince = -1;
+    }
+}
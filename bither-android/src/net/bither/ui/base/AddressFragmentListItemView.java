@@ -36,11 +36,13 @@ import net.bither.bitherj.utils.Utils;
 import net.bither.ui.base.dialog.DialogAddressAlias;
 import net.bither.ui.base.dialog.DialogAddressFull;
 import net.bither.ui.base.dialog.DialogXRandomInfo;
+import net.bither.util.AddressSummaryCache;
+import net.bither.util.SummaryCache;
 import net.bither.util.UnitUtilWrapper;
 
 import java.math.BigInteger;
 import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Set;
 
 public class AddressFragmentListItemView extends FrameLayout implements AddressInfoChangedObserver, MarketTickerChangedObserver, DialogAddressAlias.DialogAddressAliasDelegate {
 
@@ -122,17 +124,12 @@ public class AddressFragmentListItemView extends FrameLayout implements AddressI
             ivType.setImageResource(R.drawable.address_type_watchonly_selector);
         }
         if (this.address != null && this.address.isSyncComplete()) {
-            tvBalance.setText(UnitUtilWrapper.formatValueWithBold(this.address.getBalance()));
-            tvBalanceMoney.setBigInteger(BigInteger.valueOf(this.address.getBalance()));
-            tvTransactionCount.setText(Integer.toString(this.address.txCount()));
-
-            Tx lastTransaction = null;
-            if (this.address.txCount() > 0) {
-                List<Tx> txList = this.address.getRecentlyTxsWithConfirmationCntLessThan(6, 1);
-                if (txList.size() > 0) {
-                    lastTransaction = txList.get(0);
-                }
-            }
+            SummaryCache.Summary<Tx> summary = AddressSummaryCache.getSummary(this.address);
+            tvBalance.setText(UnitUtilWrapper.formatValueWithBold(summary.balance));
+            tvBalanceMoney.setBigInteger(BigInteger.valueOf(summary.balance));
+            tvTransactionCount.setText(Integer.toString(summary.txCount));
+
+            Tx lastTransaction = summary.recentlyTx;
             if (lastTransaction != null && lastTransaction.getConfirmationCount() < 6) {
                 vTransactionImmuture.setVisibility(View.VISIBLE);
                 vTransactionImmuture.setTransaction(lastTransaction, address);
@@ -169,6 +166,16 @@ public class AddressFragmentListItemView extends FrameLayout implements AddressI
         tvBalanceMoney.onMarketTickerChanged();
     }
 
+    /**
+     * Rebinds from {@link AddressSummaryCache} if this row shows one of the changed addresses.
+     */
+    public void onAddressesChanged(Set<String> addresses, boolean allChanged) {
+        if (address != null && (allChanged || addresses.contains(AddressSummaryCache.key
+                (address)))) {
+            showAddressInfo();
+        }
+    }
+
     @Override
     public void onAddressInfoChanged(String address) {
         if (this.address != null) {
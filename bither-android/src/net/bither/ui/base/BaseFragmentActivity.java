@@ -21,6 +21,7 @@ package net.bither.ui.base;
 import android.support.v4.app.FragmentActivity;
 
 import net.bither.pin.PinCodeUtil;
+import net.bither.runnable.TaskExecutor;
 
 /**
  * Created by songchenwen on 14-11-10.
@@ -48,15 +49,12 @@ public class BaseFragmentActivity extends FragmentActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        new Thread() {
+        TaskExecutor.cancel(this);
+        TaskExecutor.schedule(TaskExecutor.Pool.CPU, TaskExecutor.Priority.LOW, new Runnable() {
             @Override
             public void run() {
-                try {
-                    sleep(200);
-                } catch (InterruptedException e) {
-                }
                 PinCodeUtil.checkBackgroundWithoutLockDelay();
             }
-        }.start();
+        }, 200);
     }
 }
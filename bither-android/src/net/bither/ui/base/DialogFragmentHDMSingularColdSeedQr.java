@@ -65,7 +65,7 @@ public class DialogFragmentHDMSingularColdSeedQr extends Fragment implements Fan
         iv = (ImageView) v.findViewById(R.id.iv_qr);
         pb = (ProgressBar) v.findViewById(R.id.pb);
         new FancyQrCodeThread(qr, Math.min(UIUtil.getScreenHeight(), UIUtil.getScreenWidth()),
-                Color.BLACK, Color.WHITE, this, false).start();
+                Color.BLACK, Color.WHITE, this, false).start(getActivity());
         return v;
     }
 
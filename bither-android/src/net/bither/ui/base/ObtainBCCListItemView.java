@@ -16,8 +16,11 @@ import net.bither.bitherj.core.SplitCoin;
 import net.bither.bitherj.db.AbstractDb;
 import net.bither.bitherj.utils.UnitUtil;
 import net.bither.bitherj.utils.Utils;
+import net.bither.util.AddressSummaryCache;
 import net.bither.util.WalletUtils;
 
+import java.util.Set;
+
 /**
  * Created by ltq on 2017/7/28.
  */
@@ -32,6 +35,7 @@ public class ObtainBCCListItemView extends FrameLayout {
     private TextView tvBalanceTitle;
 
     private Address address;
+    private SplitCoin splitCoin;
 
     public ObtainBCCListItemView(FragmentActivity activity) {
         super(activity);
@@ -54,6 +58,7 @@ public class ObtainBCCListItemView extends FrameLayout {
 
     public void setAddress(Address address, SplitCoin splitCoin) {
         this.address = address;
+        this.splitCoin = splitCoin;
         if (address != null) {
             showAddressInfo(splitCoin);
             tvBalanceTitle.setText(getResources().getString(R.string.get_split_coin));
@@ -62,6 +67,8 @@ public class ObtainBCCListItemView extends FrameLayout {
 
     public void setObtainAddress(Address address, SplitCoin splitCoin) {
         this.address = address;
+        // the split coin was obtained already, there is no balance to update
+        this.splitCoin = null;
         if (address != null) {
             tvAddress.setText(WalletUtils.formatHash(address.getAddress(), 4, 20));
             tvBalanceTitle.setText(Utils.format(getResources().getString(R.string.you_already_get_split_coin), splitCoin.getName()));
@@ -89,6 +96,16 @@ public class ObtainBCCListItemView extends FrameLayout {
         tvBalance.setText(UnitUtil.formatValue(amount, splitCoin.getBitcoinUnit()) + " " + splitCoin.getName());
     }
 
+    /**
+     * Shows the split coin balance again if this row shows one of the changed addresses.
+     */
+    public void onAddressesChanged(Set<String> addresses, boolean allChanged) {
+        if (address != null && splitCoin != null && (allChanged || addresses.contains
+                (AddressSummaryCache.key(address)))) {
+            showAddressInfo(splitCoin);
+        }
+    }
+
     public ObtainBCCListItemView(Context context) {
         super(context);
     }
@@ -100,8 +100,8 @@ public class TrendingGraphicView extends View {
 
     public void setMarketType(MarketType market) {
         removeCallbacks(retryRunnable);
-        TrendingGraphicData data = TrendingGraphicUtil.getTrendingGraphicData(market,
-                new TrendingGraphicListener() {
+        TrendingGraphicData data = TrendingGraphicUtil.getTrendingGraphicData(getContext(),
+                market, new TrendingGraphicListener() {
 
                     @Override
                     public void success(TrendingGraphicData trendingGraphicData) {
@@ -81,7 +81,7 @@ public class DialogAddressQrCopy extends Dialog implements FancyQrCodeThread.Fan
         getWindow().setLayout(WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams
                 .MATCH_PARENT);
         new FancyQrCodeThread(address, ivQr.getLayoutParams().width, Color.BLACK, Color.WHITE,
-                this, false).start();
+                this, false).start(context);
         tvAddress.setText(WalletUtils.formatHash(address, 4, 20));
         flAddress.setOnClickListener(copyClick);
     }
@@ -70,11 +70,11 @@ public class DialogFancyQrCode extends Dialog implements View.OnClickListener,
                 WindowManager.LayoutParams.MATCH_PARENT);
         if (blackAndWhite) {
             new FancyQrCodeThread(this.content, ivQr.getLayoutParams().width, Color.BLACK,
-                    Color.WHITE, this, false).start();
+                    Color.WHITE, this, false).start(activity);
         } else {
             Qr.QrCodeTheme theme = AppSharedPreference.getInstance().getFancyQrCodeTheme();
             new FancyQrCodeThread(this.content, ivQr.getLayoutParams().width, theme.getFgColor(),
-                    theme.getBgColor(), this, addAvatar).start();
+                    theme.getBgColor(), this, addAvatar).start(activity);
         }
     }
 
@@ -94,7 +94,7 @@ public class DialogFragmentFancyQrCodeSinglePage extends Fragment implements Fan
             theme = Qr.QrCodeTheme.YELLOW;
         }
         new FancyQrCodeThread(content, QrCodeSize, theme.getFgColor(), theme.getBgColor(), this,
-                false).start();
+                false).start(getActivity());
         if (AppSharedPreference.getInstance().hasUserAvatar()) {
             new GetAvatarThread().start();
         }
@@ -74,7 +74,7 @@ public class DialogPrivateKeyQrCode extends Dialog implements View.OnClickListen
         getWindow().setLayout(WindowManager.LayoutParams.MATCH_PARENT,
                 WindowManager.LayoutParams.MATCH_PARENT);
         new FancyQrCodeThread(this.content, ivQr.getLayoutParams().width, Color.BLACK,
-                Color.WHITE, this, false).start();
+                Color.WHITE, this, false).start(activity);
     }
 
     private void initView() {
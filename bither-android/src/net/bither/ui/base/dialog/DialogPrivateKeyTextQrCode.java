@@ -57,7 +57,7 @@ public class DialogPrivateKeyTextQrCode extends Dialog implements View.OnClickLi
         getWindow().setLayout(WindowManager.LayoutParams.MATCH_PARENT,
                 WindowManager.LayoutParams.MATCH_PARENT);
         new FancyQrCodeThread(this.content, ivQr.getLayoutParams().width, Color.BLACK,
-                Color.WHITE, this, false).start();
+                Color.WHITE, this, false).start(activity);
     }
 
     private void initView() {
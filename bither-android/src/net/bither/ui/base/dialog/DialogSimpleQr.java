@@ -93,7 +93,7 @@ public class DialogSimpleQr extends Dialog implements FancyQrCodeThread.FancyQrC
         getWindow().setLayout(WindowManager.LayoutParams.MATCH_PARENT,
                 WindowManager.LayoutParams.MATCH_PARENT);
         new FancyQrCodeThread(content, ivQr.getLayoutParams().width, Color.BLACK, Color.WHITE,
-                this, false).start();
+                this, false).start(context);
     }
 
     @Override
@@ -4,6 +4,7 @@ import net.bither.R;
 import net.bither.bitherj.api.DownloadFile;
 import net.bither.bitherj.api.GetAdApi;
 import net.bither.runnable.BaseRunnable;
+import net.bither.runnable.TaskExecutor;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -45,7 +46,8 @@ public class AdUtil {
                 }
             }
         };
-        new Thread(baseRunnable).start();
+        TaskExecutor.execute(TaskExecutor.Pool.NETWORK, TaskExecutor.Priority.LOW,
+                baseRunnable);
     }
 
     public boolean isDownloadImage(JSONObject newJsonObject) {
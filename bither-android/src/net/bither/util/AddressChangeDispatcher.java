@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import android.annotation.TargetApi;
+import android.view.Choreographer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the addresses that changed between two frames and hands them to the listeners in
+ * one callback per frame on the UI thread, instead of one list refresh per tx notification.
+ * <p/>
+ * Producers on any thread only add to a concurrent set and flip an atomic flag, the first
+ * change after a delivery schedules the next one with Choreographer (a 16ms Handler delay
+ * before Jelly Bean). The frames come from a {@link FrameScheduler}, so the benchmark can run
+ * the set and the drain on the JVM.
+ */
+public class AddressChangeDispatcher {
+    private static final long FRAME_MS = 16;
+
+    public interface Listener {
+        /**
+         * Called on the UI thread.
+         *
+         * @param addresses  changed addresses, HD accounts use their place holders
+         * @param allChanged true if any address may have changed, e.g. after a notification
+         *                   for every address
+         */
+        void onAddressesChanged(Set<String> addresses, boolean allChanged);
+    }
+
+    /**
+     * Runs the dispatch once on the UI thread, at the next frame.
+     */
+    interface FrameScheduler {
+        void postFrame(Runnable dispatch);
+    }
+
+    private static final AddressChangeDispatcher instance = new AddressChangeDispatcher();
+
+    public static AddressChangeDispatcher getInstance() {
+        return instance;
+    }
+
+    private final Set<String> changed = Collections.newSetFromMap(new
+            ConcurrentHashMap<String, Boolean>());
+    private final AtomicBoolean allChanged = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final CopyOnWriteArrayList<Listener> listeners = new
+            CopyOnWriteArrayList<Listener>();
+    private final FrameScheduler frameScheduler;
+
+    private AddressChangeDispatcher() {
+        this(new MainThreadFrames());
+    }
+
+    AddressChangeDispatcher(FrameScheduler frameScheduler) {
+        this.frameScheduler = frameScheduler;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param address null for every address
+     */
+    public void onAddressChanged(String address) {
+        if (address == null) {
+            allChanged.set(true);
+        } else {
+            changed.add(address);
+        }
+        schedule();
+    }
+
+    public void onAddressesChanged(Collection<String> addresses) {
+        if (addresses.isEmpty()) {
+            return;
+        }
+        changed.addAll(addresses);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            frameScheduler.postFrame(dispatch);
+        }
+    }
+
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            // clear first, a change added while draining schedules the next frame
+            scheduled.set(false);
+            boolean all = allChanged.getAndSet(false);
+            Set<String> addresses = new HashSet<String>();
+            Iterator<String> iterator = changed.iterator();
+            while (iterator.hasNext()) {
+                addresses.add(iterator.next());
+                iterator.remove();
+            }
+            if (addresses.isEmpty() && !all) {
+                return;
+            }
+            Set<String> unmodifiable = Collections.unmodifiableSet(addresses);
+            for (Listener listener : listeners) {
+                listener.onAddressesChanged(unmodifiable, all);
+            }
+        }
+    };
+
+    private static final class MainThreadFrames implements FrameScheduler {
+        @Override
+        public void postFrame(final Runnable dispatch) {
+            ThreadUtil.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (SdkUtils.hasJellyBean()) {
+                        postFrameCallback(dispatch);
+                    } else {
+                        ThreadUtil.getMainThreadHandler().postDelayed(dispatch, FRAME_MS);
+                    }
+                }
+            });
+        }
+
+        @TargetApi(16)
+        private void postFrameCallback(final Runnable dispatch) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    dispatch.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.bitherj.core.Address;
+import net.bither.bitherj.core.HDAccount;
+import net.bither.bitherj.core.Tx;
+
+import java.util.List;
+
+/**
+ * Balance, tx count and latest immature tx per address, for binding address list rows
+ * without going to sqlite on the UI thread.
+ * <p/>
+ * An entry is read from the db on the first bind of an address. After that tx notifications
+ * of a new latest tx apply their balance delta and tx on the notifying thread, before the
+ * broadcast that makes the UI rebind goes out. Only entries whose latest tx is not mature yet are read again, on
+ * {@link #onBlockChanged()}, and notifications that do not add a tx drop the entry.
+ */
+public class AddressSummaryCache {
+    public static final int IMMATURE_CONFIRMATION_COUNT = 6;
+
+    private static final SummaryCache<Address, Tx> cache = new SummaryCache<Address, Tx>(new
+            SummaryCache.Source<Address, Tx>() {
+        @Override
+        public String key(Address address) {
+            return AddressSummaryCache.key(address);
+        }
+
+        @Override
+        public SummaryCache.Summary<Tx> load(Address address) {
+            int txCount = address.txCount();
+            Tx recentlyTx = null;
+            if (txCount > 0) {
+                List<Tx> txList = address.getRecentlyTxsWithConfirmationCntLessThan
+                        (IMMATURE_CONFIRMATION_COUNT, 1);
+                if (txList.size() > 0) {
+                    recentlyTx = txList.get(0);
+                }
+            }
+            return new SummaryCache.Summary<Tx>(address.getBalance(), txCount, recentlyTx);
+        }
+
+        @Override
+        public boolean isNewer(Tx tx, Tx recentlyTx) {
+            int confirmations = tx.getConfirmationCount();
+            if (confirmations >= IMMATURE_CONFIRMATION_COUNT) {
+                return false;
+            }
+            if (recentlyTx == null) {
+                return true;
+            }
+            int recentlyConfirmations = recentlyTx.getConfirmationCount();
+            return confirmations < recentlyConfirmations || (confirmations ==
+                    recentlyConfirmations && tx.getTxTime() >= recentlyTx.getTxTime());
+        }
+    });
+
+    private AddressSummaryCache() {
+    }
+
+    public static SummaryCache.Summary<Tx> getSummary(Address address) {
+        return cache.get(address);
+    }
+
+    /**
+     * @param address the address of a tx notification, HD accounts use their place holders.
+     *                null reloads every entry.
+     */
+    public static void onAddressChanged(String address, Tx tx, Tx.TxNotificationType type,
+                                        long deltaBalance) {
+        if (address != null && tx != null && (type == Tx.TxNotificationType.txReceive || type
+                == Tx.TxNotificationType.txSend)) {
+            cache.onTxAdded(address, tx, deltaBalance);
+        } else {
+            cache.invalidate(address);
+        }
+    }
+
+    /**
+     * @return the addresses whose latest tx was not mature yet, only their confirmations changed
+     */
+    public static List<String> onBlockChanged() {
+        return cache.onBlockChanged();
+    }
+
+    public static void clear() {
+        cache.invalidate(null);
+    }
+
+    /**
+     * @return the address string used by tx notifications for this address
+     */
+    public static String key(Address address) {
+        if (address.isHDAccount()) {
+            return address.hasPrivKey() ? HDAccount.HDAccountPlaceHolder : HDAccount
+                    .HDAccountMonitoredPlaceHolder;
+        }
+        return address.getAddress();
+    }
+}
@@ -29,41 +29,45 @@ import net.bither.bitherj.utils.Utils;
 import net.bither.model.PriceAlert;
 import net.bither.model.Ticker;
 import net.bither.preference.AppSharedPreference;
+import net.bither.runnable.TaskExecutor;
+import net.bither.runnable.TaskExecutor.Pool;
+import net.bither.runnable.TaskExecutor.Priority;
 
 import org.json.JSONObject;
 
-import java.io.File;
 import java.util.List;
 
 public class BitherTimer {
-    private Thread thread = null;
+    private static final long TICKER_INTERVAL = 1 * 60 * 1000;
+
     private Context context;
-    private boolean isStop = false;
+    private boolean isStarted = false;
+    private volatile boolean isStop = false;
 
     public BitherTimer(Context context) {
         this.context = context;
     }
 
     public void startTimer() {
-        if (thread == null) {
-            thread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    while (!isStop) {
-                        getExchangeTicker();
-                        try {
-                            Thread.sleep(1 * 60 * 1000);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    LogUtil.d("bitherTime", "running");
-                }
-            });
-            thread.start();
+        if (!isStarted) {
+            isStarted = true;
+            TaskExecutor.execute(Pool.NETWORK, tickerRunnable);
         }
     }
 
+    // reschedules itself instead of sleeping, so no pool thread is held between tickers
+    private final Runnable tickerRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isStop) {
+                LogUtil.d("bitherTime", "stopped");
+                return;
+            }
+            getExchangeTicker();
+            TaskExecutor.schedule(Pool.NETWORK, Priority.NORMAL, this, TICKER_INTERVAL);
+        }
+    };
+
     public void stopTimer() {
         isStop = true;
     }
@@ -71,9 +75,7 @@ public class BitherTimer {
     private void getExchangeTicker() {
         try {
             FileUtil.upgradeTickerFile();
-            File file = FileUtil.getTickerFile();
-            @SuppressWarnings("unchecked")
-            List<Ticker> cacheList = (List<Ticker>) FileUtil.deserialize(file);
+            List<Ticker> cacheList = MarketDataStore.readTickers();
             if (cacheList != null) {
                 BroadcastUtil.sendBroadcastMarketState(cacheList);
             }
@@ -84,7 +86,7 @@ public class BitherTimer {
             List<Ticker> tickers = Ticker.formatList(json);
             if (tickers != null && tickers.size() > 0) {
                 comparePriceAlert(tickers);
-                FileUtil.serializeObject(file, tickers);
+                MarketDataStore.writeTickers(tickers);
                 BroadcastUtil.sendBroadcastMarketState(tickers);
             }
 
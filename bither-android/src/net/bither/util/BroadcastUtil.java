@@ -36,6 +36,13 @@ public class BroadcastUtil {
             .getName() + ".dowload_block_api_complete";
     public static final String ACTION_DOWLOAD_SPV_BLOCK_STATE = "complete";
 
+    public static final String ACTION_DB_MIGRATION = R.class.getPackage().getName()
+            + ".db_migration";
+    public static final String ACTION_DB_MIGRATION_NAME = "name";
+    public static final String ACTION_DB_MIGRATION_COPIED = "copied";
+    public static final String ACTION_DB_MIGRATION_TOTAL = "total";
+    public static final String ACTION_DB_MIGRATION_RETRY = "retry";
+
     public static void sendBroadcastStartPeer() {
         final Intent broadcast = new Intent(ACTION_START_PEER_MANAGER);
         BitherApplication.mContext.sendBroadcast(broadcast);
@@ -62,6 +69,29 @@ public class BroadcastUtil {
         // LogUtil.d("broadcase", "sendBroadcastAddressGetBlockComplete");
     }
 
+    /**
+     * copied and total are -1 when the migration failed.
+     */
+    public static void sendBroadcastDbMigration(String name, int copied, int total) {
+        final Intent intent = new Intent(ACTION_DB_MIGRATION);
+        intent.putExtra(ACTION_DB_MIGRATION_NAME, name);
+        intent.putExtra(ACTION_DB_MIGRATION_COPIED, copied);
+        intent.putExtra(ACTION_DB_MIGRATION_TOTAL, total);
+        BitherApplication.mContext.sendBroadcast(intent);
+    }
+
+    /**
+     * @param retry false if the migration was given up and the old table stays in use
+     */
+    public static void sendBroadcastDbMigrationFailed(String name, boolean retry) {
+        final Intent intent = new Intent(ACTION_DB_MIGRATION);
+        intent.putExtra(ACTION_DB_MIGRATION_NAME, name);
+        intent.putExtra(ACTION_DB_MIGRATION_COPIED, -1);
+        intent.putExtra(ACTION_DB_MIGRATION_TOTAL, -1);
+        intent.putExtra(ACTION_DB_MIGRATION_RETRY, retry);
+        BitherApplication.mContext.sendBroadcast(intent);
+    }
+
     public static void removeBroadcastGetSpvBlockCompelte() {
         BitherApplication.mContext.removeStickyBroadcast(new Intent(
                 ACTION_DOWLOAD_SPV_BLOCK));
@@ -20,63 +20,57 @@ import android.graphics.Color;
 
 import net.bither.BitherApplication;
 import net.bither.R;
-import net.bither.bitherj.BitherjSettings.KlineTimeType;
-import net.bither.bitherj.BitherjSettings.MarketType;
-import net.bither.charts.entity.BitherOHLCEntity;
 import net.bither.charts.entity.DateValueEntity;
-import net.bither.charts.entity.IStickEntity;
 import net.bither.charts.entity.LineEntity;
-import net.bither.charts.entity.ListChartData;
 import net.bither.charts.entity.MarketDepthEntity;
-import net.bither.charts.entity.OHLCEntity;
+import net.bither.charts.entity.OHLCChartData;
 import net.bither.charts.view.GridChart;
 import net.bither.charts.view.MACandleStickChart;
 import net.bither.charts.view.MarketDepthChart;
 import net.bither.model.Depth;
+import net.bither.model.KLine;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 public class ChartsUtil {
-	public static List<IStickEntity> formatJsonArray(MarketType marketType,
-			KlineTimeType klineTimeType, JSONArray jsonArray)
+	/**
+	 * Merges a kline api response, which lists the newest candle first, into the store.
+	 * Only the candles not older than the last stored one are parsed. A candle without volume
+	 * is flat at the previous close. Prices are stored in the currency of the market, the
+	 * store converts them when it builds the chart data.
+	 *
+	 * @return number of candles merged
+	 */
+	public static int mergeJsonArray(KLineSeriesStore store, JSONArray jsonArray)
 			throws JSONException {
-		double rate = ExchangeUtil.getRate(marketType);
-		List<IStickEntity> ohlc = new ArrayList<IStickEntity>();
-		for (int i = jsonArray.length() - 1; i >= 0; i--) {
+		long lastDate = store.getLastDate();
+		int count = 0;
+		while (count < jsonArray.length()
+				&& jsonArray.getJSONArray(count).getLong(0) * 1000 >= lastDate) {
+			count++;
+		}
+		for (int i = count - 1; i >= 0; i--) {
 			JSONArray tickerArray = jsonArray.getJSONArray(i);
 			long time = tickerArray.getLong(0) * 1000;
-			Date date = new Date(time);
-			String title = DateTimeUtil.getXTitle(klineTimeType, date);
-			double open = tickerArray.getDouble(1) / 100 * rate;
-			double high = tickerArray.getDouble(2) / 100 * rate;
-			double low = tickerArray.getDouble(3) / 100 * rate;
-			double close = tickerArray.getDouble(4) / 100 * rate;
+			double open = tickerArray.getDouble(1) / 100;
+			double high = tickerArray.getDouble(2) / 100;
+			double low = tickerArray.getDouble(3) / 100;
+			double close = tickerArray.getDouble(4) / 100;
 			double volume = tickerArray.getDouble(5) / Math.pow(10, 8);
 			if (volume == 0) {
-				if (i == 0) {
+				if (store.size() == 0) {
 					continue;
-				} else {
-					BitherOHLCEntity bitherOHLCEntity = (BitherOHLCEntity) ohlc
-							.get(i - 1);
-					open = bitherOHLCEntity.getOpen();
-					high = bitherOHLCEntity.getHigh();
-					low = bitherOHLCEntity.getLow();
-					close = bitherOHLCEntity.getClose();
 				}
-
+				open = high = low = close = store.getLastClose();
 			}
-			BitherOHLCEntity bitherOHLCEntity = new BitherOHLCEntity(open,
-					high, low, close, volume, title, time);
-
-			ohlc.add(bitherOHLCEntity);
+			store.merge(time, open, high, low, close, volume);
 		}
-
-		return ohlc;
+		store.setWindowSize(jsonArray.length());
+		return count;
 	}
 
 	public static synchronized void initMarketDepth(
@@ -124,24 +118,25 @@ public class ChartsUtil {
 		}
 	}
 
+	/**
+	 * The moving average lines come with the kline, the store keeps them in step with its
+	 * candles.
+	 */
 	public synchronized static void initMACandleStickChart(
-			MACandleStickChart macandlestickchart, List<IStickEntity> ohlc,
+			MACandleStickChart macandlestickchart, KLine kLine,
 			boolean isRefresh) {
-		List<LineEntity<DateValueEntity>> lines = new ArrayList<LineEntity<DateValueEntity>>();
+		OHLCChartData ohlc = kLine.getChartData();
+		List<LineEntity<DateValueEntity>> lines = kLine.getMovingAverages();
 
-		LineEntity<DateValueEntity> MA10 = new LineEntity<DateValueEntity>();
+		LineEntity<DateValueEntity> MA10 = lines.get(0);
 		MA10.setTitle("MA10");
 		MA10.setLineColor(BitherApplication.mContext.getResources().getColor(
 				R.color.ten_kline));
-		MA10.setLineData(initMA(ohlc, 10));
-		lines.add(MA10);
 
-		LineEntity<DateValueEntity> MA30 = new LineEntity<DateValueEntity>();
+		LineEntity<DateValueEntity> MA30 = lines.get(1);
 		MA30.setTitle("MA25");
 		MA30.setLineColor(BitherApplication.mContext.getResources().getColor(
 				R.color.thrity_kline));
-		MA30.setLineData(initMA(ohlc, 30));
-		lines.add(MA30);
 
 		int lineColor = Color.argb(30, 255, 255, 255);
 		macandlestickchart.setLongitudeFontSize(14);
@@ -161,8 +156,8 @@ public class ChartsUtil {
 		macandlestickchart.setMaxSticksNum(ohlc.size());
 		macandlestickchart.setLatitudeNum(5);
 		macandlestickchart.setLongitudeNum(5);
-		macandlestickchart.setMaxValue(getMaxValue(ohlc));
-		macandlestickchart.setMinValue(getMinValue(ohlc));
+		macandlestickchart.setMaxValue(maxValue);
+		macandlestickchart.setMinValue(minValue);
 
 		macandlestickchart.setDisplayBorder(false);
 		macandlestickchart.setDisplayLongitudeTitle(true);
@@ -181,63 +176,32 @@ public class ChartsUtil {
 
 		macandlestickchart.setLinesData(lines);
 
-		macandlestickchart.setStickData(new ListChartData<IStickEntity>(ohlc));
+		macandlestickchart.setStickData(ohlc);
 		if (isRefresh) {
 			macandlestickchart.invalidate();
 		}
 	}
 
-	private static double getMaxValue(List<IStickEntity> ohlc) {
+	private static double getMaxValue(OHLCChartData ohlc) {
 		double maxValue = 0;
-		for (IStickEntity biEntity : ohlc) {
-			OHLCEntity ohlcEntity = (OHLCEntity) biEntity;
-			if (ohlcEntity.getClose() > maxValue) {
-				maxValue = ohlcEntity.getClose();
+		for (int i = 0; i < ohlc.size(); i++) {
+			if (ohlc.getClose(i) > maxValue) {
+				maxValue = ohlc.getClose(i);
 			}
 		}
 		return maxValue;
 
 	}
 
-	private static double getMinValue(List<IStickEntity> ohlc) {
+	private static double getMinValue(OHLCChartData ohlc) {
 		double minValue = Double.MAX_VALUE;
-		for (IStickEntity biEntity : ohlc) {
-			OHLCEntity ohlcEntity = (OHLCEntity) biEntity;
-			if (ohlcEntity.getClose() < minValue) {
-				minValue = ohlcEntity.getClose();
-			}
-		}
-		return minValue;
-
-	}
-
-	private static List<DateValueEntity> initMA(List<IStickEntity> ohlc,
-			int days) {
-
-		if (days < 2) {
-			return null;
-		}
-
-		List<DateValueEntity> MA5Values = new ArrayList<DateValueEntity>();
-
-		float sum = 0;
-		float avg = 0;
 		for (int i = 0; i < ohlc.size(); i++) {
-			float close = (float) ((BitherOHLCEntity) ohlc.get(i)).getClose();
-			if (i < days) {
-				sum = sum + close;
-				avg = sum / (i + 1f);
-			} else {
-				sum = sum
-						+ close
-						- (float) ((BitherOHLCEntity) ohlc.get(i - days))
-								.getClose();
-				avg = sum / days;
+			if (ohlc.getClose(i) < minValue) {
+				minValue = ohlc.getClose(i);
 			}
-			MA5Values.add(new DateValueEntity(avg, ohlc.get(i).getDate()));
 		}
+		return minValue;
 
-		return MA5Values;
 	}
 
 }
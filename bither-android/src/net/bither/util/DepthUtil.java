@@ -19,22 +19,12 @@ package net.bither.util;
 import net.bither.bitherj.BitherjSettings.MarketType;
 import net.bither.model.Depth;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DepthUtil {
-    private static List<Depth> depths = init();
-
-    private static List<Depth> init() {
-        File file = FileUtil.getDepthFile();
-        @SuppressWarnings("unchecked")
-        List<Depth> depths = (List<Depth>) FileUtil.deserialize(file);
-        if (depths == null) {
-            depths = new ArrayList<Depth>();
-        }
-        return depths;
-    }
+    // depths read so far, each one is loaded from MarketDataStore on first use
+    private static List<Depth> depths = new ArrayList<Depth>();
 
     public static Depth getKDepth(MarketType marketType) {
         synchronized (depths) {
@@ -43,16 +33,19 @@ public class DepthUtil {
                     return depth;
                 }
             }
-            return null;
+            Depth depth = MarketDataStore.readDepth(marketType);
+            if (depth != null) {
+                depths.add(depth);
+            }
+            return depth;
         }
     }
 
     public static void addDepth(Depth depth) {
         synchronized (depths) {
-            File file = FileUtil.getDepthFile();
             depths.remove(depth);
             depths.add(depth);
-            FileUtil.serializeObject(file, depths);
+            MarketDataStore.writeDepth(depth);
         }
     }
 
@@ -73,6 +73,7 @@ public class FileUtil {
     private static final String EXCHANGERATE = "exchangerate";
     private static final String CURRENCIES_RATE = "currencies_rate";
     private static final String MARKET_CAHER = "mark";
+    private static final String MARKET_DATA = MARKET_CAHER + "/data";
 
     private static final String IMAGE_CACHE_DIR = "image";
     private static final String IMAGE_SHARE_FILE_NAME = "share.jpg";
@@ -262,6 +263,10 @@ public class FileUtil {
         return new File(marketDir, PRICE_ALERT);
     }
 
+    public static File getMarketDataDir() {
+        return getDiskDir(MARKET_DATA, false);
+    }
+
     public static File getKlineFile() {
         File file = getMarketCache();
         file = new File(file, EXCHANGE_KLINE_NAME);
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.bitherj.BitherjSettings;
+import net.bither.bitherj.BitherjSettings.KlineTimeType;
+import net.bither.bitherj.BitherjSettings.MarketType;
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.charts.entity.LineEntity;
+import net.bither.charts.entity.OHLCChartData;
+import net.bither.charts.indicator.IndicatorEngine;
+import net.bither.charts.indicator.SMAIndicator;
+import net.bither.model.KLine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Append-only candle history of one market and kline time type, memory-mapped from a file of
+ * fixed size records sorted by date. Prices are stored as the api sends them, in the currency
+ * of the market, and converted to the default currency when the chart data is built, so a
+ * change of the currency or its rate does not leave converted candles behind.
+ * <p/>
+ * New candles are merged at the end. A candle with the date of the last record replaces it,
+ * since the candle of the running period keeps changing, older ones are ignored. The file
+ * grows by remapping it twice as large. Beyond {@link #MAX_CAPACITY} candles the newest half
+ * is copied to a new file that replaces the old one.
+ * <p/>
+ * {@link #getKLine(double)} copies the candles under the lock of the store, so a merge that
+ * replaces the last candle meanwhile can not tear it.
+ * <p/>
+ * The moving averages of the chart are kept by an {@link IndicatorEngine} over the stored
+ * prices. Every merge is fed to it, so a fetch costs the new candles, and getKLine only
+ * scales the values of its window by the rate.
+ * <p/>
+ * File layout: a header of {magic, version, count, capacity, window size} ints padded to
+ * {@link #HEADER_SIZE}, followed by records of {date} long and {open, high, low, close,
+ * volume} doubles.
+ */
+public class KLineSeriesStore {
+    private static final Logger log = LoggerFactory.getLogger(KLineSeriesStore.class);
+
+    public static final int MAX_CAPACITY = 8192;
+    public static final int[] MOVING_AVERAGE_DAYS = new int[]{10, 30};
+
+    private static final String FILE_NAME = "kline_series_%d_%s";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x424B5352;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 6 * 8;
+    private static final int OFFSET_COUNT = 8;
+    private static final int OFFSET_CAPACITY = 12;
+    private static final int OFFSET_WINDOW = 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final HashMap<String, KLineSeriesStore> stores = new HashMap<String,
+            KLineSeriesStore>();
+
+    public static KLineSeriesStore get(MarketType marketType, KlineTimeType klineTimeType) {
+        // imports the serialized klines, it takes the lock of MarketDataStore first
+        MarketDataStore.migrate();
+        String name = String.format(FILE_NAME, BitherjSettings.getMarketValue(marketType),
+                klineTimeType.name());
+        synchronized (stores) {
+            KLineSeriesStore store = stores.get(name);
+            if (store == null) {
+                store = new KLineSeriesStore(marketType, klineTimeType, new File(FileUtil
+                        .getMarketDataDir(), name));
+                stores.put(name, store);
+            }
+            return store;
+        }
+    }
+
+    private final MarketType marketType;
+    private final KlineTimeType klineTimeType;
+    private final File file;
+    private final OHLCChartData.TitleFormatter titleFormatter;
+    private ByteBuffer buffer;
+    private IndicatorEngine indicators;
+    private SMAIndicator[] movingAverages;
+
+    KLineSeriesStore(MarketType marketType, KlineTimeType klineTimeType, File file) {
+        this.marketType = marketType;
+        this.klineTimeType = klineTimeType;
+        this.file = file;
+        titleFormatter = new OHLCChartData.TitleFormatter() {
+            @Override
+            public String format(long date) {
+                return DateTimeUtil.getXTitle(KLineSeriesStore.this.klineTimeType, new Date
+                        (date));
+            }
+        };
+        buffer = map(file, INITIAL_CAPACITY);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(OFFSET_COUNT, 0);
+            buffer.putInt(OFFSET_CAPACITY, INITIAL_CAPACITY);
+            buffer.putInt(OFFSET_WINDOW, 0);
+        } else if (buffer.getInt(OFFSET_CAPACITY) > INITIAL_CAPACITY) {
+            buffer = map(file, buffer.getInt(OFFSET_CAPACITY));
+        }
+        feedIndicators();
+    }
+
+    public synchronized int size() {
+        return buffer.getInt(OFFSET_COUNT);
+    }
+
+    /**
+     * @return date of the newest candle, -1 if there is none
+     */
+    public synchronized long getLastDate() {
+        int count = size();
+        return count == 0 ? -1 : buffer.getLong(HEADER_SIZE + (count - 1) * RECORD_SIZE);
+    }
+
+    public synchronized double getLastClose() {
+        int count = size();
+        return count == 0 ? 0 : buffer.getDouble(HEADER_SIZE + (count - 1) * RECORD_SIZE + 32);
+    }
+
+    /**
+     * Candles must be merged oldest first.
+     */
+    public synchronized void merge(long date, double open, double high, double low,
+                                   double close, double volume) {
+        int count = size();
+        long lastDate = getLastDate();
+        if (date < lastDate) {
+            return;
+        }
+        int index = date == lastDate ? count - 1 : count;
+        if (index == buffer.getInt(OFFSET_CAPACITY)) {
+            grow();
+            count = size();
+            index = count;
+        }
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        buffer.putLong(offset, date);
+        buffer.putDouble(offset + 8, open);
+        buffer.putDouble(offset + 16, high);
+        buffer.putDouble(offset + 24, low);
+        buffer.putDouble(offset + 32, close);
+        buffer.putDouble(offset + 40, volume);
+        if (index == count) {
+            buffer.putInt(OFFSET_COUNT, count + 1);
+        }
+        indicators.merge(date, close);
+    }
+
+    /**
+     * @param windowSize number of the newest candles {@link #getKLine(double)} shows
+     */
+    public synchronized void setWindowSize(int windowSize) {
+        buffer.putInt(OFFSET_WINDOW, windowSize);
+    }
+
+    /**
+     * Copies the candles of the last fetch into chart data, null if nothing is stored. The x
+     * titles are only formatted for the candles the chart asks for.
+     *
+     * @param rate of the market currency to the default currency
+     */
+    public synchronized KLine getKLine(double rate) {
+        int count = size();
+        int windowSize = buffer.getInt(OFFSET_WINDOW);
+        int size = windowSize > 0 ? Math.min(windowSize, count) : count;
+        if (size == 0) {
+            return null;
+        }
+        OHLCChartData chartData = new OHLCChartData(size, titleFormatter);
+        for (int offset = HEADER_SIZE + (count - size) * RECORD_SIZE;
+             offset < HEADER_SIZE + count * RECORD_SIZE;
+             offset += RECORD_SIZE) {
+            chartData.add(buffer.getLong(offset), buffer.getDouble(offset + 8) * rate, buffer
+                    .getDouble(offset + 16) * rate, buffer.getDouble(offset + 24) * rate,
+                    buffer.getDouble(offset + 32) * rate, buffer.getDouble(offset + 40), null);
+        }
+        List<LineEntity<DateValueEntity>> lines = new ArrayList<LineEntity<DateValueEntity>>
+                (movingAverages.length);
+        for (SMAIndicator movingAverage : movingAverages) {
+            LineEntity<DateValueEntity> line = new LineEntity<DateValueEntity>();
+            indicators.fill(line, movingAverage.getLine(), count - size, rate);
+            lines.add(line);
+        }
+        KLine kLine = new KLine(marketType, klineTimeType, chartData);
+        kLine.setMovingAverages(lines);
+        return kLine;
+    }
+
+    /**
+     * Merges the candles of a kline of the serialized cache.
+     *
+     * @param rate the rate the cached prices were converted with, they are stored as before
+     */
+    synchronized void importKLine(KLine kLine, double rate) {
+        OHLCChartData chartData = kLine.getChartData();
+        if (chartData == null) {
+            return;
+        }
+        for (int i = 0;
+             i < chartData.size();
+             i++) {
+            merge(chartData.getDate(i), chartData.getOpen(i) / rate, chartData.getHigh(i) /
+                    rate, chartData.getLow(i) / rate, chartData.getClose(i) / rate, chartData
+                    .getVolume(i));
+        }
+        setWindowSize(chartData.size());
+        log.info("imported {} candles of {} {}", chartData.size(), marketType, klineTimeType);
+    }
+
+    private void grow() {
+        int count = size();
+        int capacity = buffer.getInt(OFFSET_CAPACITY);
+        if (capacity < MAX_CAPACITY) {
+            capacity = Math.min(capacity * 2, MAX_CAPACITY);
+            ByteBuffer grown = map(file, capacity);
+            if (grown.getInt(0) != MAGIC) {
+                // heap fallback, carry the records over
+                grown.put(buffer.duplicate());
+            }
+            buffer = grown;
+            buffer.putInt(OFFSET_CAPACITY, capacity);
+            return;
+        }
+        // keep the newest half in a new file, mappings of the old one stay valid
+        int keep = capacity / 2;
+        ByteBuffer compacted = ByteBuffer.allocate(HEADER_SIZE + capacity * RECORD_SIZE);
+        ByteBuffer header = buffer.duplicate();
+        header.limit(HEADER_SIZE);
+        compacted.put(header);
+        ByteBuffer records = buffer.duplicate();
+        records.position(HEADER_SIZE + (count - keep) * RECORD_SIZE);
+        records.limit(HEADER_SIZE + count * RECORD_SIZE);
+        compacted.put(records);
+        compacted.putInt(OFFSET_COUNT, keep);
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+            try {
+                compacted.rewind();
+                raf.getChannel().write(compacted);
+            } finally {
+                raf.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("can not rename " + temp.getName());
+            }
+            buffer = map(file, capacity);
+        } catch (IOException e) {
+            log.warn("can not compact " + file.getName() + ", kept in memory", e);
+            buffer = compacted;
+        }
+        log.info("compacted {} from {} to {} candles", file.getName(), count, keep);
+        feedIndicators();
+    }
+
+    /**
+     * Builds the indicators over the stored candles, the merges keep them in step after that.
+     */
+    private void feedIndicators() {
+        indicators = new IndicatorEngine();
+        movingAverages = new SMAIndicator[MOVING_AVERAGE_DAYS.length];
+        for (int i = 0;
+             i < MOVING_AVERAGE_DAYS.length;
+             i++) {
+            movingAverages[i] = indicators.add(new SMAIndicator(MOVING_AVERAGE_DAYS[i]));
+        }
+        for (int offset = HEADER_SIZE;
+             offset < HEADER_SIZE + size() * RECORD_SIZE;
+             offset += RECORD_SIZE) {
+            indicators.merge(buffer.getLong(offset), buffer.getDouble(offset + 32));
+        }
+    }
+
+    private static ByteBuffer map(File file, int capacity) {
+        int size = HEADER_SIZE + capacity * RECORD_SIZE;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // the mapping stays valid after the channel is closed
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            log.warn("can not map " + file + ", candles will not survive restarts", e);
+            return ByteBuffer.allocate(size);
+        }
+    }
+}
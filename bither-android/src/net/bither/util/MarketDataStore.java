@@ -0,0 +1,392 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.bitherj.BitherjSettings;
+import net.bither.bitherj.BitherjSettings.KlineTimeType;
+import net.bither.bitherj.BitherjSettings.MarketType;
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.model.Depth;
+import net.bither.model.KLine;
+import net.bither.model.Ticker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Versioned binary files for the market data cache, replacing Java serialization of ticker,
+ * kline and depth lists.
+ * <p/>
+ * Every depth has a file of its own, so an update rewrites only the market it belongs to.
+ * Kline series live in {@link KLineSeriesStore}.
+ * <p/>
+ * A file is a header of {magic, version, count} ints followed by one column per field, e.g.
+ * all candle dates, then all opens and so on. Files are written to a temp file and renamed
+ * over the old one. A file with an unknown magic or version reads as no cache. Derived strings
+ * like the x titles of candles are rebuilt on read.
+ * <p/>
+ * The serialized exchange.ticker, exchange.kline and exchange.depth files are converted on
+ * first use of this store or a {@link KLineSeriesStore} and deleted, the klines straight into
+ * their series.
+ */
+public class MarketDataStore {
+    private static final Logger log = LoggerFactory.getLogger(MarketDataStore.class);
+
+    private static final int TICKER_MAGIC = 0x4254494B;
+    private static final int DEPTH_MAGIC = 0x42445054;
+    private static final int VERSION = 1;
+
+    private static final String TICKER_FILE = "ticker";
+    private static final String DEPTH_FILE = "depth_%d";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static boolean migrated;
+
+    private MarketDataStore() {
+    }
+
+    public static synchronized List<Ticker> readTickers() {
+        migrate();
+        return readTickers(FileUtil.getMarketDataDir());
+    }
+
+    public static synchronized void writeTickers(List<Ticker> tickers) {
+        migrate();
+        writeTickers(FileUtil.getMarketDataDir(), tickers);
+    }
+
+    public static synchronized Depth readDepth(MarketType marketType) {
+        migrate();
+        return readDepth(FileUtil.getMarketDataDir(), marketType);
+    }
+
+    public static synchronized void writeDepth(Depth depth) {
+        migrate();
+        writeDepth(FileUtil.getMarketDataDir(), depth);
+    }
+
+    static synchronized List<Ticker> readTickers(File dir) {
+        DataInputStream in = open(new File(dir, TICKER_FILE), TICKER_MAGIC);
+        if (in == null) {
+            return null;
+        }
+        try {
+            int count = in.readInt();
+            MarketType[] markets = new MarketType[count];
+            for (int i = 0;
+                 i < count;
+                 i++) {
+                markets[i] = BitherjSettings.getMarketType(in.readInt());
+            }
+            long[] dates = readLongs(in, count);
+            double[] amounts = readDoubles(in, count);
+            double[] levels = readDoubles(in, count);
+            double[] highs = readDoubles(in, count);
+            double[] lows = readDoubles(in, count);
+            double[] prices = readDoubles(in, count);
+            double[] amps = readDoubles(in, count);
+            double[] opens = readDoubles(in, count);
+            double[] sells = readDoubles(in, count);
+            double[] buys = readDoubles(in, count);
+            double[] totals = readDoubles(in, count);
+            List<Ticker> tickers = new ArrayList<Ticker>(count);
+            for (int i = 0;
+                 i < count;
+                 i++) {
+                Ticker ticker = new Ticker();
+                ticker.setMarketType(markets[i]);
+                ticker.setDate(dates[i] < 0 ? null : new Date(dates[i]));
+                ticker.setAmount(amounts[i]);
+                ticker.setLevel(levels[i]);
+                ticker.setHigh(highs[i]);
+                ticker.setLow(lows[i]);
+                ticker.setNew(prices[i]);
+                ticker.setAmp(amps[i]);
+                ticker.setOpen(opens[i]);
+                ticker.setSell(sells[i]);
+                ticker.setBuy(buys[i]);
+                ticker.setTotal(totals[i]);
+                tickers.add(ticker);
+            }
+            return tickers;
+        } catch (IOException e) {
+            log.warn("can not read tickers", e);
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    static synchronized void writeTickers(File dir, List<Ticker> tickers) {
+        File file = new File(dir, TICKER_FILE);
+        DataOutputStream out = create(file, TICKER_MAGIC);
+        if (out == null) {
+            return;
+        }
+        try {
+            out.writeInt(tickers.size());
+            for (Ticker ticker : tickers) {
+                out.writeInt(BitherjSettings.getMarketValue(ticker.getMarketType()));
+            }
+            for (Ticker ticker : tickers) {
+                out.writeLong(ticker.getDate() == null ? -1 : ticker.getDate().getTime());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getAmount());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getLevel());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getHigh());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getLow());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getPrice());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getAmp());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getOpen());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getSell());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getBuy());
+            }
+            for (Ticker ticker : tickers) {
+                out.writeDouble(ticker.getTotal());
+            }
+            commit(out, file);
+        } catch (IOException e) {
+            abort(out, file, e);
+        }
+    }
+
+    static synchronized Depth readDepth(File dir, MarketType marketType) {
+        DataInputStream in = open(getDepthFile(dir, marketType), DEPTH_MAGIC);
+        if (in == null) {
+            return null;
+        }
+        try {
+            int count = in.readInt();
+            double maxVolume = in.readDouble();
+            int splitIndex = in.readInt();
+            long[] dates = readLongs(in, count);
+            float[] values = new float[count];
+            for (int i = 0;
+                 i < count;
+                 i++) {
+                values[i] = in.readFloat();
+            }
+            List<DateValueEntity> entities = new ArrayList<DateValueEntity>(count);
+            for (int i = 0;
+                 i < count;
+                 i++) {
+                entities.add(new DateValueEntity(values[i], in.readUTF(), dates[i]));
+            }
+            Depth depth = new Depth();
+            depth.setMarketType(marketType);
+            depth.setMaxVolume(maxVolume);
+            depth.setSplitIndex(splitIndex);
+            depth.setDateValueEntities(entities);
+            return depth;
+        } catch (IOException e) {
+            log.warn("can not read depth " + marketType, e);
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    static synchronized void writeDepth(File dir, Depth depth) {
+        File file = getDepthFile(dir, depth.getMarketType());
+        DataOutputStream out = create(file, DEPTH_MAGIC);
+        if (out == null) {
+            return;
+        }
+        List<DateValueEntity> entities = depth.getDateValueEntities();
+        try {
+            out.writeInt(entities.size());
+            out.writeDouble(depth.getMaxVolume());
+            out.writeInt(depth.getSplitIndex());
+            for (DateValueEntity entity : entities) {
+                out.writeLong(entity.getDate());
+            }
+            for (DateValueEntity entity : entities) {
+                out.writeFloat(entity.getValue());
+            }
+            for (DateValueEntity entity : entities) {
+                out.writeUTF(entity.getTitle() == null ? "" : entity.getTitle());
+            }
+            commit(out, file);
+        } catch (IOException e) {
+            abort(out, file, e);
+        }
+    }
+
+    /**
+     * Converts the serialized cache files. {@link KLineSeriesStore#get(MarketType,
+     * KlineTimeType)} calls this before it takes its own lock, so the locks are always taken
+     * in this order.
+     */
+    @SuppressWarnings("unchecked")
+    static synchronized void migrate() {
+        if (migrated) {
+            return;
+        }
+        migrated = true;
+        File dir = FileUtil.getMarketDataDir();
+        File tickerFile = FileUtil.getTickerFile();
+        if (tickerFile.exists()) {
+            List<Ticker> tickers = (List<Ticker>) FileUtil.deserialize(tickerFile);
+            if (tickers != null) {
+                writeTickers(dir, tickers);
+            }
+            tickerFile.delete();
+        }
+        File kLineFile = FileUtil.getKlineFile();
+        if (kLineFile.exists()) {
+            List<KLine> kLines = (List<KLine>) FileUtil.deserialize(kLineFile);
+            if (kLines != null) {
+                for (KLine kLine : kLines) {
+                    // converted with the rate of their fetch, the current one is the best guess
+                    KLineSeriesStore.get(kLine.getMarketType(), kLine.getKlineTimeType())
+                            .importKLine(kLine, ExchangeUtil.getRate(kLine.getMarketType()));
+                }
+            }
+            kLineFile.delete();
+        }
+        File depthFile = FileUtil.getDepthFile();
+        if (depthFile.exists()) {
+            List<Depth> depths = (List<Depth>) FileUtil.deserialize(depthFile);
+            if (depths != null) {
+                for (Depth depth : depths) {
+                    writeDepth(dir, depth);
+                }
+            }
+            depthFile.delete();
+        }
+    }
+
+    private static File getDepthFile(File dir, MarketType marketType) {
+        return new File(dir, String.format(DEPTH_FILE, BitherjSettings.getMarketValue
+                (marketType)));
+    }
+
+    /**
+     * @return a stream positioned after magic and version, null if there is no readable file
+     */
+    private static DataInputStream open(File file, int magic) {
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            int fileMagic = in.readInt();
+            int version = in.readInt();
+            if (fileMagic != magic || version != VERSION) {
+                log.warn("{} has magic {} version {}, ignored", file.getName(), fileMagic,
+                        version);
+                close(in);
+                return null;
+            }
+            return in;
+        } catch (IOException e) {
+            log.warn("can not open " + file.getName(), e);
+            close(in);
+            return null;
+        }
+    }
+
+    private static DataOutputStream create(File file, int magic) {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new
+                    FileOutputStream(temp)));
+            out.writeInt(magic);
+            out.writeInt(VERSION);
+            return out;
+        } catch (IOException e) {
+            log.warn("can not create " + temp.getName(), e);
+            return null;
+        }
+    }
+
+    private static void commit(DataOutputStream out, File file) throws IOException {
+        out.close();
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        if (!temp.renameTo(file)) {
+            throw new IOException("can not rename " + temp.getName());
+        }
+    }
+
+    private static void abort(DataOutputStream out, File file, IOException e) {
+        log.warn("can not write " + file.getName(), e);
+        close(out);
+        new File(file.getPath() + TEMP_SUFFIX).delete();
+    }
+
+    private static long[] readLongs(DataInputStream in, int count) throws IOException {
+        long[] values = new long[count];
+        for (int i = 0;
+             i < count;
+             i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0;
+             i < count;
+             i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Begin and end times of the startup sections, kept in arrays allocated up front so tracing
+ * does not allocate or lock on the startup path. Sections past {@link #CAPACITY} are dropped.
+ * <p/>
+ * The sections are written to the log once, after both all the steps of the
+ * {@link net.bither.runnable.StartupOrchestrator} finished, logging being one of them, and the
+ * first frame of the main activity was drawn.
+ */
+public class StartupTrace {
+    private static final Logger log = LoggerFactory.getLogger(StartupTrace.class);
+
+    public static final int CAPACITY = 64;
+
+    private static final String[] names = new String[CAPACITY];
+    private static final String[] threads = new String[CAPACITY];
+    private static final long[] begins = new long[CAPACITY];
+    private static final long[] ends = new long[CAPACITY];
+    private static final AtomicInteger count = new AtomicInteger();
+
+    // startup steps finished and first frame drawn
+    private static final AtomicInteger pendingDump = new AtomicInteger(2);
+    // main thread only
+    private static boolean firstFrameTraced;
+
+    private StartupTrace() {
+    }
+
+    /**
+     * @return the section to pass to {@link #end(int)}, -1 if the buffer is full
+     */
+    public static int begin(String name) {
+        int section = count.getAndIncrement();
+        if (section >= CAPACITY) {
+            return -1;
+        }
+        names[section] = name;
+        threads[section] = Thread.currentThread().getName();
+        begins[section] = System.nanoTime();
+        return section;
+    }
+
+    public static void end(int section) {
+        if (section >= 0) {
+            ends[section] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called once all startup steps finished.
+     */
+    public static void onStartupFinished() {
+        if (pendingDump.decrementAndGet() == 0) {
+            log.info(dump());
+        }
+    }
+
+    /**
+     * Traces from now until the first frame of the activity was drawn, then dumps the trace.
+     * Only the first call has an effect.
+     */
+    public static void traceFirstFrame(Activity activity, String name) {
+        if (pendingDump.get() <= 0 || firstFrameTraced) {
+            return;
+        }
+        firstFrameTraced = true;
+        final int section = begin(name);
+        final View decor = activity.getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver
+                .OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                // runs after the traversal that draws this frame
+                decor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        end(section);
+                        if (pendingDump.decrementAndGet() == 0) {
+                            log.info(dump());
+                        }
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Sections still running or ended on a thread that has not synchronized with the caller
+     * may show as not finished.
+     */
+    public static String dump() {
+        int size = Math.min(count.get(), CAPACITY);
+        if (size == 0) {
+            return "startup trace empty";
+        }
+        long origin = begins[0];
+        StringBuilder builder = new StringBuilder("startup trace:");
+        for (int i = 0;
+             i < size;
+             i++) {
+            builder.append("\n").append(names[i]).append(" [").append(threads[i]).append("] +")
+                    .append(millis(begins[i] - origin)).append("ms, ");
+            if (ends[i] == 0) {
+                builder.append("not finished");
+            } else {
+                builder.append(millis(ends[i] - begins[i])).append("ms");
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1000000.0);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Balance, tx count and latest immature tx per address, kept in step with tx notifications
+ * without reading the db for every tx. {@link AddressSummaryCache} holds the instance for the
+ * wallet addresses.
+ * <p/>
+ * Reads of cached entries take no lock. A miss loads from the db without the lock, and the
+ * result is only cached if no change of that address was notified meanwhile, so a load that
+ * raced with a notification can not hide it.
+ */
+public class SummaryCache<A, T> {
+
+    public static final class Summary<T> {
+        public final long balance;
+        public final int txCount;
+        public final T recentlyTx;
+
+        public Summary(long balance, int txCount, T recentlyTx) {
+            this.balance = balance;
+            this.txCount = txCount;
+            this.recentlyTx = recentlyTx;
+        }
+    }
+
+    public interface Source<A, T> {
+        /**
+         * @return the address string used by tx notifications for this address
+         */
+        String key(A address);
+
+        /**
+         * Reads the summary from the db.
+         */
+        Summary<T> load(A address);
+
+        /**
+         * @param recentlyTx the latest immature tx before tx was added, null if there was none
+         * @return true if tx is immature and newer than recentlyTx
+         */
+        boolean isNewer(T tx, T recentlyTx);
+    }
+
+    private static final class Entry<A, T> {
+        private final A address;
+        private volatile Summary<T> summary;
+
+        private Entry(A address, Summary<T> summary) {
+            this.address = address;
+            this.summary = summary;
+        }
+    }
+
+    private final Source<A, T> source;
+    private final ConcurrentHashMap<String, Entry<A, T>> entries = new
+            ConcurrentHashMap<String, Entry<A, T>>();
+    // guarded by this, bumped on every change, so a load can tell whether it may be stale
+    private final HashMap<String, Integer> versions = new HashMap<String, Integer>();
+    private int allVersion;
+
+    public SummaryCache(Source<A, T> source) {
+        this.source = source;
+    }
+
+    public Summary<T> get(A address) {
+        String key = source.key(address);
+        Entry<A, T> entry = entries.get(key);
+        if (entry != null && entry.address == address) {
+            return entry.summary;
+        }
+        int seenAll;
+        int seenKey;
+        synchronized (this) {
+            seenAll = allVersion;
+            seenKey = version(key);
+        }
+        Summary<T> summary = source.load(address);
+        synchronized (this) {
+            if (seenAll == allVersion && seenKey == version(key) && entries.get(key) == entry) {
+                entries.put(key, new Entry<A, T>(address, summary));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * A tx of the address was added to the db. The balance delta and the tx are applied to the
+     * cached entry if the tx is the latest immature one now, otherwise the entry is read from
+     * the db again, e.g. for an older tx the sync stored out of order.
+     */
+    public synchronized void onTxAdded(String key, T tx, long deltaBalance) {
+        Entry<A, T> entry = entries.get(key);
+        if (entry != null && !source.isNewer(tx, entry.summary.recentlyTx)) {
+            invalidate(key);
+            return;
+        }
+        bump(key);
+        if (entry != null) {
+            Summary<T> summary = entry.summary;
+            entry.summary = new Summary<T>(summary.balance + deltaBalance, summary.txCount + 1,
+                    tx);
+        }
+    }
+
+    /**
+     * Something else changed the txs of the address, it is read from the db on its next get.
+     *
+     * @param key null for all addresses
+     */
+    public synchronized void invalidate(String key) {
+        if (key == null) {
+            allVersion++;
+            entries.clear();
+            return;
+        }
+        bump(key);
+        entries.remove(key);
+    }
+
+    /**
+     * Reloads the entries whose latest tx was not mature yet, their confirmations changed.
+     *
+     * @return keys of the reloaded entries, only their rows show something else now
+     */
+    public List<String> onBlockChanged() {
+        List<Entry<A, T>> immature = new ArrayList<Entry<A, T>>();
+        for (Entry<A, T> entry : entries.values()) {
+            if (entry.summary.recentlyTx != null) {
+                immature.add(entry);
+            }
+        }
+        List<String> keys = new ArrayList<String>(immature.size());
+        for (Entry<A, T> entry : immature) {
+            String key = source.key(entry.address);
+            keys.add(key);
+            int seenAll;
+            int seenKey;
+            synchronized (this) {
+                seenAll = allVersion;
+                seenKey = version(key);
+            }
+            Summary<T> summary = source.load(entry.address);
+            synchronized (this) {
+                if (seenAll == allVersion && seenKey == version(key)) {
+                    entry.summary = summary;
+                } else if (entries.get(key) == entry) {
+                    // a tx was notified while loading, read the entry again on its next get
+                    bump(key);
+                    entries.remove(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private int version(String key) {
+        Integer version = versions.get(key);
+        return version == null ? 0 : version;
+    }
+
+    private void bump(String key) {
+        versions.put(key, version(key) + 1);
+    }
+}
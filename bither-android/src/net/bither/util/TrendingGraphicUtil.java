@@ -24,6 +24,7 @@ import net.bither.bitherj.BitherjSettings.MarketType;
 import net.bither.bitherj.api.GetExchangeTrendApi;
 import net.bither.model.TrendingGraphicData;
 import net.bither.runnable.BaseRunnable;
+import net.bither.runnable.TaskExecutor;
 
 import org.json.JSONArray;
 
@@ -41,7 +42,10 @@ public class TrendingGraphicUtil {
     private static TrendingGraphicData[] trendingDatas = new TrendingGraphicData[MarketType
             .values().length + 1];
 
-    public static TrendingGraphicData getTrendingGraphicData(
+    /**
+     * @param tag usually the activity showing the graphic, see {@link TaskExecutor#cancel}
+     */
+    public static TrendingGraphicData getTrendingGraphicData(Object tag,
             final MarketType marketType,
             final TrendingGraphicListener trendingGraphicListener) {
 
@@ -89,7 +93,8 @@ public class TrendingGraphicUtil {
 
             }
         };
-        new Thread(baseRunnable).start();
+        TaskExecutor.execute(TaskExecutor.Pool.NETWORK, TaskExecutor.Priority.NORMAL, tag,
+                baseRunnable);
 
         return null;
     }
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+import net.bither.db.base.ChunkedTableCopy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the v2 to v3 rebuild of hd_account_addresses on sqlite-jdbc: prepare inside the upgrade
+ * transaction as onUpgrade does, then the chunked copy as DbMigrator does, killed in the middle
+ * of a chunk and resumed on a new connection.
+ */
+public class ChunkedTableCopyTest {
+    private static final int ROW_COUNT = 100000;
+    private static final int HD_ACCOUNT_ID = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private JdbcDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "tx.db");
+        db = new JdbcDatabase(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Test
+    public void killedCopyResumesAfterTheLastChunk() throws Exception {
+        createV2Table(ROW_COUNT);
+        ChunkedTableCopy copy = TxDatabaseHelper.V2_TO_V3_HD_ACCOUNT_ADDRESSES;
+        assertFalse(upgrade(copy));
+        assertTrue(copy.isPending(db));
+
+        // the process dies while the 11th chunk is being copied
+        db.failCopyAt = 11;
+        final List<Integer> progress = new ArrayList<Integer>();
+        ChunkedTableCopy.ProgressListener listener = new ChunkedTableCopy.ProgressListener() {
+            @Override
+            public void onProgress(ChunkedTableCopy copy, int copied, int total) {
+                progress.add(copied);
+            }
+        };
+        try {
+            copy.resume(db, listener);
+            fail();
+        } catch (RuntimeException e) {
+            // killed
+        }
+        assertEquals(10, progress.size());
+        db.close();
+
+        db = new JdbcDatabase(file);
+        assertTrue(copy.isPending(db));
+        long lastRowid = db.queryLong("select last_rowid from db_migrations where name=?",
+                new String[]{copy.getName()});
+        assertEquals(10 * ChunkedTableCopy.DEFAULT_CHUNK_SIZE, lastRowid);
+        assertEquals(lastRowid, count("hd_account_addresses2 where address in (select address" +
+                " from hd_account_addresses where rowid<=" + lastRowid + ")"));
+
+        // the app keeps writing the old table while the copy is pending
+        db.execSQL("insert into hd_account_addresses(path_type,address_index,is_issued," +
+                "address,pub,is_synced,hd_account_id) values (0,?,0,?,'pub',0,?)", new
+                Object[]{ROW_COUNT, address(ROW_COUNT), HD_ACCOUNT_ID});
+        db.execSQL("update hd_account_addresses set is_issued=1 where address=?", new
+                Object[]{address(5)});
+        db.execSQL("update hd_account_addresses set is_synced=1 where address=?", new
+                Object[]{address(ROW_COUNT - 5)});
+        db.execSQL("delete from hd_account_addresses where address=?", new Object[]{address
+                (ROW_COUNT - 1)});
+
+        progress.clear();
+        copy.resume(db, listener);
+        assertFalse(copy.isPending(db));
+        assertEquals(ROW_COUNT, (int) progress.get(progress.size() - 1));
+
+        assertEquals(ROW_COUNT, count("hd_account_addresses"));
+        assertEquals(ROW_COUNT, count("hd_account_addresses where hd_account_id=" +
+                HD_ACCOUNT_ID));
+        assertEquals(1, count("hd_account_addresses where address='" + address(ROW_COUNT) +
+                "'"));
+        assertEquals(0, count("hd_account_addresses where address='" + address(ROW_COUNT - 1) +
+                "'"));
+        assertEquals(1, count("hd_account_addresses where is_issued=1 and address='" + address
+                (5) + "'"));
+        assertEquals(1, count("hd_account_addresses where is_synced=1 and address='" + address
+                (ROW_COUNT - 5) + "'"));
+        assertV3Schema();
+    }
+
+    @Test
+    public void smallTableIsRebuiltInTheUpgrade() throws Exception {
+        createV2Table(ChunkedTableCopy.DEFAULT_CHUNK_SIZE);
+        ChunkedTableCopy copy = TxDatabaseHelper.V2_TO_V3_HD_ACCOUNT_ADDRESSES;
+        assertTrue(upgrade(copy));
+        assertFalse(copy.isPending(db));
+        assertEquals(ChunkedTableCopy.DEFAULT_CHUNK_SIZE, count("hd_account_addresses"));
+        assertV3Schema();
+    }
+
+    /**
+     * The part of TxDatabaseHelper.v2Tov3 before the copy, in one upgrade transaction.
+     */
+    private boolean upgrade(ChunkedTableCopy copy) {
+        db.beginTransaction();
+        try {
+            db.execSQL("alter table hd_account_addresses add column hd_account_id integer", new
+                    Object[0]);
+            db.execSQL("update hd_account_addresses set hd_account_id=?", new
+                    Object[]{HD_ACCOUNT_ID});
+            boolean done = copy.prepare(db);
+            db.setTransactionSuccessful();
+            return done;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void createV2Table(int rows) throws Exception {
+        Statement statement = db.connection.createStatement();
+        statement.execute("create table if not exists hd_account_addresses (path_type integer " +
+                "not null, address_index integer not null, is_issued integer not null, " +
+                "address text not null, pub text not null, is_synced integer not null, " +
+                "primary key (address));");
+        statement.close();
+        db.connection.setAutoCommit(false);
+        PreparedStatement insert = db.connection.prepareStatement("insert into " +
+                "hd_account_addresses(path_type,address_index,is_issued,address,pub," +
+                "is_synced) values (?,?,0,?,?,1)");
+        for (int i = 0;
+             i < rows;
+             i++) {
+            insert.setInt(1, i % 2);
+            insert.setInt(2, i / 2);
+            insert.setString(3, address(i));
+            insert.setString(4, "pub" + i);
+            insert.executeUpdate();
+        }
+        insert.close();
+        db.connection.commit();
+        db.connection.setAutoCommit(true);
+    }
+
+    private void assertV3Schema() throws Exception {
+        List<String> columns = new ArrayList<String>();
+        Statement statement = db.connection.createStatement();
+        ResultSet rs = statement.executeQuery("pragma table_info(hd_account_addresses)");
+        while (rs.next()) {
+            columns.add(rs.getString("name") + (rs.getInt("notnull") == 1 ? " not null" : "") +
+                    (rs.getInt("pk") > 0 ? " key" : ""));
+        }
+        rs.close();
+        statement.close();
+        assertEquals("[hd_account_id not null, path_type not null, address_index not null, " +
+                "is_issued not null, address not null key, pub not null, is_synced not null]",
+                columns.toString());
+        assertEquals(0, count("sqlite_master where name='hd_account_addresses2'"));
+        assertEquals(0, count("sqlite_master where type='trigger'"));
+        assertEquals(1, count("sqlite_master where type='index' and name='" + TxDatabaseHelper
+                .indexName(AbstractDb.CREATE_HD_ACCOUNT_ACCOUNT_ID_AND_PATH_TYPE_INDEX) + "'"));
+    }
+
+    private long count(String from) {
+        return db.queryLong("select count(0) from " + from, null);
+    }
+
+    private static String address(int i) {
+        return String.format("1Bither%027d", i);
+    }
+
+    /**
+     * SQLiteDatabase's nested transactions on a sqlite-jdbc connection.
+     */
+    private static class JdbcDatabase implements ChunkedTableCopy.Database {
+        private final Connection connection;
+        private int depth;
+        private boolean failed;
+        private boolean successful;
+        private int copies;
+        int failCopyAt = -1;
+
+        JdbcDatabase(File file) throws SQLException {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        }
+
+        @Override
+        public void execSQL(String sql, Object[] bindArgs) {
+            if (sql.startsWith("insert or ignore into hd_account_addresses2") && ++copies ==
+                    failCopyAt) {
+                throw new RuntimeException("killed");
+            }
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0;
+                     i < bindArgs.length;
+                     i++) {
+                    statement.setObject(i + 1, bindArgs[i]);
+                }
+                statement.executeUpdate();
+                statement.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Long queryLong(String sql, String[] selectionArgs) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0;
+                     selectionArgs != null && i < selectionArgs.length;
+                     i++) {
+                    statement.setString(i + 1, selectionArgs[i]);
+                }
+                ResultSet rs = statement.executeQuery();
+                Long value = null;
+                if (rs.next()) {
+                    value = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        value = null;
+                    }
+                }
+                rs.close();
+                statement.close();
+                return value;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void beginTransaction() {
+            try {
+                if (depth++ == 0) {
+                    connection.setAutoCommit(false);
+                    failed = false;
+                }
+                successful = false;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            successful = true;
+        }
+
+        @Override
+        public void endTransaction() {
+            failed |= !successful;
+            successful = false;
+            if (--depth > 0) {
+                // the outermost transaction commits or rolls back for all
+                return;
+            }
+            try {
+                if (failed) {
+                    connection.rollback();
+                } else {
+                    connection.commit();
+                }
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() throws SQLException {
+            connection.close();
+        }
+    }
+}
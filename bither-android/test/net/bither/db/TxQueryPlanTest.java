@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for the hot tx queries against the v4 schema, so an index change that
+ * turns one of them into a table scan fails here instead of on a phone with a big wallet.
+ */
+public class TxQueryPlanTest {
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute(AbstractDb.CREATE_TXS_SQL);
+        execute(AbstractDb.CREATE_TX_BLOCK_NO_INDEX);
+        execute(AbstractDb.CREATE_ADDRESSTXS_SQL);
+        execute(AbstractDb.CREATE_INS_SQL);
+        execute(AbstractDb.CREATE_OUTS_SQL);
+        // a v3 database has the superseded indexes, v3Tov4 drops them
+        for (String sql : TxDatabaseHelper.SUPERSEDED_INDEXES) {
+            execute(sql);
+        }
+        for (String sql : TxDatabaseHelper.V4_INDEXES) {
+            execute(sql);
+        }
+        for (String sql : TxDatabaseHelper.SUPERSEDED_INDEXES) {
+            execute("drop index if exists " + TxDatabaseHelper.indexName(sql) + ";");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void supersededIndexesDropped() throws Exception {
+        for (String sql : TxDatabaseHelper.SUPERSEDED_INDEXES) {
+            String name = TxDatabaseHelper.indexName(sql);
+            Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery("select count(0) from sqlite_master where " +
+                    "type='index' and name='" + name + "'");
+            assertTrue(rs.next());
+            assertEquals(name, 0, rs.getInt(1));
+            statement.close();
+        }
+    }
+
+    @Test
+    public void indexName() {
+        assertEquals("idx_in_prev_tx_hash_out_sn", TxDatabaseHelper.indexName(
+                TxDatabaseHelper.CREATE_IN_PREV_TX_HASH_OUT_SN_INDEX));
+        assertEquals("idx_a", TxDatabaseHelper.indexName("CREATE INDEX idx_a ON a (b);"));
+    }
+
+    @Test
+    public void addressHistory() throws Exception {
+        List<String> plan = explain("select b.* from addresses_txs a, txs b " +
+                "where a.tx_hash=b.tx_hash and a.address=? order by b.tx_time desc");
+        assertNoScan(plan);
+        assertUses(plan, "sqlite_autoindex_addresses_txs_1 (address=?)");
+        assertUses(plan, "sqlite_autoindex_txs_1 (tx_hash=?)");
+    }
+
+    @Test
+    public void addressesOfTx() throws Exception {
+        List<String> plan = explain("select address from addresses_txs where tx_hash=?");
+        assertNoScan(plan);
+        assertUses(plan, "idx_addresses_txs_tx_hash (tx_hash=?)");
+    }
+
+    @Test
+    public void addressBalance() throws Exception {
+        List<String> plan = explain("select ifnull(sum(out_value),0) from outs " +
+                "where out_address=? and out_status=?");
+        assertNoScan(plan);
+        assertUses(plan, "COVERING INDEX idx_out_out_address_status_value " +
+                "(out_address=? AND out_status=?)");
+    }
+
+    @Test
+    public void addressUnspentOuts() throws Exception {
+        List<String> plan = explain("select * from outs where out_address=? and out_status=?");
+        assertNoScan(plan);
+        assertUses(plan, "idx_out_out_address_status_value (out_address=? AND out_status=?)");
+    }
+
+    @Test
+    public void hdAccountBalance() throws Exception {
+        List<String> plan = explain("select ifnull(sum(out_value),0) from outs " +
+                "where hd_account_id=? and out_status=?");
+        assertNoScan(plan);
+        assertUses(plan, "COVERING INDEX idx_out_hd_account_id_status_value " +
+                "(hd_account_id=? AND out_status=?)");
+    }
+
+    @Test
+    public void spendingIn() throws Exception {
+        List<String> plan = explain("select * from ins where prev_tx_hash=? and prev_out_sn=?");
+        assertNoScan(plan);
+        assertUses(plan, "idx_in_prev_tx_hash_out_sn (prev_tx_hash=? AND prev_out_sn=?)");
+    }
+
+    @Test
+    public void insOfTx() throws Exception {
+        List<String> plan = explain("select * from ins where tx_hash=? order by in_sn");
+        assertNoScan(plan);
+        assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+    }
+
+    private void execute(String sql) throws Exception {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private List<String> explain(String sql) throws Exception {
+        List<String> plan = new ArrayList<String>();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("explain query plan " + sql.replace("?", "'0'"));
+        while (rs.next()) {
+            plan.add(rs.getString("detail"));
+        }
+        statement.close();
+        return plan;
+    }
+
+    private static void assertNoScan(List<String> plan) {
+        for (String step : plan) {
+            assertFalse(plan.toString(), step.startsWith("SCAN"));
+        }
+    }
+
+    private static void assertUses(List<String> plan, String index) {
+        for (String step : plan) {
+            if (step.contains(index)) {
+                return;
+            }
+        }
+        throw new AssertionError("no step uses " + index + ": " + plan);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db;
+
+import net.bither.bitherj.db.AbstractDb;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Readers asking for address balances while a writer stores txs the way the sync does, in
+ * transactions big enough to spill sqlite's page cache to the db file. With the rollback
+ * journal a spill takes the exclusive lock and the readers wait until the commit, with WAL
+ * the readers keep reading the last committed state.
+ */
+public class WalConcurrencyTest {
+    private static final int READER_COUNT = 2;
+    private static final int WRITE_TRANSACTIONS = 20;
+    private static final int TXS_PER_TRANSACTION = 500;
+    // the writer holds its spilled transaction this long, as a slow sync batch would
+    private static final long HOLD_MILLIS = 50;
+    private static final int ADDRESS_COUNT = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void walReadersDoNotWaitForTheWriter() throws Exception {
+        long[] wal = readerLatencies(true);
+        long[] journal = readerLatencies(false);
+        long walP99 = p99(wal);
+        long journalMax = journal[journal.length - 1];
+        System.out.println(String.format("reader p99 wal %.3fms, rollback journal %.3fms, max " +
+                "wal %.3fms, rollback journal %.3fms", walP99 / 1000000.0, p99(journal) /
+                1000000.0, wal[wal.length - 1] / 1000000.0, journalMax / 1000000.0));
+        assertTrue("wal p99 " + walP99 + "ns", walP99 < HOLD_MILLIS * 1000000);
+        // without WAL the held transaction did block the readers, the setup has contention
+        assertTrue("rollback journal max " + journalMax + "ns", journalMax >= HOLD_MILLIS *
+                1000000);
+    }
+
+    /**
+     * @return the times of all reads while the writer ran, sorted
+     */
+    private long[] readerLatencies(boolean wal) throws Exception {
+        final File file = new File(folder.getRoot(), wal ? "wal.db" : "journal.db");
+        Connection writer = open(file, wal);
+        Statement statement = writer.createStatement();
+        statement.execute(AbstractDb.CREATE_TXS_SQL);
+        statement.execute(AbstractDb.CREATE_OUTS_SQL);
+        for (String sql : TxDatabaseHelper.V4_INDEXES) {
+            if (sql.contains(" on outs ") || sql.contains(" on txs ")) {
+                statement.execute(sql);
+            }
+        }
+        // a small page cache, so every write transaction spills
+        statement.execute("PRAGMA cache_size=-64");
+        statement.close();
+
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch prepared = new CountDownLatch(READER_COUNT);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<long[]> latencies = new ArrayList<long[]>();
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0;
+             i < READER_COUNT;
+             i++) {
+            final long[] times = new long[200000];
+            latencies.add(times);
+            final boolean readerWal = wal;
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Connection connection = open(file, readerWal);
+                        PreparedStatement query = connection.prepareStatement("select ifnull" +
+                                "(sum(out_value),0) from outs where out_address=? and " +
+                                "out_status=0");
+                        prepared.countDown();
+                        int count = 0;
+                        while (writing.get() && count < times.length - 1) {
+                            long begin = System.nanoTime();
+                            query.setString(1, address(count % ADDRESS_COUNT));
+                            ResultSet rs = query.executeQuery();
+                            rs.next();
+                            rs.close();
+                            times[++count] = System.nanoTime() - begin;
+                        }
+                        times[0] = count;
+                        query.close();
+                        connection.close();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        PreparedStatement insertTx = writer.prepareStatement("insert into txs (tx_hash, " +
+                "tx_ver, tx_locktime, tx_time, block_no, source) values (?, 1, 0, ?, ?, 0)");
+        PreparedStatement insertOut = writer.prepareStatement("insert into outs (tx_hash, " +
+                "out_sn, out_script, out_value, out_status, out_address) values (?, 0, ?, ?, " +
+                "0, ?)");
+        // sqlite reads the schema when preparing, which would wait for the writer as well
+        prepared.await();
+        writer.setAutoCommit(false);
+        int sequence = 0;
+        for (int transaction = 0;
+             transaction < WRITE_TRANSACTIONS;
+             transaction++) {
+            for (int i = 0;
+                 i < TXS_PER_TRANSACTION;
+                 i++) {
+                String hash = String.format("%064x", sequence++);
+                insertTx.setString(1, hash);
+                insertTx.setLong(2, 1400000000L + sequence);
+                insertTx.setInt(3, sequence);
+                insertTx.executeUpdate();
+                insertOut.setString(1, hash);
+                insertOut.setString(2, hash + hash);
+                insertOut.setLong(3, sequence);
+                insertOut.setString(4, address(sequence % ADDRESS_COUNT));
+                insertOut.executeUpdate();
+            }
+            Thread.sleep(HOLD_MILLIS);
+            writer.commit();
+            // sync writes come in batches, the readers get the db to themselves in between
+            Thread.sleep(HOLD_MILLIS / 5);
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        writer.close();
+        assertNull(failure.get());
+
+        int total = 0;
+        for (long[] times : latencies) {
+            total += times[0];
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] times : latencies) {
+            System.arraycopy(times, 1, all, at, (int) times[0]);
+            at += times[0];
+        }
+        assertTrue(total > 0);
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static long p99(long[] sorted) {
+        return sorted[(int) (sorted.length * 0.99)];
+    }
+
+    private static Connection open(File file, boolean wal) throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        if (wal) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+        }
+        statement.execute("PRAGMA busy_timeout=10000");
+        statement.close();
+        return connection;
+    }
+
+    private static String address(int i) {
+        return String.format("1Bither%027d", i);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.db.base;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the vacuum on sqlite-jdbc against a database created the way SQLiteOpenHelper creates
+ * them, without auto_vacuum, after most of its rows have been deleted.
+ */
+public class IncrementalVacuumTest {
+    private static final int ROW_COUNT = 20000;
+    private static final int PAGES_PER_SLICE = 128;
+    private static final int TEMP_STORE_MEMORY = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private JdbcDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "tx.db");
+        db = new JdbcDatabase(file);
+        db.pragma("temp_store=" + TEMP_STORE_MEMORY);
+        db.execSQL("create table txs (tx_hash text not null primary key, tx_time integer not " +
+                "null);");
+        insertRows();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Test
+    public void switchRewritesTheFileOnce() throws Exception {
+        deleteRows();
+        long pageCount = db.pragmaLong("page_count");
+        assertTrue(db.pragmaLong("freelist_count") > PAGES_PER_SLICE);
+        assertFalse(IncrementalVacuum.isIncremental(db));
+        // a db without auto_vacuum keeps its free pages
+        assertEquals(0, IncrementalVacuum.slice(db, PAGES_PER_SLICE));
+
+        IncrementalVacuum.switchToIncremental(db);
+        assertTrue(IncrementalVacuum.isIncremental(db));
+        assertEquals(0, db.pragmaLong("freelist_count"));
+        assertTrue(db.pragmaLong("page_count") < pageCount);
+        assertEquals(TEMP_STORE_MEMORY, db.pragmaLong("temp_store"));
+        assertEquals(ROW_COUNT / 10, count());
+    }
+
+    @Test
+    public void sliceFreesItsPagesAndShrinksTheFile() throws Exception {
+        IncrementalVacuum.switchToIncremental(db);
+        deleteRows();
+        long free = db.pragmaLong("freelist_count");
+        long length = file.length();
+        assertTrue(free > 2 * PAGES_PER_SLICE);
+
+        assertEquals(PAGES_PER_SLICE, IncrementalVacuum.slice(db, PAGES_PER_SLICE));
+        assertEquals(free - PAGES_PER_SLICE, db.pragmaLong("freelist_count"));
+        // pointer map pages left without pages to point to go as well
+        assertTrue(file.length() <= length - PAGES_PER_SLICE * db.pragmaLong("page_size"));
+
+        assertEquals(free - PAGES_PER_SLICE, IncrementalVacuum.run(db, PAGES_PER_SLICE, 60000));
+        assertEquals(0, db.pragmaLong("freelist_count"));
+        assertEquals(0, IncrementalVacuum.slice(db, PAGES_PER_SLICE));
+        assertEquals(ROW_COUNT / 10, count());
+    }
+
+    @Test
+    public void runStopsAtTheBudget() throws Exception {
+        IncrementalVacuum.switchToIncremental(db);
+        deleteRows();
+        long free = db.pragmaLong("freelist_count");
+        // the first slice always runs
+        assertEquals(1, IncrementalVacuum.run(db, 1, 0));
+        assertEquals(free - 1, db.pragmaLong("freelist_count"));
+    }
+
+    private void insertRows() throws Exception {
+        db.connection.setAutoCommit(false);
+        PreparedStatement insert = db.connection.prepareStatement("insert into txs(tx_hash," +
+                "tx_time) values (?,?)");
+        for (int i = 0;
+             i < ROW_COUNT;
+             i++) {
+            insert.setString(1, String.format("%064x", i));
+            insert.setLong(2, 1400000000L + i);
+            insert.executeUpdate();
+        }
+        insert.close();
+        db.connection.commit();
+        db.connection.setAutoCommit(true);
+    }
+
+    private void deleteRows() {
+        db.execSQL("delete from txs where tx_time % 10 <> 0");
+    }
+
+    private long count() throws Exception {
+        Statement statement = db.connection.createStatement();
+        ResultSet rs = statement.executeQuery("select count(0) from txs");
+        long count = rs.next() ? rs.getLong(1) : 0;
+        rs.close();
+        statement.close();
+        return count;
+    }
+
+    /**
+     * SQLiteDatabase's pragmas and transactions on a sqlite-jdbc connection.
+     */
+    private static class JdbcDatabase implements IncrementalVacuum.Database {
+        private final Connection connection;
+
+        JdbcDatabase(File file) throws SQLException {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        }
+
+        @Override
+        public void pragma(String pragma) {
+            // runs sqlite3_exec, which steps until done, a ResultSet is not even created for
+            // the rows of incremental_vacuum as they have no columns
+            execSQL("PRAGMA " + pragma);
+        }
+
+        @Override
+        public long pragmaLong(String pragma) {
+            try {
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("PRAGMA " + pragma);
+                long value = rs.next() ? rs.getLong(1) : 0;
+                rs.close();
+                statement.close();
+                return value;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void execSQL(String sql) {
+            try {
+                Statement statement = connection.createStatement();
+                statement.executeUpdate(sql);
+                statement.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void beginTransaction() {
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void endTransaction() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() throws SQLException {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSyncPolicyTest {
+    private static final long MINUTE = AdaptiveSyncPolicy.MINUTE;
+    private static final long HOUR = AdaptiveSyncPolicy.HOUR;
+    private static final long DAY = AdaptiveSyncPolicy.DAY;
+
+    private final AdaptiveSyncPolicy policy = new AdaptiveSyncPolicy();
+
+    @Test
+    public void baseDelayFollowsUsage() {
+        assertEquals(15 * MINUTE, policy.nextDelay(state(10 * MINUTE, Long.MAX_VALUE, 0,
+                false)));
+        assertEquals(HOUR, policy.nextDelay(state(DAY, Long.MAX_VALUE, 0, false)));
+        assertEquals(HOUR, policy.nextDelay(state(10 * DAY, HOUR, 0, false)));
+        assertEquals(4 * HOUR, policy.nextDelay(state(10 * DAY, Long.MAX_VALUE, 0, false)));
+    }
+
+    @Test
+    public void idleWakeupsBackOffUpToADay() {
+        long stale = 10 * DAY;
+        assertEquals(8 * HOUR, policy.nextDelay(state(stale, Long.MAX_VALUE, 1, false)));
+        assertEquals(16 * HOUR, policy.nextDelay(state(stale, Long.MAX_VALUE, 2, false)));
+        assertEquals(DAY, policy.nextDelay(state(stale, Long.MAX_VALUE, 3, false)));
+        assertEquals(DAY, policy.nextDelay(state(stale, Long.MAX_VALUE, 100, false)));
+        assertTrue(policy.isDeferrable(state(stale, Long.MAX_VALUE, 3, false)));
+        assertFalse(policy.isDeferrable(state(stale, Long.MAX_VALUE, 2, false)));
+    }
+
+    @Test
+    public void chargingHalvesTheDelay() {
+        assertEquals(2 * HOUR, policy.nextDelay(state(10 * DAY, Long.MAX_VALUE, 0, true)));
+        assertEquals(15 * MINUTE, policy.nextDelay(state(10 * MINUTE, Long.MAX_VALUE, 0,
+                true)));
+    }
+
+    @Test
+    public void noNetworkIsDeferrable() {
+        assertTrue(policy.isDeferrable(new SyncPolicy.State(10 * MINUTE, Long.MAX_VALUE, 0,
+                false, false)));
+    }
+
+    @Test
+    public void fewerWakeupsThanLegacyForDormantWallets() {
+        for (long seed = 0;
+             seed < 10;
+             seed++) {
+            // opened every ten days, the device is awake for other apps every hour or so
+            SyncPolicySimulator.Trace trace = SyncPolicySimulator.Trace.random(seed, 60, 0.1,
+                    0.1, 20);
+            SyncPolicySimulator.Result adaptive = SyncPolicySimulator.simulate(policy, trace);
+            SyncPolicySimulator.Result legacy = SyncPolicySimulator.simulate(SyncPolicySimulator
+                    .LEGACY, trace);
+            assertTrue(adaptive + " vs " + legacy, adaptive.wakeupsPerDay < legacy
+                    .wakeupsPerDay);
+            assertTrue(adaptive.toString(), adaptive.averageLatency < 2 * DAY);
+        }
+    }
+
+    @Test
+    public void deferredSyncsWaitForAWake() {
+        // used once at the start, never again: the policy backs off into deferrable syncs
+        long[] usages = new long[]{0};
+        long[] txs = new long[]{5 * DAY};
+        SyncPolicySimulator.Trace withoutWakes = new SyncPolicySimulator.Trace(10 * DAY,
+                usages, txs, new long[0]);
+        SyncPolicySimulator.Trace withWake = new SyncPolicySimulator.Trace(10 * DAY, usages,
+                txs, new long[]{6 * DAY});
+        SyncPolicySimulator.Result without = SyncPolicySimulator.simulate(policy, withoutWakes);
+        SyncPolicySimulator.Result with = SyncPolicySimulator.simulate(policy, withWake);
+        // nothing wakes the device after the back off, the tx waits until the trace ends
+        assertEquals(5 * DAY, without.maxLatency);
+        assertEquals(DAY, with.maxLatency);
+        // wakeups after 1, 3, 7, 15 and 31 hours, the deferred syncs after that cost none
+        assertEquals(0.5, without.wakeupsPerDay, 0);
+    }
+
+    private static SyncPolicy.State state(long lastUsedAgo, long lastTxAgo, int idleWakeups,
+                                          boolean charging) {
+        return new SyncPolicy.State(lastUsedAgo, lastTxAgo, idleWakeups, charging, true);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the posted runnables on the test thread when the fake clock passes their time, in the
+ * order of their times and, for the same time, of posting, as a Handler does.
+ */
+public class FakeScheduler implements PeerConnectivityController.Scheduler,
+        TxNotificationAggregator.Scheduler {
+    private final List<Runnable> runnables = new ArrayList<Runnable>();
+    private final List<Long> times = new ArrayList<Long>();
+    private long now;
+    private boolean quit;
+
+    @Override
+    public void postDelayed(Runnable runnable, long delayMs) {
+        int at = 0;
+        while (at < times.size() && times.get(at) <= now + delayMs) {
+            at++;
+        }
+        runnables.add(at, runnable);
+        times.add(at, now + delayMs);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+        for (int i = runnables.size() - 1;
+             i >= 0;
+             i--) {
+            if (runnables.get(i) == runnable) {
+                runnables.remove(i);
+                times.remove(i);
+            }
+        }
+    }
+
+    @Override
+    public void quit() {
+        quit = true;
+    }
+
+    public boolean isQuit() {
+        return quit;
+    }
+
+    public long now() {
+        return now;
+    }
+
+    public int pendingCount() {
+        return runnables.size();
+    }
+
+    public void advance(long ms) {
+        long until = now + ms;
+        while (!runnables.isEmpty() && times.get(0) <= until) {
+            now = times.remove(0);
+            runnables.remove(0).run();
+        }
+        now = until;
+    }
+}
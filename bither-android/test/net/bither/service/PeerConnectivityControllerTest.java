@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays bursts of connectivity and storage broadcasts against a fake clock, as a flapping
+ * network or a wifi to mobile hand over sends them.
+ */
+public class PeerConnectivityControllerTest {
+    private FakeScheduler scheduler;
+    private FakePeer peer;
+    private PeerConnectivityController controller;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        peer = new FakePeer();
+        controller = new PeerConnectivityController(peer, scheduler);
+    }
+
+    @Test
+    public void flappingNetworkStartsThePeersOnce() {
+        // up and down every 100ms for 3s, ending up
+        for (int i = 0;
+             i < 30;
+             i++) {
+            controller.onConnectivity(i % 2 == 1);
+            scheduler.advance(100);
+        }
+        controller.onConnectivity(true);
+        assertEquals(0, peer.starts);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(1, peer.starts);
+        assertEquals(0, peer.stops);
+        assertTrue(peer.running);
+    }
+
+    @Test
+    public void flappingNetworkEndingDownStopsThePeersOnce() {
+        controller.onConnectivity(true);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(1, peer.starts);
+
+        replay(new long[][]{{0, 0}, {50, 1}, {80, 0}, {400, 1}, {420, 0}, {1200, 1}, {1300,
+                0}});
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(1, peer.starts);
+        assertEquals(1, peer.stops);
+        assertFalse(peer.running);
+    }
+
+    @Test
+    public void burstsFurtherApartThanTheDebounceApplyEach() {
+        long gap = PeerConnectivityController.DEBOUNCE_MS + 500;
+        replay(new long[][]{{0, 1}, {100, 0}, {200, 1}, {200 + gap, 0}, {300 + gap, 1},
+                {400 + gap, 0}, {400 + 2 * gap, 1}});
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(2, peer.starts);
+        assertEquals(1, peer.stops);
+        assertTrue(peer.running);
+    }
+
+    @Test
+    public void sameStateAgainDoesNothing() {
+        controller.onConnectivity(true);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        for (int i = 0;
+             i < 5;
+             i++) {
+            controller.onConnectivity(true);
+            scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        }
+        assertEquals(1, peer.starts);
+        assertEquals(0, peer.stops);
+    }
+
+    @Test
+    public void lowStorageWithinTheBurstKeepsThePeersStopped() {
+        controller.onConnectivity(true);
+        scheduler.advance(200);
+        controller.onStorage(false);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(0, peer.starts);
+
+        controller.onStorage(true);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(1, peer.starts);
+    }
+
+    @Test
+    public void notAllowedKeepsThePeersStopped() {
+        peer.allowed = false;
+        controller.onConnectivity(true);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(0, peer.starts);
+    }
+
+    @Test
+    public void startRequestSkipsTheDebounce() {
+        controller.onConnectivity(true);
+        scheduler.advance(100);
+        controller.onStartRequested();
+        scheduler.advance(0);
+        assertEquals(1, peer.starts);
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(1, peer.starts);
+    }
+
+    @Test
+    public void quitDropsThePendingApply() {
+        controller.onConnectivity(true);
+        controller.quit();
+        scheduler.advance(PeerConnectivityController.DEBOUNCE_MS);
+        assertEquals(0, peer.starts);
+        assertTrue(scheduler.isQuit());
+    }
+
+    /**
+     * @param trace rows of milliseconds since the first broadcast and 1 for network up, 0 for
+     *              down
+     */
+    private void replay(long[][] trace) {
+        long at = 0;
+        for (long[] broadcast : trace) {
+            scheduler.advance(broadcast[0] - at);
+            at = broadcast[0];
+            controller.onConnectivity(broadcast[1] == 1);
+        }
+    }
+
+    private static class FakePeer implements PeerConnectivityController.PeerControl {
+        boolean allowed = true;
+        boolean running;
+        int starts;
+        int stops;
+
+        @Override
+        public boolean isAllowedToRun() {
+            return allowed;
+        }
+
+        @Override
+        public boolean isPeerRunning() {
+            return running;
+        }
+
+        @Override
+        public void startPeer() {
+            running = true;
+            starts++;
+        }
+
+        @Override
+        public void stopPeer() {
+            running = false;
+            stops++;
+        }
+    }
+}
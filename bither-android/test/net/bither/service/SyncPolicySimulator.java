@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import net.bither.BitherSetting;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replays a usage trace against a {@link SyncPolicy} to compare wakeups per day with how long
+ * a tx waits until a sync sees it, e.g. against {@link #LEGACY}.
+ * <p/>
+ * Model: opening the app syncs right away. A sync sees every tx that arrived before it. After
+ * each sync the policy picks the next one. A sync that is not deferrable wakes the device at
+ * its time. A deferrable one is a non wakeup alarm: it waits until the device is awake anyway,
+ * for a usage or one of the trace's other wakes, and costs no wakeup of its own.
+ */
+public class SyncPolicySimulator {
+
+    /**
+     * The fixed intervals used before {@link AdaptiveSyncPolicy}.
+     */
+    public static final SyncPolicy LEGACY = new SyncPolicy() {
+        @Override
+        public long nextDelay(State state) {
+            if (state.lastUsedAgo < BitherSetting.LAST_USAGE_THRESHOLD_JUST_MS) {
+                return 15 * AdaptiveSyncPolicy.MINUTE;
+            } else if (state.lastUsedAgo < BitherSetting.LAST_USAGE_THRESHOLD_RECENTLY_MS) {
+                return AdaptiveSyncPolicy.DAY / 2;
+            }
+            return AdaptiveSyncPolicy.DAY;
+        }
+
+        @Override
+        public boolean isDeferrable(State state) {
+            return false;
+        }
+    };
+
+    public static final class Trace {
+        public final long duration;
+        public final long[] usages;
+        public final long[] txs;
+        public final long[] wakes;
+
+        /**
+         * @param usages times the app is opened, ms from the start of the trace
+         * @param txs    times a tx of the user's addresses is broadcast
+         * @param wakes  times the device is awake for something else, e.g. another app's alarm
+         */
+        public Trace(long duration, long[] usages, long[] txs, long[] wakes) {
+            this.duration = duration;
+            this.usages = usages.clone();
+            this.txs = txs.clone();
+            this.wakes = wakes.clone();
+            Arrays.sort(this.usages);
+            Arrays.sort(this.txs);
+            Arrays.sort(this.wakes);
+        }
+
+        /**
+         * Usages, txs and other wakes as independent poisson arrivals.
+         */
+        public static Trace random(long seed, int days, double usagesPerDay, double txsPerDay,
+                                   double wakesPerDay) {
+            Random random = new Random(seed);
+            long duration = days * AdaptiveSyncPolicy.DAY;
+            return new Trace(duration, arrivals(random, duration, usagesPerDay), arrivals
+                    (random, duration, txsPerDay), arrivals(random, duration, wakesPerDay));
+        }
+
+        /**
+         * @return the first other wake at or after time, Long.MAX_VALUE if there is none
+         */
+        long nextWake(long time) {
+            int i = Arrays.binarySearch(wakes, time);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return i < wakes.length ? wakes[i] : Long.MAX_VALUE;
+        }
+
+        private static long[] arrivals(Random random, long duration, double perDay) {
+            if (perDay <= 0) {
+                return new long[0];
+            }
+            long[] times = new long[16];
+            int count = 0;
+            double mean = AdaptiveSyncPolicy.DAY / perDay;
+            double t = -Math.log(1 - random.nextDouble()) * mean;
+            while (t < duration) {
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                times[count++] = (long) t;
+                t += -Math.log(1 - random.nextDouble()) * mean;
+            }
+            return Arrays.copyOf(times, count);
+        }
+    }
+
+    public static final class Result {
+        public final double wakeupsPerDay;
+        public final double syncsPerDay;
+        public final long averageLatency;
+        public final long maxLatency;
+
+        private Result(double wakeupsPerDay, double syncsPerDay, long averageLatency,
+                       long maxLatency) {
+            this.wakeupsPerDay = wakeupsPerDay;
+            this.syncsPerDay = syncsPerDay;
+            this.averageLatency = averageLatency;
+            this.maxLatency = maxLatency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f wakeups/day, %.1f syncs/day, tx latency %d min avg %d min" +
+                    " max", wakeupsPerDay, syncsPerDay, averageLatency / AdaptiveSyncPolicy
+                    .MINUTE, maxLatency / AdaptiveSyncPolicy.MINUTE);
+        }
+    }
+
+    private SyncPolicySimulator() {
+    }
+
+    public static Result simulate(SyncPolicy policy, Trace trace) {
+        long lastUsed = Long.MIN_VALUE / 2;
+        long lastTx = Long.MIN_VALUE / 2;
+        int idleWakeups = 0;
+        int nextUsage = 0;
+        int nextTx = 0;
+        int wakeups = 0;
+        int syncs = 0;
+        long latencySum = 0;
+        long maxLatency = 0;
+        long now = 0;
+        boolean deferrable = false;
+        long nextSync = 0;
+        while (true) {
+            boolean usage = nextUsage < trace.usages.length && trace.usages[nextUsage] <=
+                    nextSync;
+            now = usage ? trace.usages[nextUsage++] : nextSync;
+            if (now >= trace.duration) {
+                break;
+            }
+            syncs++;
+            if (!usage && !deferrable && now > 0) {
+                wakeups++;
+            }
+            int seen = 0;
+            while (nextTx < trace.txs.length && trace.txs[nextTx] <= now) {
+                long latency = now - trace.txs[nextTx++];
+                latencySum += latency;
+                maxLatency = Math.max(maxLatency, latency);
+                seen++;
+            }
+            if (usage) {
+                lastUsed = now;
+            }
+            if (seen > 0) {
+                lastTx = now;
+            }
+            if (usage || seen > 0) {
+                idleWakeups = 0;
+            } else {
+                idleWakeups++;
+            }
+            SyncPolicy.State state = new SyncPolicy.State(now - lastUsed, now - lastTx,
+                    idleWakeups, false, true);
+            nextSync = now + policy.nextDelay(state);
+            deferrable = policy.isDeferrable(state);
+            if (deferrable) {
+                nextSync = trace.nextWake(nextSync);
+            }
+        }
+        // txs nobody synced for count until the end of the trace
+        while (nextTx < trace.txs.length) {
+            long latency = trace.duration - trace.txs[nextTx++];
+            latencySum += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        double days = (double) trace.duration / AdaptiveSyncPolicy.DAY;
+        return new Result(wakeups / days, syncs / days, trace.txs.length == 0 ? 0 : latencySum
+                / trace.txs.length, maxLatency);
+    }
+}
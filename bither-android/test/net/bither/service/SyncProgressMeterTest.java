@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds the meter traces of a sync like the peer callbacks and the minute tick do.
+ */
+public class SyncProgressMeterTest {
+    private static final int TARGET = 100000;
+
+    private SyncProgressMeter meter;
+    private long now;
+    private int height;
+    private long txs;
+    private long bytes;
+    private long dbTransactions;
+    private long dbMillis;
+
+    @Before
+    public void setUp() {
+        meter = new SyncProgressMeter();
+        now = 1000000;
+        sample();
+    }
+
+    @Test
+    public void steadyRate() {
+        SyncProgress progress = run(120, 1000, 20);
+        assertEquals(20, progress.blocksPerSecond, 1e-9);
+        assertEquals(60, progress.txsPerSecond, 1e-9);
+        assertEquals(20 * 1024, progress.bytesPerSecond, 1e-6);
+        assertEquals(5, progress.dbWriteMillis, 1e-9);
+        assertEquals((TARGET - height) / 20, progress.etaSeconds);
+    }
+
+    @Test
+    public void firstMeasurementSeedsRate() {
+        SyncProgress progress = run(1, 2000, 10);
+        assertEquals(10, progress.blocksPerSecond, 1e-9);
+    }
+
+    @Test
+    public void stallDecaysRateOnTicks() {
+        run(60, 1000, 20);
+        // the minute tick samples again with nothing new
+        now += 60 * 1000;
+        SyncProgress progress = sample();
+        assertEquals(20 * Math.exp(-2), progress.blocksPerSecond, 1e-9);
+        assertEquals(0, progress.bytesPerSecond, 20 * 1024 * Math.exp(-2) + 1e-6);
+        long eta = progress.etaSeconds;
+        assertTrue(eta > (TARGET - height) / 20);
+        now += 60 * 1000;
+        assertTrue(sample().etaSeconds > eta);
+        for (int i = 0;
+             i < 10;
+             i++) {
+            now += 60 * 1000;
+            progress = sample();
+        }
+        assertEquals(SyncProgress.UNKNOWN, progress.etaSeconds);
+    }
+
+    @Test
+    public void burstWeighsByTime() {
+        run(60, 1000, 10);
+        // a burst of callbacks within a second only moves the heights
+        for (int i = 0;
+             i < 50;
+             i++) {
+            now += 10;
+            height += 100;
+            SyncProgress progress = sample();
+            assertEquals(10, progress.blocksPerSecond, 1e-9);
+            assertEquals(height, progress.height);
+        }
+        now += 500;
+        // 5000 blocks over one second weigh by that second, not by 50 callbacks
+        double alpha = 1 - Math.exp(-1000.0 / SyncProgressMeter.TIME_CONSTANT_MS);
+        assertEquals(10 + alpha * (5000 - 10), sample().blocksPerSecond, 1e-6);
+    }
+
+    @Test
+    public void slowLinkWeighsLongGap() {
+        run(60, 1000, 10);
+        // one sample after a long silence on a slow link is the new rate almost entirely
+        SyncProgress progress = run(1, 5 * 60 * 1000, 1);
+        assertEquals(1, progress.blocksPerSecond, 9 * Math.exp(-10) + 1e-9);
+    }
+
+    @Test
+    public void chainResetMeasuresAgain() {
+        run(60, 1000, 10);
+        height -= 500;
+        SyncProgress progress = sample();
+        // no negative rate from the lower height, the old average stays until the next sample
+        assertEquals(10, progress.blocksPerSecond, 1e-9);
+        double alpha = 1 - Math.exp(-1000.0 / SyncProgressMeter.TIME_CONSTANT_MS);
+        assertEquals(10 + alpha * (4 - 10), run(1, 1000, 4).blocksPerSecond, 1e-9);
+    }
+
+    @Test
+    public void etaZeroAtTarget() {
+        run(10, 1000, 10);
+        height = TARGET;
+        now += 1000;
+        assertEquals(0, sample().etaSeconds);
+    }
+
+    @Test
+    public void noBlocksYetHasNoEta() {
+        now += 1000;
+        assertEquals(SyncProgress.UNKNOWN, sample().etaSeconds);
+    }
+
+    /**
+     * Samples every intervalMs with blocksPerSecond blocks, 3 txs, 1KiB and one db transaction
+     * of 5ms per block.
+     */
+    private SyncProgress run(int samples, long intervalMs, int blocksPerSecond) {
+        SyncProgress progress = null;
+        for (int i = 0;
+             i < samples;
+             i++) {
+            now += intervalMs;
+            int blocks = (int) (blocksPerSecond * intervalMs / 1000);
+            height += blocks;
+            txs += 3 * blocks;
+            bytes += 1024 * blocks;
+            dbTransactions += blocks;
+            dbMillis += 5 * blocks;
+            progress = sample();
+        }
+        return progress;
+    }
+
+    private SyncProgress sample() {
+        return meter.sample(now, (double) height / TARGET, height, TARGET, txs, bytes,
+                dbTransactions, dbMillis);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds the aggregator tx notifications the way TxReceiver gets them, against a fake clock.
+ */
+public class TxNotificationAggregatorTest {
+    private static final long WINDOW = TxNotificationAggregator.WINDOW_MS;
+    private static final String A = "1BitherA";
+    private static final String B = "1BitherB";
+
+    private FakeScheduler scheduler;
+    private TxNotificationAggregator aggregator;
+    private List<TxNotificationAggregator.Summary> summaries;
+    private List<Long> summaryTimes;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        summaries = new ArrayList<TxNotificationAggregator.Summary>();
+        summaryTimes = new ArrayList<Long>();
+        aggregator = new TxNotificationAggregator(new TxNotificationAggregator.Listener() {
+            @Override
+            public void onSummary(TxNotificationAggregator.Summary summary) {
+                summaries.add(summary);
+                summaryTimes.add(scheduler.now());
+            }
+        }, scheduler, WINDOW);
+    }
+
+    @Test
+    public void burstWithinOneWindowIsOneSummary() {
+        // a wallet catching up: 50 txs in half a second
+        for (int i = 0;
+             i < 50;
+             i++) {
+            aggregator.add(i % 5 == 0 ? B : A, i % 10 == 9 ? -1000 : 2000);
+            scheduler.advance(10);
+        }
+        assertEquals(0, summaries.size());
+        scheduler.advance(WINDOW);
+        assertEquals(1, summaries.size());
+        assertEquals(WINDOW, (long) summaryTimes.get(0));
+
+        TxNotificationAggregator.Summary summary = summaries.get(0);
+        assertEquals(50, summary.txCount);
+        assertEquals(45 * 2000, summary.received);
+        assertEquals(5 * 1000, summary.sent);
+        assertEquals(Arrays.asList(B, A), new ArrayList<String>(summary.deltas.keySet()));
+        assertEquals(10 * 2000, (long) summary.deltas.get(B));
+        assertEquals(35 * 2000 - 5 * 1000, (long) summary.deltas.get(A));
+    }
+
+    @Test
+    public void steadyStreamGetsASummaryEveryWindow() {
+        // one tx every 500ms for 10s, the window does not slide with them
+        for (int i = 0;
+             i < 20;
+             i++) {
+            aggregator.add(A, 100);
+            scheduler.advance(500);
+        }
+        scheduler.advance(WINDOW);
+        assertEquals(Arrays.asList(WINDOW, 2 * WINDOW, 3 * WINDOW, 4 * WINDOW), summaryTimes);
+        int txs = 0;
+        for (TxNotificationAggregator.Summary summary : summaries) {
+            txs += summary.txCount;
+            assertEquals(summary.txCount * 100, summary.received);
+        }
+        assertEquals(20, txs);
+        assertEquals(6, summaries.get(0).txCount);
+        assertEquals(2, summaries.get(3).txCount);
+    }
+
+    @Test
+    public void discardDuringTheSpvSyncDropsTheBuffer() {
+        aggregator.add(A, 100);
+        aggregator.add(B, 200);
+        scheduler.advance(WINDOW / 2);
+        // TxReceiver discards on every tx until the sync from spv is done
+        aggregator.discard();
+        assertEquals(0, scheduler.pendingCount());
+        scheduler.advance(WINDOW);
+        assertEquals(0, summaries.size());
+
+        // the first tx after the sync starts a window of its own
+        aggregator.add(B, 300);
+        scheduler.advance(WINDOW);
+        assertEquals(1, summaries.size());
+        assertEquals(1, summaries.get(0).txCount);
+        assertEquals(300, (long) summaries.get(0).deltas.get(B));
+        assertEquals(WINDOW / 2 + 2 * WINDOW, (long) summaryTimes.get(0));
+    }
+
+    @Test
+    public void flushOnShutdownPostsTheBufferOnce() {
+        aggregator.add(A, 100);
+        aggregator.add(A, -40);
+        scheduler.advance(WINDOW / 3);
+        aggregator.flush();
+        assertEquals(1, summaries.size());
+        assertEquals(2, summaries.get(0).txCount);
+        assertEquals(60, (long) summaries.get(0).deltas.get(A));
+        assertEquals(40, summaries.get(0).sent);
+
+        // the pending window is gone with the flush, an empty flush posts nothing
+        scheduler.advance(WINDOW);
+        aggregator.flush();
+        assertEquals(1, summaries.size());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the lease accounting with a fake clock, a fake timed lock and an in-memory store.
+ */
+public class WakeLockBudgetTest {
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final long START = 100 * DAY + 8 * 60 * MINUTE;
+
+    private static final long HOUR = 60 * MINUTE;
+
+    private long now;
+    // local time zone offset, UTC unless a test sets it
+    private long offset;
+    private int acquires;
+    // like a timed android wake lock, it lets go by itself at the end of the timeout
+    private long lockedUntil;
+    private final HashMap<Long, Long> used = new HashMap<Long, Long>();
+    private WakeLockBudget budget;
+
+    @Before
+    public void setUp() {
+        now = START;
+        budget = new WakeLockBudget(new WakeLockBudget.Lock() {
+            @Override
+            public void acquire(long timeout) {
+                acquires++;
+                lockedUntil = now + timeout;
+            }
+
+            @Override
+            public void release() {
+                lockedUntil = now;
+            }
+        }, new WakeLockBudget.Clock() {
+            @Override
+            public long now() {
+                return now;
+            }
+
+            @Override
+            public long offset(long time) {
+                return offset;
+            }
+        }, new WakeLockBudget.Store() {
+            @Override
+            public long getUsed(long day) {
+                Long value = used.get(day);
+                return value == null ? 0 : value;
+            }
+
+            @Override
+            public void setUsed(long day, long value) {
+                used.put(day, value);
+            }
+        }, 5 * MINUTE, 60 * MINUTE);
+    }
+
+    @Test
+    public void leaseRunsOutWithoutProgress() {
+        assertTrue(budget.acquire());
+        now += 4 * MINUTE;
+        budget.tick();
+        assertTrue(budget.isHeld());
+        now += 2 * MINUTE;
+        budget.tick();
+        assertFalse(budget.isHeld());
+        assertFalse(lockHeld());
+        assertEquals(5 * MINUTE, budget.getUsedToday());
+    }
+
+    @Test
+    public void progressExtendsLease() {
+        budget.acquire();
+        now += 4 * MINUTE;
+        budget.onProgress();
+        now += 4 * MINUTE;
+        assertTrue(budget.isHeld());
+        assertTrue(lockHeld());
+        assertEquals(8 * MINUTE, budget.getUsedToday());
+    }
+
+    @Test
+    public void progressAfterLeaseRanOutTakesNewLease() {
+        budget.acquire();
+        now += 7 * MINUTE;
+        budget.tick();
+        assertFalse(budget.isHeld());
+        budget.onProgress();
+        assertTrue(budget.isHeld());
+        assertTrue(lockHeld());
+        assertEquals(2, acquires);
+        now += 3 * MINUTE;
+        budget.tick();
+        // the two idle minutes in between are not counted
+        assertEquals(8 * MINUTE, budget.getUsedToday());
+    }
+
+    @Test
+    public void budgetCapsTimeHeld() {
+        budget.acquire();
+        for (int minute = 0;
+             minute < 3 * 60;
+             minute++) {
+            now += MINUTE;
+            budget.onProgress();
+            assertEquals(budget.isHeld(), lockHeld());
+        }
+        assertFalse(budget.isHeld());
+        assertEquals(60 * MINUTE, budget.getUsedToday());
+        assertFalse(budget.acquire());
+    }
+
+    @Test
+    public void budgetIsBackNextDay() {
+        budgetCapsTimeHeld();
+        now += DAY;
+        budget.onProgress();
+        assertTrue(budget.isHeld());
+        assertEquals(0, budget.getUsedToday());
+    }
+
+    @Test
+    public void leaseOverMidnightCountsForBothDays() {
+        now = 101 * DAY - 2 * MINUTE;
+        budget.acquire();
+        now += 6 * MINUTE;
+        budget.tick();
+        assertEquals(2 * MINUTE, (long) used.get(100L));
+        assertEquals(3 * MINUTE, (long) used.get(101L));
+    }
+
+    @Test
+    public void budgetIsBackAtLocalMidnight() {
+        // UTC+8, local midnight of day 101 is 16:00 UTC of day 100
+        offset = 8 * HOUR;
+        long localMidnight = 101 * DAY - offset;
+        now = localMidnight - 4 * HOUR;
+        budgetCapsTimeHeld();
+        assertEquals(60 * MINUTE, (long) used.get(100L));
+
+        now = localMidnight - MINUTE;
+        assertFalse(budget.acquire());
+        now = localMidnight + MINUTE;
+        assertTrue(budget.acquire());
+        assertEquals(0, budget.getUsedToday());
+        now += 2 * MINUTE;
+        budget.tick();
+        assertEquals(2 * MINUTE, (long) used.get(101L));
+        assertEquals(60 * MINUTE, (long) used.get(100L));
+    }
+
+    @Test
+    public void leaseOverLocalMidnightCountsForBothLocalDays() {
+        // UTC-5, midnight UTC is in the middle of the local evening
+        offset = -5 * HOUR;
+        now = 101 * DAY - offset - 2 * MINUTE;
+        budget.acquire();
+        now += 6 * MINUTE;
+        budget.tick();
+        assertEquals(2 * MINUTE, (long) used.get(100L));
+        assertEquals(3 * MINUTE, (long) used.get(101L));
+
+        now = 102 * DAY - 2 * MINUTE;
+        budget.acquire();
+        now += 4 * MINUTE;
+        budget.tick();
+        assertEquals(7 * MINUTE, (long) used.get(101L));
+        assertEquals(null, used.get(102L));
+    }
+
+    @Test
+    public void releaseCountsTimeHeld() {
+        budget.acquire();
+        now += 2 * MINUTE;
+        budget.release();
+        assertFalse(budget.isHeld());
+        assertFalse(lockHeld());
+        now += 10 * MINUTE;
+        budget.tick();
+        assertEquals(2 * MINUTE, budget.getUsedToday());
+    }
+
+    private boolean lockHeld() {
+        return now < lockedUntil;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import net.bither.bitherj.BitherjSettings.KlineTimeType;
+import net.bither.bitherj.BitherjSettings.MarketType;
+import net.bither.charts.entity.DateValueEntity;
+import net.bither.charts.entity.LineEntity;
+import net.bither.charts.entity.OHLCChartData;
+import net.bither.model.Depth;
+import net.bither.model.KLine;
+import net.bither.model.Ticker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Writes market data through the binary formats and reads it back.
+ */
+public class MarketDataStoreTest {
+    private static final long MINUTE = 60 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tickersRoundTrip() throws Exception {
+        File dir = folder.getRoot();
+        List<Ticker> tickers = new ArrayList<Ticker>();
+        for (int i = 0;
+             i < 3;
+             i++) {
+            Ticker ticker = new Ticker();
+            ticker.setMarketType(MarketType.values()[i % MarketType.values().length]);
+            ticker.setDate(i == 1 ? null : new Date(1400000000000L + i));
+            ticker.setAmount(i + 0.1);
+            ticker.setLevel(i + 0.2);
+            ticker.setHigh(i + 0.3);
+            ticker.setLow(i + 0.4);
+            ticker.setNew(i + 0.5);
+            ticker.setAmp(i + 0.6);
+            ticker.setOpen(i + 0.7);
+            ticker.setSell(i + 0.8);
+            ticker.setBuy(i + 0.9);
+            ticker.setTotal(i + 1.1);
+            tickers.add(ticker);
+        }
+        MarketDataStore.writeTickers(dir, tickers);
+        List<Ticker> read = MarketDataStore.readTickers(dir);
+        assertEquals(tickers.size(), read.size());
+        for (int i = 0;
+             i < tickers.size();
+             i++) {
+            Ticker expected = tickers.get(i);
+            Ticker actual = read.get(i);
+            assertEquals(expected.getMarketType(), actual.getMarketType());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getAmount(), actual.getAmount(), 0);
+            assertEquals(expected.getLevel(), actual.getLevel(), 0);
+            assertEquals(expected.getHigh(), actual.getHigh(), 0);
+            assertEquals(expected.getLow(), actual.getLow(), 0);
+            assertEquals(expected.getPrice(), actual.getPrice(), 0);
+            assertEquals(expected.getAmp(), actual.getAmp(), 0);
+            assertEquals(expected.getOpen(), actual.getOpen(), 0);
+            assertEquals(expected.getSell(), actual.getSell(), 0);
+            assertEquals(expected.getBuy(), actual.getBuy(), 0);
+            assertEquals(expected.getTotal(), actual.getTotal(), 0);
+        }
+    }
+
+    @Test
+    public void depthRoundTrip() throws Exception {
+        File dir = folder.getRoot();
+        List<DateValueEntity> entities = new ArrayList<DateValueEntity>();
+        for (int i = 0;
+             i < 50;
+             i++) {
+            entities.add(new DateValueEntity(i * 1.5f, i == 7 ? null : "price " + i, 30000 +
+                    i));
+        }
+        Depth depth = new Depth();
+        depth.setMarketType(MarketType.BITSTAMP);
+        depth.setMaxVolume(123.25);
+        depth.setSplitIndex(21);
+        depth.setDateValueEntities(entities);
+        MarketDataStore.writeDepth(dir, depth);
+
+        Depth read = MarketDataStore.readDepth(dir, MarketType.BITSTAMP);
+        assertEquals(MarketType.BITSTAMP, read.getMarketType());
+        assertEquals(123.25, read.getMaxVolume(), 0);
+        assertEquals(21, read.getSplitIndex());
+        assertEquals(entities.size(), read.getDateValueEntities().size());
+        for (int i = 0;
+             i < entities.size();
+             i++) {
+            DateValueEntity actual = read.getDateValueEntities().get(i);
+            assertEquals(30000 + i, actual.getDate());
+            assertEquals(i * 1.5f, actual.getValue(), 0);
+            assertEquals(i == 7 ? "" : "price " + i, actual.getTitle());
+        }
+    }
+
+    @Test
+    public void missingFileReadsAsNoCache() {
+        File dir = folder.getRoot();
+        assertNull(MarketDataStore.readTickers(dir));
+        assertNull(MarketDataStore.readDepth(dir, MarketType.BITSTAMP));
+    }
+
+    @Test
+    public void unknownVersionReadsAsNoCache() throws Exception {
+        File dir = folder.getRoot();
+        Ticker ticker = new Ticker();
+        ticker.setMarketType(MarketType.BITSTAMP);
+        List<Ticker> tickers = new ArrayList<Ticker>();
+        tickers.add(ticker);
+        MarketDataStore.writeTickers(dir, tickers);
+        File[] files = dir.listFiles();
+        assertEquals(1, files.length);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(files[0]));
+        out.writeInt(0x4254494B);
+        out.writeInt(99);
+        out.close();
+        assertNull(MarketDataStore.readTickers(dir));
+    }
+
+    @Test
+    public void klineSeriesRoundTrip() throws Exception {
+        File file = new File(folder.getRoot(), "series");
+        KLineSeriesStore store = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_MINUTE, file);
+        // more than the initial capacity, the file is remapped larger
+        for (int i = 0;
+             i < 300;
+             i++) {
+            merge(store, i, 100 + i);
+        }
+        // the running candle is replaced, an older one ignored
+        merge(store, 299, 500);
+        merge(store, 10, 700);
+        store.setWindowSize(100);
+        assertEquals(300, store.size());
+        assertEquals(299 * MINUTE, store.getLastDate());
+
+        KLineSeriesStore reopened = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_MINUTE, file);
+        assertEquals(300, reopened.size());
+        assertEquals(500, reopened.getLastClose(), 0);
+        OHLCChartData chartData = reopened.getKLine(1).getChartData();
+        assertEquals(100, chartData.size());
+        for (int i = 0;
+             i < chartData.size();
+             i++) {
+            int candle = 200 + i;
+            double close = candle == 299 ? 500 : 100 + candle;
+            assertEquals(candle * MINUTE, chartData.getDate(i));
+            assertEquals(close - 1, chartData.getOpen(i), 0);
+            assertEquals(close + 2, chartData.getHigh(i), 0);
+            assertEquals(close - 2, chartData.getLow(i), 0);
+            assertEquals(close, chartData.getClose(i), 0);
+            assertEquals(candle / 10.0, chartData.getVolume(i), 0);
+        }
+    }
+
+    @Test
+    public void klineSeriesKeepsNewestHalfWhenFull() throws Exception {
+        File file = new File(folder.getRoot(), "series");
+        KLineSeriesStore store = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_HOUR, file);
+        int count = KLineSeriesStore.MAX_CAPACITY + 1;
+        for (int i = 0;
+             i < count;
+             i++) {
+            merge(store, i, i);
+        }
+        int kept = KLineSeriesStore.MAX_CAPACITY / 2 + 1;
+        assertEquals(kept, store.size());
+        store.setWindowSize(kept);
+        OHLCChartData chartData = store.getKLine(1).getChartData();
+        assertEquals((count - kept) * MINUTE, chartData.getDate(0));
+        assertEquals(count - 1, chartData.getClose(kept - 1), 0);
+
+        KLineSeriesStore reopened = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_HOUR, file);
+        assertEquals(kept, reopened.size());
+        assertEquals((count - 1) * MINUTE, reopened.getLastDate());
+    }
+
+    @Test
+    public void klineSeriesConvertsOnRead() throws Exception {
+        KLineSeriesStore store = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_DAY, new File(folder.getRoot(), "series"));
+        OHLCChartData cached = new OHLCChartData();
+        cached.add(0, 20, 26, 18, 24, 3, null);
+        // the serialized cache held prices converted with a rate of 2
+        store.importKLine(new KLine(MarketType.BITSTAMP, KlineTimeType.ONE_DAY, cached), 2);
+        merge(store, 1, 100);
+        store.setWindowSize(2);
+        assertEquals(12, store.getKLine(1).getChartData().getClose(0), 0);
+        OHLCChartData chartData = store.getKLine(0.5).getChartData();
+        assertEquals(2, chartData.size());
+        assertEquals(5, chartData.getOpen(0), 0);
+        assertEquals(6.5, chartData.getHigh(0), 0);
+        assertEquals(4.5, chartData.getLow(0), 0);
+        assertEquals(6, chartData.getClose(0), 0);
+        assertEquals(3, chartData.getVolume(0), 0);
+        assertEquals(50, chartData.getClose(1), 0);
+        assertEquals(0.1, chartData.getVolume(1), 0);
+        assertEquals(DateTimeUtil.getXTitle(KlineTimeType.ONE_DAY, new Date(MINUTE)), chartData
+                .getTitle(1));
+    }
+
+    @Test
+    public void klineMovingAveragesFollowMerges() throws Exception {
+        File file = new File(folder.getRoot(), "series");
+        KLineSeriesStore store = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_MINUTE, file);
+        double[] closes = new double[300];
+        for (int i = 0;
+             i < closes.length;
+             i++) {
+            closes[i] = 100 + (i * 7) % 13;
+            merge(store, i, closes[i]);
+        }
+        // the running candle changes
+        closes[299] = 150;
+        merge(store, 299, closes[299]);
+        store.setWindowSize(100);
+        assertMovingAverages(closes, store.getKLine(0.5));
+
+        KLineSeriesStore reopened = new KLineSeriesStore(MarketType.BITSTAMP, KlineTimeType
+                .ONE_MINUTE, file);
+        assertMovingAverages(closes, reopened.getKLine(0.5));
+    }
+
+    private static void assertMovingAverages(double[] closes, KLine kLine) {
+        List<LineEntity<DateValueEntity>> lines = kLine.getMovingAverages();
+        assertEquals(KLineSeriesStore.MOVING_AVERAGE_DAYS.length, lines.size());
+        for (int line = 0;
+             line < lines.size();
+             line++) {
+            int days = KLineSeriesStore.MOVING_AVERAGE_DAYS[line];
+            List<DateValueEntity> lineData = lines.get(line).getLineData();
+            assertEquals(100, lineData.size());
+            for (int i = 0;
+                 i < lineData.size();
+                 i++) {
+                int candle = 200 + i;
+                double sum = 0;
+                for (int j = candle - days + 1;
+                     j <= candle;
+                     j++) {
+                    sum += closes[j];
+                }
+                assertEquals(candle * MINUTE, lineData.get(i).getDate());
+                assertEquals(sum / days * 0.5, lineData.get(i).getValue(), 1e-4);
+            }
+        }
+    }
+
+    private static void merge(KLineSeriesStore store, int candle, double close) {
+        store.merge(candle * MINUTE, close - 1, close + 2, close - 2, close, candle / 10.0);
+    }
+}
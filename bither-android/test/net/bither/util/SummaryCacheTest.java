@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 http://Bither.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.bither.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Churns random txs, blocks, double spends and binds through the cache and checks every
+ * address against the db after each step. Some loads get a tx notified while they read, like
+ * a bind on the UI thread racing the sync thread.
+ */
+public class SummaryCacheTest {
+    private static final int ADDRESS_COUNT = 8;
+    private static final int IMMATURE_CONFIRMATION_COUNT = 6;
+
+    private static final class FakeAddress {
+        private final String key;
+
+        private FakeAddress(String key) {
+            this.key = key;
+        }
+    }
+
+    private Connection connection;
+    private SummaryCache<FakeAddress, Long> cache;
+    private FakeAddress[] addresses;
+    private Random random;
+    private int tip;
+    private Runnable duringLoad;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = connection.createStatement();
+        statement.execute("create table txs (seq integer primary key autoincrement, address " +
+                "text not null, value integer not null, block_no integer)");
+        statement.close();
+        cache = new SummaryCache<FakeAddress, Long>(new SummaryCache.Source<FakeAddress,
+                Long>() {
+            @Override
+            public String key(FakeAddress address) {
+                return address.key;
+            }
+
+            @Override
+            public SummaryCache.Summary<Long> load(FakeAddress address) {
+                return SummaryCacheTest.this.load(address.key, true);
+            }
+
+            @Override
+            public boolean isNewer(Long tx, Long recentlyTx) {
+                // added txs are unconfirmed and get the highest seq
+                return recentlyTx == null || tx > recentlyTx;
+            }
+        });
+        addresses = new FakeAddress[ADDRESS_COUNT];
+        for (int i = 0;
+             i < ADDRESS_COUNT;
+             i++) {
+            addresses[i] = new FakeAddress("address" + i);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void churn() throws Exception {
+        for (long seed = 0;
+             seed < 8;
+             seed++) {
+            random = new Random(seed);
+            for (int step = 0;
+                 step < 300;
+                 step++) {
+                churnStep();
+                for (FakeAddress address : addresses) {
+                    assertSummary("seed " + seed + " step " + step + " " + address.key,
+                            load(address.key, false), cache.get(address));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void olderTxReloadsTheEntry() {
+        final FakeAddress address = new FakeAddress("address");
+        final int[] loads = new int[1];
+        SummaryCache<FakeAddress, Long> cache = new SummaryCache<FakeAddress, Long>(new
+                SummaryCache.Source<FakeAddress, Long>() {
+            @Override
+            public String key(FakeAddress address) {
+                return address.key;
+            }
+
+            @Override
+            public SummaryCache.Summary<Long> load(FakeAddress address) {
+                loads[0]++;
+                return new SummaryCache.Summary<Long>(100 * loads[0], 2, 20L);
+            }
+
+            @Override
+            public boolean isNewer(Long tx, Long recentlyTx) {
+                return recentlyTx == null || tx > recentlyTx;
+            }
+        });
+        cache.get(address);
+        assertEquals(1, loads[0]);
+
+        cache.onTxAdded(address.key, 30L, 5);
+        SummaryCache.Summary<Long> summary = cache.get(address);
+        assertEquals(1, loads[0]);
+        assertEquals(105, summary.balance);
+        assertEquals(3, summary.txCount);
+        assertEquals(Long.valueOf(30), summary.recentlyTx);
+
+        // a tx older than the cached latest one keeps neither its place nor the delta
+        cache.onTxAdded(address.key, 10L, 5);
+        summary = cache.get(address);
+        assertEquals(2, loads[0]);
+        assertEquals(200, summary.balance);
+        assertEquals(Long.valueOf(20), summary.recentlyTx);
+    }
+
+    private void churnStep() throws Exception {
+        final int i = random.nextInt(ADDRESS_COUNT);
+        int op = random.nextInt(10);
+        if (op < 4) {
+            addTx(addresses[i].key);
+        } else if (op < 6) {
+            tip++;
+            execute("update txs set block_no=" + tip + " where block_no is null and " +
+                    "(seq + " + tip + ") % 3 = 0");
+            cache.onBlockChanged();
+        } else if (op < 7) {
+            execute("delete from txs where seq=(select max(seq) from txs where address='" +
+                    addresses[i].key + "' and block_no is null)");
+            cache.invalidate(addresses[i].key);
+        } else if (op < 8) {
+            // the address list reloaded its address objects
+            addresses[i] = new FakeAddress(addresses[i].key);
+            cache.get(addresses[i]);
+        } else if (op < 9) {
+            final String racingKey = addresses[random.nextInt(ADDRESS_COUNT)].key;
+            duringLoad = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        addTx(racingKey);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            cache.invalidate(addresses[i].key);
+            cache.get(addresses[i]);
+            duringLoad = null;
+        } else {
+            cache.invalidate(null);
+        }
+    }
+
+    private void addTx(String key) throws Exception {
+        long value = random.nextInt(200000) - 100000;
+        PreparedStatement statement = connection.prepareStatement("insert into txs (address, " +
+                "value) values (?, ?)");
+        statement.setString(1, key);
+        statement.setLong(2, value);
+        statement.executeUpdate();
+        statement.close();
+        cache.onTxAdded(key, lastSeq(), value);
+    }
+
+    private SummaryCache.Summary<Long> load(String key, boolean racing) {
+        try {
+            PreparedStatement statement = connection.prepareStatement("select ifnull(sum" +
+                    "(value),0), count(0) from txs where address=?");
+            statement.setString(1, key);
+            ResultSet rs = statement.executeQuery();
+            rs.next();
+            long balance = rs.getLong(1);
+            int txCount = rs.getInt(2);
+            statement.close();
+            if (racing && duringLoad != null) {
+                Runnable r = duringLoad;
+                duringLoad = null;
+                r.run();
+            }
+            statement = connection.prepareStatement("select seq from txs where address=? and " +
+                    "(block_no is null or ? - block_no + 1 < ?) order by seq desc limit 1");
+            statement.setString(1, key);
+            statement.setInt(2, tip);
+            statement.setInt(3, IMMATURE_CONFIRMATION_COUNT);
+            rs = statement.executeQuery();
+            Long recentlyTx = rs.next() ? rs.getLong(1) : null;
+            statement.close();
+            return new SummaryCache.Summary<Long>(balance, txCount, recentlyTx);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long lastSeq() throws Exception {
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select max(seq) from txs");
+        rs.next();
+        long seq = rs.getLong(1);
+        statement.close();
+        return seq;
+    }
+
+    private void execute(String sql) throws Exception {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private static void assertSummary(String message, SummaryCache.Summary<Long> expected,
+                                      SummaryCache.Summary<Long> actual) {
+        assertEquals(message + " balance", expected.balance, actual.balance);
+        assertEquals(message + " tx count", expected.txCount, actual.txCount);
+        assertEquals(message + " recent tx", expected.recentlyTx, actual.recentlyTx);
+    }
+}